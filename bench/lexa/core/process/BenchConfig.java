@@ -0,0 +1,142 @@
+/*==============================================================================
+ * Lexa - Property of William Norman-Walker
+ *------------------------------------------------------------------------------
+ * BenchConfig.java
+ *------------------------------------------------------------------------------
+ * Author:  William Norman-Walker
+ * Created: October 2026
+ *==============================================================================
+ */
+package lexa.core.process;
+
+import java.io.File;
+import java.io.IOException;
+import lexa.core.data.ArrayDataSet;
+import lexa.core.data.DataItem;
+import lexa.core.data.DataSet;
+import lexa.core.data.config.ConfigDataSet;
+import lexa.core.data.exception.DataException;
+import lexa.core.data.io.DataReader;
+import lexa.core.expression.ExpressionException;
+import lexa.core.expression.function.FunctionLibrary;
+import lexa.core.process.context.Context;
+import lexa.core.process.factory.ProcessFactory;
+
+/**
+ * Loads the test cases for the benchmarks.
+ * <p>The benchmarks use the same file as the {@code lxprocess} test bed,
+ * {@code test.process.lexa}, or the file in the system property
+ * {@code lxprocess.bench.file}.  Each case gives the process configuration,
+ * the message to send and the stubbed replies to forwarded requests.
+ *
+ * @author William
+ * @since 2026-10
+ */
+final class BenchConfig
+{
+    /** the system property for the test file */
+    static final String FILE_PROPERTY = "lxprocess.bench.file";
+
+    private final DataSet testCase;
+    private final FunctionLibrary functionLibrary;
+
+    /**
+     * Load a test case.
+     *
+     * @param   testName
+     *          the name of the case in the {@code processes} block.
+     */
+    BenchConfig(String testName)
+            throws IOException,
+                    DataException,
+                    ExpressionException
+    {
+        DataSet testData = new DataReader(new File(
+                System.getProperty(BenchConfig.FILE_PROPERTY, "test.process.lexa")))
+                .read();
+        this.testCase = testData.getDataSet("processes").getDataSet(testName);
+        if (this.testCase == null)
+        {
+            throw new DataException("No test case " + testName);
+        }
+        DataSet functions = testData.getDataSet("functions");
+        DataSet testFunctions = this.testCase.getDataSet("functions");
+        if (testFunctions != null)
+        {
+            functions = functions != null ?
+                    new ArrayDataSet(functions).put(testFunctions) :
+                    testFunctions;
+        }
+        this.functionLibrary = new FunctionLibrary(functions);
+    }
+
+    /**
+     * Create a factory for the process in the case.
+     */
+    ProcessFactory factory()
+            throws DataException
+    {
+        ConfigDataSet config = new ConfigDataSet(this.testCase.getDataSet("process"));
+        ProcessFactory factory = new ProcessFactory(
+                ClassLoader.getSystemClassLoader(), config, this.functionLibrary);
+        config.close();
+        return factory;
+    }
+
+    /**
+     * Get a copy of the message for the case.
+     */
+    DataSet message()
+    {
+        return new ArrayDataSet(this.testCase.getDataSet(Context.MESSAGE));
+    }
+
+    /**
+     * Drive a process through a request, answering forwarded requests from
+     * the {@code replies} block of the case.
+     *
+     * @return  the reply from the process.
+     */
+    DataSet run(LexaProcess process, DataSet message)
+            throws ProcessException
+    {
+        process.handleRequest(message);
+        Status status = process.getStatus();
+        DataSet reply = null;
+        DataSet forward = null;
+        while (true)
+        {
+            switch (status.getCurrent())
+            {
+                case WAITING_PROCESS :
+                {
+                    process.process();
+                    break;
+                }
+                case REQUEST_PENDING :
+                {
+                    forward = process.getRequests();
+                    break;
+                }
+                case WAITING_REPLY :
+                {
+                    DataSet replies = this.testCase.getDataSet("replies");
+                    for (DataItem request : forward.getDataSet(Context.MESSAGE_LIST))
+                    {
+                        process.handleReply(replies.getDataSet(request.getKey()));
+                    }
+                    break;
+                }
+                case REPLY_READY :
+                {
+                    reply = process.getReply();
+                    break;
+                }
+                default :
+                {
+                    return reply;
+                }
+            }
+        }
+    }
+}
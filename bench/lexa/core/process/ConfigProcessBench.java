@@ -0,0 +1,74 @@
+/*==============================================================================
+ * Lexa - Property of William Norman-Walker
+ *------------------------------------------------------------------------------
+ * ConfigProcessBench.java
+ *------------------------------------------------------------------------------
+ * Author:  William Norman-Walker
+ * Created: October 2026
+ *==============================================================================
+ */
+package lexa.core.process;
+
+import java.util.concurrent.TimeUnit;
+import lexa.core.data.DataSet;
+import lexa.core.process.factory.ProcessFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for the steps of a {@link ConfigProcess}.
+ * <p>The process is set up with the request from the {@code expression}
+ * case in {@code test.process.lexa}.
+ *
+ * @author William
+ * @since 2026-10
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+public class ConfigProcessBench
+{
+    private ProcessFactory factory;
+    private ConfigProcess process;
+
+    @Setup
+    public void setUp()
+            throws Exception
+    {
+        BenchConfig config = new BenchConfig("expression");
+        this.factory = config.factory();
+        this.process = (ConfigProcess)this.factory.instance();
+        this.process.handleRequest(config.message());
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        this.factory.close();
+    }
+
+    @Benchmark
+    public DataSet buildReply()
+            throws Exception
+    {
+        return this.process.buildReply();
+    }
+
+    @Benchmark
+    public DataSet getMessageData()
+    {
+        return this.process.getMessageData();
+    }
+}
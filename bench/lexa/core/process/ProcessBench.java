@@ -0,0 +1,98 @@
+/*==============================================================================
+ * Lexa - Property of William Norman-Walker
+ *------------------------------------------------------------------------------
+ * ProcessBench.java
+ *------------------------------------------------------------------------------
+ * Author:  William Norman-Walker
+ * Created: October 2026
+ *==============================================================================
+ */
+package lexa.core.process;
+
+import java.util.concurrent.TimeUnit;
+import lexa.core.data.DataSet;
+import lexa.core.process.factory.ProcessFactory;
+import lexa.core.process.factory.ProcessPool;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for the life cycle of a process.
+ * <p>Each case from {@code test.process.lexa} is measured for:
+ * <dl>
+ * <dt>{@code instance}</dt>
+ *      <dd>creating and initialising a process with
+ *      {@link ProcessFactory#instance()}.</dd>
+ * <dt>{@code cycle}</dt>
+ *      <dd>a full request to reply cycle on a process recycled through a
+ *      {@link ProcessPool}; forwarded requests are answered from the
+ *      {@code replies} block.</dd>
+ * </dl>
+ *
+ * @author William
+ * @since 2026-10
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+public class ProcessBench
+{
+    /** the case from the test file */
+    @Param({"echoMessage", "passThrough", "expression", "expressionCached"})
+    public String testCase;
+
+    private BenchConfig config;
+    private ProcessFactory factory;
+    private ProcessPool pool;
+
+    @Setup
+    public void setUp()
+            throws Exception
+    {
+        this.config = new BenchConfig(this.testCase);
+        this.factory = this.config.factory();
+        this.pool = new ProcessPool(this.factory, 1, 1);
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        this.pool.close();
+        this.factory.close();
+    }
+
+    @Benchmark
+    public DataSet cycle()
+            throws Exception
+    {
+        LexaProcess process = this.pool.acquire();
+        try
+        {
+            return this.config.run(process, this.config.message());
+        }
+        finally
+        {
+            this.pool.release(process);
+        }
+    }
+
+    @Benchmark
+    public LexaProcess instance()
+            throws Exception
+    {
+        return this.factory.instance();
+    }
+}
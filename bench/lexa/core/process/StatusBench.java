@@ -0,0 +1,68 @@
+/*==============================================================================
+ * Lexa - Property of William Norman-Walker
+ *------------------------------------------------------------------------------
+ * StatusBench.java
+ *------------------------------------------------------------------------------
+ * Author:  William Norman-Walker
+ * Created: October 2026
+ *==============================================================================
+ */
+package lexa.core.process;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for the {@link Status} state engine.
+ * <p>{@code cycle} makes the transitions for a request that forwards one
+ * message, as made by {@link RequestProcess}; {@code getCurrent} reads the
+ * current status.
+ *
+ * @author William
+ * @since 2026-10
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+public class StatusBench
+{
+    private Status status;
+
+    @Setup
+    public void setUp()
+    {
+        this.status = new Status();
+        this.status.update(Status.ACTIVE | Status.ACCEPT_REQUESTS, 0);
+    }
+
+    @Benchmark
+    public Status.Type cycle()
+    {
+        Status current = this.status;
+        current.update(Status.REQUEST_PENDING, Status.ACCEPT_REQUESTS);
+        current.update(Status.WAITING_REPLY, Status.REQUEST_PENDING);
+        current.update(Status.WAITING_PROCESS, Status.WAITING_REPLY);
+        current.update(Status.REPLY_READY, Status.WAITING_PROCESS);
+        Status.Type type = current.getCurrent();
+        current.reset();
+        return type;
+    }
+
+    @Benchmark
+    public Status.Type getCurrent()
+    {
+        return this.status.getCurrent();
+    }
+}
@@ -9,8 +9,6 @@
  */
 package lexa.core.process;
 
-import java.util.HashMap;
-import java.util.Map;
 import lexa.core.data.*;
 import lexa.core.data.config.ConfigDataSet;
 import lexa.core.data.exception.DataException;
@@ -54,20 +52,32 @@ import lexa.core.process.context.Context;
  *      such as look up codes.</dd>
  * </dl>
  *
+ * <p>The configuration is compiled into a {@link ConfigTemplate} that is
+ * shared by all the instances created by the same factory.
+ * <p>When the configuration has a {@code cache} block, replies are cached
+ * against the values of the {@code requestFieldList}; see
+ * {@link ConfigTemplate}.
+ *
  * @author William
  * @since 2013-08
  */
 public class ConfigProcess
-        extends RequestProcess {
-    /** these are the fields the process will accept */
-    private String[] requestFields;
-    /** pre validation of the request */
-    private Expression requestExpression;
-    /** map to build the reply */
-    private ExpressionMap replyMap;
+        extends RequestProcess
+        implements TemplateProcess<ConfigTemplate> {
+    /** the compiled configuration */
+    private ConfigTemplate template;
 
-    /** the current message being processed */
+    /**
+     * the current message being processed; this also holds the
+     * {@link #getMessageData() message data} so it is only built once and
+     * the handlers work on it directly
+     */
     private DataSet request;
+    /**
+     * sealed copy of the message data given to callers; dropped whenever a
+     * handler may have changed the message
+     */
+    private DataSet messageData;
 
     /** processing of the data */
     private Expression handleProcessExpression;
@@ -75,10 +85,12 @@ public class ConfigProcess
     private Expression checkNextRequestExpression;
     /** build the reply */
 	private Expression buildReplyExpression;
-    private Map<String,Expression> requests;
-    private DataSet data;
 	private String nextRequest;
 	private DataSet replyData;
+    /** key for the request in the reply cache */
+    private String cacheKey;
+    /** reply found in the cache for the current request */
+    private DataSet cachedReply;
 
     public ConfigProcess() {
 		super();
@@ -88,12 +100,12 @@ public class ConfigProcess
     public DataSet buildRequests(DataSet context) throws ProcessException {
         String requestName = this.request.getString(Config.NEXT_REQUEST);
         Expression requestBuilder =
-                this.requests.get(requestName);
+                this.template.getRequest(requestName);
         if (requestBuilder == null) {
             throw new ProcessException("Cannot find handler for " + requestName);
         }
         try {
-            return (DataSet)requestBuilder.evaluate(this.request);
+            return (DataSet)this.evaluate(requestBuilder);
         } catch (ExpressionException ex) {
             throw new ProcessException(ex.getLocalizedMessage(),this.request,ex);
         }
@@ -106,12 +118,12 @@ public class ConfigProcess
         }
         String next;
         try {
-            next = (String)this.checkNextRequestExpression.evaluate(request);
+            next = (String)this.evaluate(this.checkNextRequestExpression);
         } catch (ExpressionException ex) {
             throw new ProcessException(ex.getLocalizedMessage(),this.request,ex);
         }
         if (next != null) {
-            request.put(Config.NEXT_REQUEST,next);
+            this.request.put(Config.NEXT_REQUEST,next);
             return true;
         }
         return false;
@@ -125,10 +137,10 @@ public class ConfigProcess
         {
             return false;
         }
-        DataSet msg = this.getMessageData();
+        DataSet msg = this.request;
         try
         {
-            return (boolean)this.handleProcessExpression.evaluate(msg);
+            return (boolean)this.evaluate(this.handleProcessExpression);
         }
         catch (ExpressionException ex)
         {
@@ -136,56 +148,59 @@ public class ConfigProcess
         }
     }
 
+    /**
+     * Get the cache for the replies.
+     *
+     * @return  the reply cache shared with the other instances, or
+     *          {@code null} if the replies are not cached.
+     */
+    public ReplyCache getCache() {
+        return this.template == null ?
+                null :
+                this.template.getCache();
+    }
+
     @Override
     public void onClose() throws ProcessException {
-        throw new UnsupportedOperationException("ConfigProcess.onClose not supported yet."); //To change body of generated methods, choose Tools | Templates.
+        // no resources held by the process
     }
 
     @Override
-    public void onInitialise(FunctionLibrary functionLibrary, ConfigDataSet config)
+    public ConfigTemplate compile(FunctionLibrary functionLibrary, ConfigDataSet config)
             throws ProcessException,
                     DataException,
                     ExpressionException
     {
-        config.validateType(
-                Config.REQUEST_FIELD_LIST,  DataType.STRING,
-                Config.REPLY_MAP,           DataType.DATA_SET
-        );
-        this.requestFields =
-                config.getString(Config.REQUEST_FIELD_LIST).split(" ");
-
-        this.requestExpression = config.contains(Config.REQUEST_EXPRESSION) ?
-                Expression.parse(
-                        config.getString(
-                                Config.REQUEST_EXPRESSION),functionLibrary) :
-                null;
-        this.replyMap = new ExpressionMap(
-                config.getDataSet(Config.REPLY_MAP), functionLibrary);
+        return ConfigTemplate.compile(functionLibrary, config);
+    }
 
-        if (config.contains(Config.DATA))
-        {
-            config.validateType(
-                    Config.DATA, DataType.DATA_SET
-            );
-            this.data = new ArrayDataSet(config.getDataSet(Config.DATA));
-        }
-        else
-        {
-            this.data = null;
-        }
+    @Override
+    public void initialise(ConfigTemplate template)
+            throws ProcessException
+    {
+        this.template = template;
+        this.activate();
+    }
 
-        this.requests = new HashMap();
+    @Override
+    public void onInitialise(FunctionLibrary functionLibrary, ConfigDataSet config)
+            throws ProcessException,
+                    DataException,
+                    ExpressionException
+    {
+        this.template = ConfigTemplate.compile(functionLibrary, config);
     }
 
     @Override
     public void onNewRequest(DataSet request)
 			throws ProcessException {
         this.request = new ArrayDataSet(request);
+        this.messageData = null;
         DataSet context = request.getDataSet(Context.REQUEST);
         DataSet cleanContext = new ArrayDataSet();
         // white list for fields:
         String missing = "";
-        for (String field : this.requestFields)
+        for (String field : this.template.getRequestFields())
         {
             if (context.contains(field))
             {
@@ -198,23 +213,40 @@ public class ConfigProcess
         }
         if (!missing.isEmpty())
         {
-            throw new ProcessException("Missing from request:" + missing,this.request);
+            throw new RejectedException("Missing from request:" + missing,this.request);
         }
-        this.request.put(Context.REQUEST, cleanContext);
         this.nextRequest = null;
 		this.replyData = new ArrayDataSet();
+        this.cacheKey = null;
+        this.cachedReply = null;
+        ReplyCache cache = this.template.getCache();
+        if (cache != null)
+        {
+            this.cacheKey = this.buildCacheKey(cleanContext);
+            this.cachedReply = cache.get(this.cacheKey);
+            if (this.cachedReply != null)
+            {
+                // only valid requests are cached
+                return;
+            }
+        }
+        // build the message data once; the handlers all share it
+        this.request.put(Context.REQUEST, cleanContext)
+				.put (Config.NEXT_REQUEST, this.nextRequest)
+				.put (Config.DATA,this.template.getData())
+				.put(Context.REPLY, this.replyData);
         try
         {
-			DataSet msg = this.getMessageData();
-			Boolean result = (Boolean)this.requestExpression.evaluate(msg);
+			DataSet msg = this.request;
+			Boolean result = (Boolean)this.evaluate(this.template.getRequestExpression());
             if (!result)
             {
                 if (msg.contains(Context.RETURN))
                 {
-                    throw new ProcessException(
+                    throw new RejectedException(
                             msg.getString(Context.RETURN),this.request);
                 }
-                throw new ProcessException(
+                throw new RejectedException(
                         "Unhandled call to process.handleRequest",this.request);            }
         }
         catch (ExpressionException ex)
@@ -237,9 +269,7 @@ public class ConfigProcess
         }
         try
         {
-            this.handleProcessExpression.evaluate(
-                    this.getMessageData()
-            );
+            this.evaluate(this.handleProcessExpression);
         }
         catch (ExpressionException ex)
         {
@@ -249,13 +279,61 @@ public class ConfigProcess
         }
     }
 
+    @Override
+    public void onRecycle() throws ProcessException {
+        this.request = null;
+        this.messageData = null;
+        this.nextRequest = null;
+        this.replyData = null;
+        this.cacheKey = null;
+        this.cachedReply = null;
+    }
+
 	@Override
 	public DataSet buildReply()
 			throws ProcessException
 	{
-        return new MapDataSet(replyMap, this.getMessageData());
+        if (this.cachedReply != null)
+        {
+            return this.cachedReply;
+        }
+        DataSet reply =
+                new MapDataSet(this.template.getReplyMap(), this.request);
+        if (this.cacheKey != null)
+        {
+            reply = new SealedDataSet(new ArrayDataSet(reply));
+            this.template.getCache().put(this.cacheKey, reply);
+        }
+        return reply;
 	}
 
+    /**
+     * Evaluate a handler against the message data.
+     * <p>The handler may change the message data, so the sealed copy is
+     * built again the next time it is asked for.
+     */
+    private Object evaluate(Expression handler)
+            throws ExpressionException
+    {
+        this.messageData = null;
+        return handler.evaluate(this.request);
+    }
+
+    /**
+     * Build the key for a request in the reply cache.
+     * <p>The key is made up of the value of each field in the
+     * {@code requestFieldList}, in order.
+     */
+    private String buildCacheKey(DataSet context)
+    {
+        StringBuilder key = new StringBuilder();
+        for (String field : this.template.getRequestFields())
+        {
+            key.append(context.getObject(field)).append('\u001f');
+        }
+        return key.toString();
+    }
+
 	/**
 	 * Provides the data for exposing to the handlers:
 	 * <pre>
@@ -267,15 +345,29 @@ public class ConfigProcess
 	 * reply {
 	 * }
 	 * </pre>
-	 * @return the message data
+	 * <p>The message data is built once for each request and every handler
+	 * works on that one message in place, so any field a handler sets is
+	 * seen by the later ones.  In particular a field set by the
+	 * {@code requestExpression}, such as {@code return}, is visible to the
+	 * {@code replyMap}; handlers that relied on each step starting from a
+	 * fresh copy must clear what they set.
+	 * <p>Callers outside the process are given a sealed copy so they cannot
+	 * change its state.  The copy is kept until a handler next runs, so
+	 * repeated calls between steps do not copy the message again.
+	 * The {@code data} block is shared by all the processes and is sealed.
+	 * @return the message data, or {@code null} when there is no request.
 	 */
 	@Override
 	public DataSet getMessageData()
 	{
-		DataSet msg = new ArrayDataSet(this.request)
-				.put (Config.NEXT_REQUEST, this.nextRequest)
-				.put (Config.DATA,this.data)
-				.put(Context.REPLY, this.replyData);
-		return msg;
+		if (this.request == null)
+		{
+			return null;
+		}
+		if (this.messageData == null)
+		{
+			this.messageData = new SealedDataSet(this.request);
+		}
+		return this.messageData;
 	}
 }
@@ -0,0 +1,172 @@
+/*==============================================================================
+ * Lexa - Property of William Norman-Walker
+ *------------------------------------------------------------------------------
+ * ConfigTemplate.java
+ *------------------------------------------------------------------------------
+ * Author:  William Norman-Walker
+ * Created: October 2026
+ *==============================================================================
+ */
+package lexa.core.process;
+
+import java.util.Collections;
+import java.util.Map;
+import lexa.core.data.DataSet;
+import lexa.core.data.DataType;
+import lexa.core.data.SealedDataSet;
+import lexa.core.data.config.ConfigDataSet;
+import lexa.core.data.config.ConfigDataItem;
+import lexa.core.data.exception.DataException;
+import lexa.core.expression.Expression;
+import lexa.core.expression.ExpressionException;
+import lexa.core.expression.function.FunctionLibrary;
+import lexa.core.expression.map.ExpressionMap;
+import lexa.core.process.context.Config;
+import lexa.core.process.context.Value;
+
+/**
+ * The compiled configuration for a {@link ConfigProcess}.
+ * <p>The template is built once by the
+ * {@link lexa.core.process.factory.ProcessFactory ProcessFactory} and shared by
+ * every instance; it is immutable once compiled.
+ * <p>If the configuration has a {@code cache} block then the replies are
+ * cached in a {@link ReplyCache} shared by the instances:
+ * <pre>
+ * cache {
+ *   maxSize &lt;replies held; default 1000&gt;
+ *   timeToLive &lt;milliseconds; default 0 to never expire&gt;
+ * }
+ * </pre>
+ * <p>The cache should only be used when the reply depends on nothing but
+ * the fields in the {@code requestFieldList} and the {@code data} block.
+ *
+ * @author William
+ * @since 2026-10
+ */
+public final class ConfigTemplate
+{
+    /** these are the fields the process will accept */
+    private final String[] requestFields;
+    /** pre validation of the request */
+    private final Expression requestExpression;
+    /** map to build the reply */
+    private final ExpressionMap replyMap;
+    /** builders for forward requests */
+    private final Map<String,Expression> requests;
+    /** config data for the process */
+    private final DataSet data;
+    /** cache for the replies; {@code null} when not configured */
+    private final ReplyCache cache;
+
+    private ConfigTemplate(FunctionLibrary functionLibrary, ConfigDataSet config)
+            throws DataException,
+                    ExpressionException
+    {
+        config.validateType(
+                Config.REQUEST_FIELD_LIST,  DataType.STRING,
+                Config.REPLY_MAP,           DataType.DATA_SET
+        );
+        this.requestFields =
+                config.getString(Config.REQUEST_FIELD_LIST).split(" ");
+
+        this.requestExpression = config.contains(Config.REQUEST_EXPRESSION) ?
+                Expression.parse(
+                        config.getString(
+                                Config.REQUEST_EXPRESSION),functionLibrary) :
+                null;
+        this.replyMap = new ExpressionMap(
+                config.getDataSet(Config.REPLY_MAP), functionLibrary);
+
+        if (config.contains(Config.DATA))
+        {
+            config.validateType(
+                    Config.DATA, DataType.DATA_SET
+            );
+            this.data = new SealedDataSet(config.getDataSet(Config.DATA));
+        }
+        else
+        {
+            this.data = null;
+        }
+
+        if (config.contains(Config.CACHE))
+        {
+            config.validateType(
+                    Config.CACHE, DataType.DATA_SET
+            );
+            ConfigDataSet cacheConfig =
+                    ((ConfigDataItem)config.get(Config.CACHE)).getDataSet();
+            this.cache = new ReplyCache(
+                    cacheConfig.get(Config.MAX_SIZE,
+                            Value.DEFAULT_CACHE_SIZE).getInteger(),
+                    cacheConfig.get(Config.TIME_TO_LIVE,
+                            Value.DEFAULT_TIME_TO_LIVE).getInteger());
+            cacheConfig.close();
+        }
+        else
+        {
+            this.cache = null;
+        }
+
+        this.requests = Collections.emptyMap();
+    }
+
+    /**
+     * Compile the configuration for a {@link ConfigProcess}.
+     *
+     * @param   functionLibrary
+     *          the library to use with the expressions.
+     * @param   config
+     *          the configuration for the process.
+     * @return  the compiled template.
+     * @throws  DataException
+     *          when an exception occurs in the configuration.
+     * @throws  ExpressionException
+     *          when an exception has occurred with an expression.
+     */
+    public static ConfigTemplate compile(FunctionLibrary functionLibrary,
+            ConfigDataSet config)
+            throws DataException,
+                    ExpressionException
+    {
+        return new ConfigTemplate(functionLibrary, config);
+    }
+
+    /**
+     * Get the cache for the replies.
+     *
+     * @return  the reply cache or {@code null} if the replies are not cached.
+     */
+    public ReplyCache getCache()
+    {
+        return this.cache;
+    }
+
+    DataSet getData()
+    {
+        return this.data;
+    }
+
+    ExpressionMap getReplyMap()
+    {
+        return this.replyMap;
+    }
+
+    Expression getRequest(String requestName)
+    {
+        return this.requests.get(requestName);
+    }
+
+    Expression getRequestExpression()
+    {
+        return this.requestExpression;
+    }
+
+    /**
+     * The fields accepted in the request; the array must not be changed.
+     */
+    String[] getRequestFields()
+    {
+        return this.requestFields;
+    }
+}
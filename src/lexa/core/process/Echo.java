@@ -87,6 +87,12 @@ public class Echo
         return true;
     }
 
+    @Override
+    public void onRecycle() throws ProcessException {
+        this.context = null;
+        this.reply = null;
+    }
+
     @Override
     public void onProcess() throws ProcessException {
         this.reply = new ArrayDataSet(
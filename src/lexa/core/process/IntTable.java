@@ -0,0 +1,270 @@
+/*==============================================================================
+ * Lexa - Property of William Norman-Walker
+ *------------------------------------------------------------------------------
+ * IntTable.java
+ *------------------------------------------------------------------------------
+ * Author:  William Norman-Walker
+ * Created: October 2026
+ *==============================================================================
+ */
+package lexa.core.process;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * A hash table from primitive {@code int} keys to values.
+ * <p>Used to look up in-flight requests by their source ref without boxing
+ * the key or allocating an entry for each value.  The table uses open
+ * addressing with linear probing and grows when it is half full.
+ * <p>Values cannot be {@code null}.  The table is not thread safe.
+ *
+ * @param   <V> the type of the values.
+ * @author William
+ * @since 2026-10
+ */
+public final class IntTable<V>
+{
+    /** the smallest capacity for the table */
+    private static final int MIN_CAPACITY = 16;
+
+    private int[] keys;
+    private Object[] values;
+    /** capacity - 1 */
+    private int mask;
+    private int size;
+
+    /**
+     * Create an empty table.
+     */
+    public IntTable()
+    {
+        this(IntTable.MIN_CAPACITY);
+    }
+
+    /**
+     * Create an empty table sized for the expected number of values.
+     *
+     * @param   expected
+     *          the expected number of values.
+     */
+    public IntTable(int expected)
+    {
+        int capacity = IntTable.MIN_CAPACITY;
+        while (capacity < expected * 2)
+        {
+            capacity <<= 1;
+        }
+        this.allocate(capacity);
+    }
+
+    private void allocate(int capacity)
+    {
+        this.keys = new int[capacity];
+        this.values = new Object[capacity];
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Remove all the values.
+     */
+    public void clear()
+    {
+        Arrays.fill(this.values, null);
+        this.size = 0;
+    }
+
+    /**
+     * Indicates if the table contains a key.
+     *
+     * @param   key
+     *          the key to look up.
+     * @return  {@code true} if the table contains the key,
+     *          otherwise {@code false}.
+     */
+    public boolean contains(int key)
+    {
+        return this.get(key) != null;
+    }
+
+    /**
+     * Perform an action for each value in the table.
+     * <p>The table must not be changed by the action.
+     *
+     * @param   action
+     *          the action to perform.
+     */
+    public void forEach(Consumer<? super V> action)
+    {
+        for (Object value : this.values)
+        {
+            if (value != null)
+            {
+                action.accept((V)value);
+            }
+        }
+    }
+
+    /**
+     * Get the value for a key.
+     *
+     * @param   key
+     *          the key to look up.
+     * @return  the value for the key or {@code null} if there is none.
+     */
+    public V get(int key)
+    {
+        for (int i = IntTable.hash(key) & this.mask; ; i = (i + 1) & this.mask)
+        {
+            Object value = this.values[i];
+            if (value == null)
+            {
+                return null;
+            }
+            if (this.keys[i] == key)
+            {
+                return (V)value;
+            }
+        }
+    }
+
+    private static int hash(int key)
+    {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Indicates if the table is empty.
+     *
+     * @return  {@code true} if the table is empty,
+     *          otherwise {@code false}.
+     */
+    public boolean isEmpty()
+    {
+        return this.size == 0;
+    }
+
+    /**
+     * Put a value in the table.
+     *
+     * @param   key
+     *          the key for the value.
+     * @param   value
+     *          the value; cannot be {@code null}.
+     * @return  the previous value for the key or {@code null} if there was none.
+     */
+    public V put(int key, V value)
+    {
+        if (value == null)
+        {
+            throw new NullPointerException("IntTable value cannot be null");
+        }
+        int i = IntTable.hash(key) & this.mask;
+        while (this.values[i] != null)
+        {
+            if (this.keys[i] == key)
+            {
+                V previous = (V)this.values[i];
+                this.values[i] = value;
+                return previous;
+            }
+            i = (i + 1) & this.mask;
+        }
+        this.keys[i] = key;
+        this.values[i] = value;
+        if (++this.size * 2 > this.values.length)
+        {
+            this.resize();
+        }
+        return null;
+    }
+
+    /**
+     * Remove the value for a key.
+     *
+     * @param   key
+     *          the key to remove.
+     * @return  the value removed or {@code null} if there was none.
+     */
+    public V remove(int key)
+    {
+        int i = IntTable.hash(key) & this.mask;
+        while (true)
+        {
+            Object value = this.values[i];
+            if (value == null)
+            {
+                return null;
+            }
+            if (this.keys[i] == key)
+            {
+                this.values[i] = null;
+                this.size--;
+                this.shift(i);
+                return (V)value;
+            }
+            i = (i + 1) & this.mask;
+        }
+    }
+
+    private void resize()
+    {
+        int[] oldKeys = this.keys;
+        Object[] oldValues = this.values;
+        this.allocate(oldValues.length * 2);
+        for (int i = 0; i < oldValues.length; i++)
+        {
+            if (oldValues[i] != null)
+            {
+                int j = IntTable.hash(oldKeys[i]) & this.mask;
+                while (this.values[j] != null)
+                {
+                    j = (j + 1) & this.mask;
+                }
+                this.keys[j] = oldKeys[i];
+                this.values[j] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * Move entries back into a slot that has been emptied so the probe
+     * sequences remain unbroken.
+     */
+    private void shift(int empty)
+    {
+        int i = empty;
+        while (true)
+        {
+            i = (i + 1) & this.mask;
+            Object value = this.values[i];
+            if (value == null)
+            {
+                return;
+            }
+            int home = IntTable.hash(this.keys[i]) & this.mask;
+            // move the entry unless its home lies cyclically in (empty, i]
+            boolean move = (empty <= i) ?
+                    (home <= empty || home > i) :
+                    (home <= empty && home > i);
+            if (move)
+            {
+                this.keys[empty] = this.keys[i];
+                this.values[empty] = value;
+                this.values[i] = null;
+                empty = i;
+            }
+        }
+    }
+
+    /**
+     * Get the number of values in the table.
+     *
+     * @return  the number of values in the table.
+     */
+    public int size()
+    {
+        return this.size;
+    }
+}
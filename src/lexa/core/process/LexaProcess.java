@@ -10,10 +10,13 @@
 package lexa.core.process;
 
 import lexa.core.data.config.ConfigDataSet;
+import lexa.core.data.ArrayDataSet;
+import lexa.core.data.DataItem;
 import lexa.core.data.DataSet;
 import lexa.core.data.exception.DataException;
 import lexa.core.expression.ExpressionException;
 import lexa.core.expression.function.FunctionLibrary;
+import lexa.core.process.metrics.ProcessMetrics;
 
 /**
  * Interface for a process in a message server.
@@ -22,6 +25,17 @@ import lexa.core.expression.function.FunctionLibrary;
  * are more requests than processes, then the server can create extra processes
  * to handle the load.
  * <p>Each process supports a status that can be
+ * <p>Messages can be moved one at a time or in batches with
+ * {@link #handleRequests(DataSet) handleRequests},
+ * {@link #handleReplies(DataSet) handleReplies} and
+ * {@link #drainReplies() drainReplies}.  A batch has a block for each
+ * message:
+ * <pre>
+ * &lt;index&gt; {
+ *   &lt;message&gt;
+ * }
+ * [...]
+ * </pre>
  * @author William
  * @since 2013-04
  */
@@ -36,6 +50,28 @@ public interface LexaProcess {
     public void close()
             throws ProcessException;
 
+    /**
+     * Get all the replies that are ready to be returned to the callers.
+     * <p>The default calls {@link #getReply() getReply} while a reply is ready.
+     *
+     * @return  a batch of replies, indexed from 1; this is empty if there are
+     *          no replies ready.
+     *
+     * @throws  ProcessException
+     *          when an exception occurs during processing.
+     */
+    public default DataSet drainReplies()
+            throws ProcessException
+    {
+        DataSet replies = new ArrayDataSet();
+        int index = 0;
+        while (this.getStatus().replyReady())
+        {
+            replies.put(String.valueOf(++index), this.getReply());
+        }
+        return replies;
+    }
+
     /**
      * Get the unique ID assigned to the process.
      * @return  the unique ID assigned to the process
@@ -126,6 +162,26 @@ public interface LexaProcess {
     public void handleReply(DataSet reply)
             throws ProcessException;
 
+    /**
+     * Handle a batch of replies from forwarded messages.
+     * <p>The default calls {@link #handleReply(DataSet) handleReply} for
+     * each reply.
+     *
+     * @param   replies
+     *          a batch of replies from forwarded messages.
+     *
+     * @throws  ProcessException
+     *          when an exception occurs during processing.
+     */
+    public default void handleReplies(DataSet replies)
+            throws ProcessException
+    {
+        for (DataItem item : replies)
+        {
+            this.handleReply(item.getDataSet());
+        }
+    }
+
     /**
      * Handle a request made to the process.
      *
@@ -138,6 +194,49 @@ public interface LexaProcess {
     public void handleRequest(DataSet request)
             throws ProcessException;
 
+    /**
+     * Handle a batch of requests made to the process.
+     * <p>Requests are taken in order while the process accepts requests;
+     * any that are not accepted must be sent again later.
+     * The default calls {@link #handleRequest(DataSet) handleRequest} for
+     * each request.
+     * <p>If a request fails after others in the batch were accepted, the
+     * number accepted is returned and the failed request is left to be sent
+     * again; the exception is only thrown when the first request fails.
+     *
+     * @param   requests
+     *          a batch of requests made to the process.
+     * @return  the number of requests accepted from the start of the batch.
+     *
+     * @throws  ProcessException
+     *          when an exception occurs during processing.
+     */
+    public default int handleRequests(DataSet requests)
+            throws ProcessException
+    {
+        int accepted = 0;
+        try
+        {
+            for (DataItem item : requests)
+            {
+                if (!this.getStatus().acceptRequests())
+                {
+                    break;
+                }
+                this.handleRequest(item.getDataSet());
+                accepted++;
+            }
+        }
+        catch (ProcessException ex)
+        {
+            if (accepted == 0)
+            {
+                throw ex;
+            }
+        }
+        return accepted;
+    }
+
     /**
      * Initialise the process based on the configuration.
      *
@@ -167,6 +266,36 @@ public interface LexaProcess {
     public void process()
             throws ProcessException;
 
+    /**
+     * Recycle the process so it can be used for a new request.
+     * <p>All the state held for the current request is discarded and the
+     * status is returned to accepting requests; the configuration from
+     * {@link #initialise(FunctionLibrary, ConfigDataSet) initialise} is kept.
+     * The default throws an exception, as the process cannot be recycled.
+     *
+     * @throws  ProcessException
+     *          when the process cannot be recycled in its current state.
+     */
+    public default void recycle()
+            throws ProcessException
+    {
+        throw new ProcessException("Process cannot be recycled");
+    }
+
+    /**
+     * Set the metrics for the process to record into.
+     * <p>The time spent with each status is recorded by a listener on the
+     * {@link #getStatus() status}; a process can also record its requests,
+     * replies, errors and the time taken by each step.  The default records
+     * nothing.
+     *
+     * @param   metrics
+     *          the metrics shared by the processes from the same factory.
+     */
+    public default void setMetrics(ProcessMetrics metrics)
+    {
+    }
+
     /**
      * Set the unique ID for the process.
      * @param   id
@@ -15,6 +15,11 @@
  */
 package lexa.core.process;
 
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import lexa.core.data.config.ConfigDataSet;
 import lexa.core.data.DataItem;
 import lexa.core.data.DataSet;
@@ -25,19 +30,89 @@ import lexa.core.data.exception.DataException;
 import lexa.core.expression.function.FunctionLibrary;
 import lexa.core.process.context.Config;
 import lexa.core.process.context.Context;
+import lexa.core.process.context.Value;
+import lexa.core.process.metrics.ProcessMetrics;
+import lexa.core.process.metrics.ProcessMetrics.Callback;
+import lexa.core.process.spool.Spool;
 
 /**
  * Provide a pass through process.  Each request is forwarded on to another service
  * on the remote connection for the process.
+ * <p>Requests are held in a queue for each state, so each step only touches
+ * the requests it acts on; a request is dropped once its reply is returned.
+ * Forwarded requests are found by their source ref in an {@link IntTable} and
+ * the objects holding their state are reused.
+ * <p>The configuration is:
+ * <pre>
+ * allowAnonymous ? &lt;true|false&gt;
+ * serviceList {
+ *   &lt;message&gt; - &lt;service&gt;
+ * }
+ * coalesce ? &lt;true|false; default false&gt;
+ * coalesceFields - &lt;request fields; optional&gt;
+ * batchSize % &lt;requests; default 0 for no batching&gt;
+ * batchLinger % &lt;milliseconds; default 0&gt;
+ * spool { &lt;optional&gt;
+ *   file - &lt;base name of the spool files&gt;
+ *   segmentSize % &lt;bytes; default 16MB&gt;
+ *   replayLimit % &lt;requests; default 16&gt;
+ *   probeInterval % &lt;milliseconds; default 1000&gt;
+ * }
+ * </pre>
+ * <p>With {@code coalesce} set, a request that matches one already in flight
+ * is not forwarded; it waits for the same reply, which is returned to each
+ * request with its own source.  Requests match on the service, the message
+ * and the whole {@code request} block, or just the fields listed in
+ * {@code coalesceFields}.
+ * <p>With a {@code batchSize}, requests are held until that many are
+ * pending, the oldest has waited {@code batchLinger}, or there is nothing
+ * else to wait for.  The requests for each service are then sent as a
+ * single message:
+ * <pre>
+ * &lt;batchId&gt; {
+ *   service &lt;service&gt;
+ *   message batch
+ *   source {
+ *     sourceRef &lt;batchId&gt;
+ *   }
+ *   request {
+ *     &lt;messageId&gt; {
+ *       &lt;forwarded message&gt;
+ *     }
+ *     [...]
+ *   }
+ * }
+ * </pre>
+ * <p>The reply to a batch has a {@code reply} block with a block for each
+ * message id holding its {@code reply}, {@code return} and {@code close};
+ * any message missing from it is given the {@code return} and
+ * {@code close} of the batch reply.  A service with a single request
+ * pending is sent the request as normal.
+ * <p>The linger is only checked when the process is driven, by a new
+ * request or a reply; nothing wakes it when the time runs out.  As a batch
+ * is only held while a reply is outstanding, the held requests go out at
+ * the latest with the next reply, or the timeout given in its place, so a
+ * quiet process holds them for up to the forward timeout rather than the
+ * linger.
+ * <p>With a {@code spool}, a service that replies with a {@code state} of
+ * {@code timeout} or {@code unavailable} is suspended, and the requests
+ * waiting on it are put in a {@link Spool} on disk.  New requests for the
+ * service go to the spool too, so the heap does not grow while it is down.
+ * One request at a time is sent from the spool to probe the service, no
+ * more than once every {@code probeInterval}, when the process is next
+ * driven; once it replies, the requests are sent again in order, up to
+ * {@code replayLimit} at a time, and are removed from the spool as they are
+ * answered.  The spool is kept when the process stops, so the requests
+ * are sent by the next process to open it.
  * @author William
  * @since 2013-07
  */
 public class PassThrough
         implements LexaProcess {
 
-    private final static String STATE_REPLY_READY       = "REPLY_READY";
-    private final static String STATE_REQUEST_PENDING   = "REQUEST_PENDING";
-    private final static String STATE_WAITING_REPLY     = "WAITING_REPLY";
+    /** the most unused request slots kept for reuse */
+    private final static int MAX_FREE = 1024;
+
     private final Status status;
     /** Unique id assigned to the process */
     private int id;
@@ -45,18 +120,76 @@ public class PassThrough
     private int lastSid;
     private boolean allowAnonymous;
     private DataSet messageMap;
-    private DataSet requests;
+    /** requests waiting to be forwarded */
+    private final ArrayDeque<Forward> pending;
+    /** requests forwarded and waiting for a reply, by source ref */
+    private final IntTable<Forward> waiting;
+    /** requests with a reply ready to return */
+    private final ArrayDeque<Forward> ready;
+    /** slots kept for reuse */
+    private final ArrayDeque<Forward> free;
+    /** match identical requests in flight */
+    private boolean coalesce;
+    /** fields of the request to match on; {@code null} for all */
+    private String[] coalesceFields;
+    /** requests in flight that others can join, by key */
+    private final HashMap<String, Forward> inFlight;
+    /** most requests held before sending; 0 or less to send at once */
+    private int batchSize;
+    /** longest time to hold a request in milliseconds */
+    private long batchLinger;
+    /** time the oldest pending request arrived */
+    private long pendingSince;
+    /** batches sent and waiting for a reply, by batch id */
+    private final IntTable<Forward> batches;
+    /** metrics to record into; {@code null} when not recorded */
+    private ProcessMetrics metrics;
+    /** requests held for services that are down; {@code null} when not spooled */
+    private Spool spool;
+    /** most requests in flight from the spool for each service */
+    private int replayLimit;
+    /** least time between probes of a service that is down in milliseconds */
+    private long probeInterval;
+    /** services that are down, with the earliest time to probe them again */
+    private final HashMap<String, Long> suspended;
 
     public PassThrough() {
         this.status = new Status();
         this.lastSid = 0;
+        this.pending = new ArrayDeque();
+        this.waiting = new IntTable();
+        this.ready = new ArrayDeque();
+        this.free = new ArrayDeque();
+        this.inFlight = new HashMap();
+        this.batches = new IntTable();
+        this.suspended = new HashMap();
     }
 
     @Override
     public void close() throws ProcessException {
+        if (this.spool != null) {
+            this.spool.close();
+        }
         this.status.setClosed();
     }
 
+    @Override
+    public DataSet drainReplies() throws ProcessException {
+        DataSet replies = new ArrayDataSet();
+        if (!this.status.replyReady()) {
+            return replies;
+        }
+        long start = ProcessMetrics.start(this.metrics);
+        int index = 0;
+        Forward forward;
+        while ((forward = this.ready.poll()) != null) {
+            replies.put(String.valueOf(++index), this.buildReply(forward));
+        }
+        ProcessMetrics.stop(this.metrics, Callback.BUILD_REPLY, start);
+        this.status.update(Status.WAITING_PROCESS, Status.REPLY_READY);
+        return replies;
+    }
+
     @Override
     public int getId() {
         return this.id;
@@ -70,7 +203,6 @@ public class PassThrough
         this.allowAnonymous =
                 config.get(Config.ALLOW_ANONYMOUS, false).getBoolean();
         this.messageMap = new ArrayDataSet();
-        this.requests = new ArrayDataSet();
         ConfigDataSet serviceConfig =
             config
                 .get(Config.SERVICE_LIST,
@@ -83,8 +215,39 @@ public class PassThrough
             this.messageMap.put(item.getKey(),item.getString());
         }
         serviceConfig.close();
-        this.status.setActive();
-        this.status.setAcceptRequests(true);
+        this.coalesce = config.get(Config.COALESCE, false).getBoolean();
+        this.coalesceFields = config.contains(Config.COALESCE_FIELDS) ?
+                config.getString(Config.COALESCE_FIELDS).split(" ") :
+                null;
+        this.batchSize = config.get(Config.BATCH_SIZE, 0).getInteger();
+        this.batchLinger = config.get(Config.BATCH_LINGER, 0).getInteger();
+        int flags = Status.ACTIVE | Status.ACCEPT_REQUESTS;
+        if (config.contains(Config.SPOOL)) {
+            config.validateType(Config.SPOOL, DataType.DATA_SET);
+            this.openSpool(((ConfigDataItem)config.get(Config.SPOOL)).getDataSet());
+            if (!this.spool.getServices().isEmpty()) {
+                // requests left from before
+                flags |= Status.WAITING_PROCESS;
+            }
+        }
+        this.status.update(flags, 0);
+    }
+
+    /**
+     * Open the spool for requests to services that are down.
+     */
+    private void openSpool(ConfigDataSet config) throws DataException {
+        String file = config.getString(Config.FILE);
+        int segmentSize = config.get(Config.SEGMENT_SIZE,
+                Spool.DEFAULT_SEGMENT_SIZE).getInteger();
+        this.replayLimit = config.get(Config.REPLAY_LIMIT, 16).getInteger();
+        this.probeInterval = config.get(Config.PROBE_INTERVAL, 1000).getInteger();
+        config.close();
+        try {
+            this.spool = Spool.open(file, segmentSize);
+        } catch (IOException ex) {
+            throw new DataException("Unable to open spool " + file + ": " + ex.getMessage());
+        }
     }
 
     @Override
@@ -92,21 +255,23 @@ public class PassThrough
         if (!this.status.replyReady()) {
             throw new ProcessException("No reply ready");
         }
-        DataSet reply = null;
-        for (DataItem item : this.requests) {
-            DataSet request = item.getDataSet();
-            if (request.getBoolean(STATE_REPLY_READY)) {
-                // set the reply:
-                reply = new ArrayDataSet(request.getDataSet(Context.REQUEST))
-						.put(request.get(Context.REPLY))
-						.put(request.get(Context.RETURN))
-						.put(request.get(Context.CLOSE));
-                request.put(STATE_REPLY_READY,false);
-                break;
-            }
-        }
-        this.status.setReplyReady(false);
-        this.status.setWaitingProcess(true);
+        long start = ProcessMetrics.start(this.metrics);
+        DataSet reply = this.buildReply(this.ready.poll());
+        ProcessMetrics.stop(this.metrics, Callback.BUILD_REPLY, start);
+        this.status.update(Status.WAITING_PROCESS, Status.REPLY_READY);
+        return reply;
+    }
+
+    /**
+     * Build the reply for a request and release its slot.
+     */
+    private DataSet buildReply(Forward forward) {
+        DataSet reply = new ArrayDataSet(forward.request)
+                .put(forward.reply)
+                .put(forward.returned)
+                .put(forward.close);
+        this.release(forward);
+        ProcessMetrics.reply(this.metrics);
         return reply;
     }
 
@@ -115,59 +280,96 @@ public class PassThrough
         if (!this.status.requestPending()) {
             throw new ProcessException("No requests pending");
         }
-        DataSet messageList = new ArrayDataSet();
-        for (DataItem item : this.requests) {
-            DataSet request = item.getDataSet();
-            if (request.getBoolean(PassThrough.STATE_REQUEST_PENDING)) {
-//                DataSet data = new ArrayDataSet();
-//                data.put(request.get(Context.SERVICE));
-//                DataSet original = request.getDataSet(Context.REQUEST);
-//                data.put(original.get(Context.MESSAGE));
-//
-//                DataSet clientSource = new ArrayDataSet();
-//                clientSource.put(original.get(Context.SERVICE));
-//                clientSource.put(original.get(Context.MESSAGE));
-//                clientSource.put(original.get(Context.SOURCE_ID));
-//                clientSource.put(original.get(Context.SOURCE_REF));
-//                clientSource.put(original.get(Context.SOURCE));
-//                DataSet source = new ArrayDataSet();
-//                source.put(request.get(Context.SOURCE_REF));
-//                source.put(Context.SOURCE,clientSource);
-//                data.put(Context.SOURCE,source);
-//                data.put(original.get(Context.REQUEST));
-
-				DataSet original = request.getDataSet(Context.REQUEST);
-				DataSet data = new ArrayDataSet()
-					.put(request.get(Context.SERVICE))
-					.put(original.get(Context.MESSAGE))
-					.put(Context.SOURCE, new ArrayDataSet()
-						.put(request.get(Context.SOURCE_REF))
-						.put(Context.SOURCE,new ArrayDataSet()
-							.put(original.get(Context.SERVICE))
-							.put(original.get(Context.MESSAGE))
-							.put(original.get(Context.SOURCE_ID))
-							.put(original.get(Context.SOURCE_REF))
-							.put(original.get(Context.SOURCE))))
-					.put(original.get(Context.REQUEST));
-
-
-                messageList.put(item.getKey(),data);
-                request
-						.put(PassThrough.STATE_REQUEST_PENDING,false)
-						.put(PassThrough.STATE_WAITING_REPLY,true);
-            }
-        }
-        if (messageList.isEmpty()) {
+        if (this.pending.isEmpty()) {
+            this.status.update(Status.WAITING_PROCESS, Status.REQUEST_PENDING);
             return null;
         }
+        long start = ProcessMetrics.start(this.metrics);
+        DataSet messageList = this.batchSize > 0 ?
+                this.buildBatches() :
+                this.buildMessages();
+        ProcessMetrics.stop(this.metrics, Callback.BUILD_REQUESTS, start);
         DataSet messages = new ArrayDataSet()
 				.put(Context.SOURCE_REF, this.getId())
 				.put(Context.MESSAGE_LIST,messageList);
-        this.status.setRequestPending(false);
-        this.status.setWaitingProcess(true);
+        this.status.update(Status.WAITING_PROCESS, Status.REQUEST_PENDING);
         return messages;
     }
 
+    /**
+     * Build the message list with the pending requests grouped by service.
+     */
+    private DataSet buildBatches() {
+        LinkedHashMap<String, Forward> services = new LinkedHashMap();
+        Forward forward;
+        while ((forward = this.pending.poll()) != null) {
+            // keep the requests for each service in order
+            Forward last = services.get(forward.service);
+            forward.batchNext = null;
+            if (last == null) {
+                forward.batchLast = forward;
+                services.put(forward.service, forward);
+            } else {
+                last.batchLast.batchNext = forward;
+                last.batchLast = forward;
+            }
+        }
+        DataSet messageList = new ArrayDataSet();
+        for (Forward head : services.values()) {
+            if (head.batchNext == null) {
+                messageList.put(String.valueOf(head.sid), this.buildMessage(head));
+                this.waiting.put(head.sid, head);
+                continue;
+            }
+            int batchId = ++this.lastSid;
+            DataSet batch = new ArrayDataSet();
+            for (Forward member = head; member != null; member = member.batchNext) {
+                batch.put(String.valueOf(member.sid), this.buildMessage(member));
+                this.waiting.put(member.sid, member);
+            }
+            messageList.put(String.valueOf(batchId), new ArrayDataSet()
+                    .put(Context.SERVICE, head.service)
+                    .put(Context.MESSAGE, Value.BATCH)
+                    .put(Context.SOURCE, new ArrayDataSet()
+                        .put(Context.SOURCE_REF, batchId))
+                    .put(Context.REQUEST, batch));
+            this.batches.put(batchId, head);
+        }
+        return messageList;
+    }
+
+    /**
+     * Build the message to forward for a request.
+     */
+    private DataSet buildMessage(Forward forward) {
+        DataSet original = forward.request;
+        return new ArrayDataSet()
+            .put(Context.SERVICE, forward.service)
+            .put(original.get(Context.MESSAGE))
+            .put(Context.SOURCE, new ArrayDataSet()
+                .put(Context.SOURCE_REF, forward.sid)
+                .put(Context.SOURCE,new ArrayDataSet()
+                    .put(original.get(Context.SERVICE))
+                    .put(original.get(Context.MESSAGE))
+                    .put(original.get(Context.SOURCE_ID))
+                    .put(original.get(Context.SOURCE_REF))
+                    .put(original.get(Context.SOURCE))))
+            .put(original.get(Context.REQUEST));
+    }
+
+    /**
+     * Build the message list with a message for each pending request.
+     */
+    private DataSet buildMessages() {
+        DataSet messageList = new ArrayDataSet();
+        Forward forward;
+        while ((forward = this.pending.poll()) != null) {
+            messageList.put(String.valueOf(forward.sid), this.buildMessage(forward));
+            this.waiting.put(forward.sid, forward);
+        }
+        return messageList;
+    }
+
     @Override
     public Status getStatus() {
         return this.status;
@@ -179,43 +381,236 @@ public class PassThrough
             throw new ProcessException("No pending process");
         }
         // after each step, the status flags are reset and we come back here.
-        // now check all requests for pending work;
-        for (DataItem item : this.requests) {
-            DataSet request = item.getDataSet();
-            if (request.getBoolean(PassThrough.STATE_REPLY_READY)) {
-                this.status.setReplyReady(true);
-            }
-            if (request.getBoolean(PassThrough.STATE_REQUEST_PENDING)) {
-                this.status.setRequestPending(true);
-            }
-            if (request.getBoolean(PassThrough.STATE_WAITING_REPLY)) {
-                this.status.setWaitingReply(true);
+        // now check the queues for pending work;
+        int flags = 0;
+        if (!this.ready.isEmpty()) {
+            flags |= Status.REPLY_READY;
+        }
+        if (this.spool != null) {
+            this.replay();
+        }
+        if (!this.pending.isEmpty() && this.flush()) {
+            flags |= Status.REQUEST_PENDING;
+        }
+        if (!this.waiting.isEmpty()) {
+            flags |= Status.WAITING_REPLY;
+        }
+        this.status.update(flags, Status.WAITING_PROCESS);
+    }
+
+    /**
+     * Queue the requests to send from the spool and commit it.
+     * <p>A service that is down has a single request in flight to probe it,
+     * once its {@code probeInterval} has passed, so a service that answers
+     * at once that it is unavailable is not probed in a tight loop;
+     * otherwise up to {@code replayLimit} are sent at a time.  A request that
+     * cannot be read back is dropped.
+     */
+    private void replay() {
+        long now = System.currentTimeMillis();
+        for (String service : new ArrayList<>(this.spool.getServices())) {
+            Long probe = this.suspended.get(service);
+            int limit = probe == null ? this.replayLimit :
+                    now >= probe ? 1 : 0;
+            int sent = this.spool.getOutstanding(service) - this.spool.getPending(service);
+            long position;
+            while (sent < limit && (position = this.spool.next(service)) >= 0) {
+                DataSet request;
+                try {
+                    request = this.spool.read(position);
+                } catch (DataException ex) {
+                    ProcessMetrics.error(this.metrics);
+                    this.spool.acknowledge(service, position);
+                    continue;
+                }
+                Forward forward = this.slot(request, service);
+                forward.spooled = position;
+                if (this.pending.isEmpty()) {
+                    this.pendingSince = System.currentTimeMillis();
+                }
+                this.pending.add(forward);
+                sent++;
             }
         }
-        this.status.setWaitingProcess(false);
+        this.spool.commit();
+    }
+
+    /**
+     * Indicates if the pending requests should be sent now.
+     * <p>Without batching they are always sent; otherwise when the batch is
+     * full, the oldest has waited long enough, or there is no reply to wait
+     * for, as the process would not be driven again.  The wait is only
+     * measured here, so it applies while traffic is flowing.
+     */
+    private boolean flush() {
+        return this.batchSize <= 0 ||
+                this.pending.size() >= this.batchSize ||
+                this.waiting.isEmpty() ||
+                System.currentTimeMillis() - this.pendingSince >= this.batchLinger;
     }
 
     @Override
     public void handleRequest(DataSet request) throws ProcessException {
+        this.addRequest(request);
+        this.status.setWaitingProcess(true);
+    }
+
+    /**
+     * Handle a batch of requests made to the process.
+     * <p>If a request fails after others in the batch were accepted, the
+     * number accepted is returned and the failed request is left to be sent
+     * again, where it fails on its own; the exception is only thrown when
+     * the first request fails.
+     */
+    @Override
+    public int handleRequests(DataSet requests) throws ProcessException {
+        int accepted = 0;
+        try {
+            for (DataItem item : requests) {
+                this.addRequest(item.getDataSet());
+                accepted++;
+            }
+        } catch (ProcessException ex) {
+            if (accepted == 0) {
+                throw ex;
+            }
+        } finally {
+            if (accepted > 0) {
+                this.status.setWaitingProcess(true);
+            }
+        }
+        return accepted;
+    }
+
+    /**
+     * Add a request to the queue to be forwarded.
+     */
+    private void addRequest(DataSet request) throws ProcessException {
+        ProcessMetrics.request(this.metrics);
         String from = request.getString(Context.MESSAGE);
         String to = this.messageMap.getString(from);
         if (to == null) {
             //if (!this.allowAnonymous) {
-                throw new ProcessException("Unknown service", request);
+                ProcessMetrics.error(this.metrics);
+                throw new RejectedException("Unknown service", request);
             //}
             //to = from;
             //this.messageMap.put(from,to);
         }
-        int sid = ++this.lastSid;
-        DataSet data = new ArrayDataSet()
-				.put(Context.REQUEST, request)
-				.put(Context.SOURCE_REF, sid)
-				.put(Context.SERVICE,to)
-				.put(PassThrough.STATE_REQUEST_PENDING,true)
-				.put(PassThrough.STATE_WAITING_REPLY,false)
-				.put(PassThrough.STATE_REPLY_READY,false);
-        this.requests.put(String.valueOf(sid),data);
-        this.status.setWaitingProcess(true);
+        if (this.spool != null &&
+                (this.suspended.containsKey(to) || this.spool.getOutstanding(to) > 0)) {
+            // keep behind the requests already spooled
+            this.hold(to, request);
+            return;
+        }
+        Forward forward = this.slot(request, to);
+        if (this.coalesce) {
+            String key = this.buildKey(to, from, request.getDataSet(Context.REQUEST));
+            Forward leader = this.inFlight.get(key);
+            if (leader != null) {
+                // wait on the reply to the request already in flight
+                forward.follower = leader.follower;
+                leader.follower = forward;
+                return;
+            }
+            forward.key = key;
+            this.inFlight.put(key, forward);
+        }
+        if (this.pending.isEmpty()) {
+            this.pendingSince = System.currentTimeMillis();
+        }
+        this.pending.add(forward);
+    }
+
+    /**
+     * Get a slot for a request, reusing a free one if there is one.
+     */
+    private Forward slot(DataSet request, String service) {
+        Forward forward = this.free.poll();
+        if (forward == null) {
+            forward = new Forward();
+        }
+        forward.sid = ++this.lastSid;
+        forward.request = request;
+        forward.service = service;
+        forward.spooled = -1;
+        return forward;
+    }
+
+    /**
+     * Add a request to the spool.
+     */
+    private void hold(String service, DataSet request) throws ProcessException {
+        try {
+            this.spool.append(service, request);
+        } catch (IOException | DataException ex) {
+            ProcessMetrics.error(this.metrics);
+            throw new ProcessException("Unable to spool request", request, ex);
+        }
+    }
+
+    /**
+     * Put a request whose service is down back in the spool, along with
+     * any requests waiting on the same reply, and release their slots.
+     */
+    private void hold(Forward forward) throws ProcessException {
+        this.suspended.put(forward.service,
+                System.currentTimeMillis() + this.probeInterval);
+        if (forward.key != null) {
+            this.inFlight.remove(forward.key);
+        }
+        Forward next;
+        for (Forward held = forward; held != null; held = next) {
+            next = held.follower;
+            if (held.spooled >= 0) {
+                this.spool.retry(held.service, held.spooled);
+            } else {
+                this.hold(held.service, held.request);
+            }
+            this.release(held);
+        }
+    }
+
+    /**
+     * Indicates if a reply shows the service could not be reached.
+     */
+    private static boolean unavailable(DataSet reply) {
+        String state = reply.getString(Context.STATE);
+        return Value.TIMEOUT.equals(state) || Value.UNAVAILABLE.equals(state);
+    }
+
+    /**
+     * Build the key to match identical requests.
+     */
+    private String buildKey(String service, String message, DataSet request) {
+        StringBuilder key = new StringBuilder()
+                .append(service).append('\u001f')
+                .append(message).append('\u001f');
+        if (request == null) {
+            return key.toString();
+        }
+        if (this.coalesceFields == null) {
+            PassThrough.appendKey(key, request);
+        } else {
+            for (String field : this.coalesceFields) {
+                key.append(request.getObject(field)).append('\u001f');
+            }
+        }
+        return key.toString();
+    }
+
+    private static void appendKey(StringBuilder key, DataSet data) {
+        for (DataItem item : data) {
+            key.append(item.getKey()).append('=');
+            if (item.getType() == DataType.DATA_SET) {
+                key.append('{');
+                PassThrough.appendKey(key, item.getDataSet());
+                key.append('}');
+            } else {
+                key.append(item.getObject());
+            }
+            key.append('\u001f');
+        }
     }
 
     @Override
@@ -223,17 +618,185 @@ public class PassThrough
         if (!this.status.waitingReply()) {
             throw new ProcessException("No replies waiting");
         }
+        long start = ProcessMetrics.start(this.metrics);
+        this.addReply(reply);
+        ProcessMetrics.stop(this.metrics, Callback.ON_REPLY, start);
+        this.status.update(Status.WAITING_PROCESS, Status.WAITING_REPLY);
+    }
 
-        DataSet request = this.requests.getDataSet(String.valueOf(
-				reply.getDataSet(Context.SOURCE).getInteger(Context.SOURCE_REF)))
-			.put(reply.get(Context.REPLY))
-			.put(reply.get(Context.RETURN))
-			.put(reply.get(Context.CLOSE))
-			.put(PassThrough.STATE_WAITING_REPLY,false) // maybe not?
-			.put(PassThrough.STATE_REPLY_READY,true);
+    @Override
+    public void handleReplies(DataSet replies) throws ProcessException {
+        if (!this.status.waitingReply()) {
+            throw new ProcessException("No replies waiting");
+        }
+        long start = ProcessMetrics.start(this.metrics);
+        try {
+            for (DataItem item : replies) {
+                this.addReply(item.getDataSet());
+            }
+        } finally {
+            // the replies matched before a failure are still returned
+            ProcessMetrics.stop(this.metrics, Callback.ON_REPLY, start);
+            this.status.update(Status.WAITING_PROCESS, Status.WAITING_REPLY);
+        }
+    }
 
-        this.status.setWaitingReply(false);
-        this.status.setWaitingProcess(true);
+    /**
+     * Match a reply to its request and queue it to be returned.
+     */
+    private void addReply(DataSet reply) throws ProcessException {
+        DataSet source = reply.getDataSet(Context.SOURCE);
+        Integer sid = source == null ? null : source.getInteger(Context.SOURCE_REF);
+        if (sid == null) {
+            ProcessMetrics.error(this.metrics);
+            throw new ProcessException("No request for reply", reply);
+        }
+        boolean unavailable = this.spool != null && PassThrough.unavailable(reply);
+        Forward head = this.batches.remove(sid);
+        if (head != null) {
+            if (unavailable) {
+                this.holdBatch(head);
+            } else {
+                this.splitBatch(head, reply);
+            }
+            return;
+        }
+        Forward forward = this.waiting.remove(sid);
+        if (forward == null) {
+            ProcessMetrics.error(this.metrics);
+            throw new ProcessException("No request for reply", reply);
+        }
+        if (unavailable) {
+            this.hold(forward);
+            return;
+        }
+        this.setReply(forward, reply.get(Context.REPLY),
+                reply.get(Context.RETURN), reply.get(Context.CLOSE));
+    }
+
+    /**
+     * Split the reply to a batch into the replies for its requests.
+     */
+    private void splitBatch(Forward head, DataSet reply) {
+        DataSet replies = reply.getDataSet(Context.REPLY);
+        Forward member = head;
+        while (member != null) {
+            // the slot may be reused once it has its reply
+            Forward next = member.batchNext;
+            if (this.waiting.remove(member.sid) != null) {
+                DataSet single = replies == null ?
+                        null :
+                        replies.getDataSet(String.valueOf(member.sid));
+                if (single != null) {
+                    this.setReply(member, single.get(Context.REPLY),
+                            single.get(Context.RETURN), single.get(Context.CLOSE));
+                } else {
+                    this.setReply(member, null,
+                            reply.get(Context.RETURN), reply.get(Context.CLOSE));
+                }
+            }
+            member = next;
+        }
+    }
+
+    /**
+     * Put the requests in a batch whose service is down back in the spool.
+     */
+    private void holdBatch(Forward head) throws ProcessException {
+        Forward member = head;
+        while (member != null) {
+            Forward next = member.batchNext;
+            if (this.waiting.remove(member.sid) != null) {
+                this.hold(member);
+            }
+            member = next;
+        }
+    }
+
+    /**
+     * Set the reply for a request and queue it to be returned.
+     */
+    private void setReply(Forward forward,
+            DataItem reply, DataItem returned, DataItem close) {
+        if (this.spool != null) {
+            // the service is back
+            this.suspended.remove(forward.service);
+            if (forward.spooled >= 0) {
+                this.spool.acknowledge(forward.service, forward.spooled);
+                forward.spooled = -1;
+            }
+        }
+        forward.batchNext = null;
+        forward.batchLast = null;
+        forward.reply = reply;
+        forward.returned = returned;
+        forward.close = close;
+        this.ready.add(forward);
+        if (forward.key != null) {
+            this.inFlight.remove(forward.key);
+            // fan the reply out to the requests that joined this one
+            for (Forward follower = forward.follower;
+                    follower != null;
+                    follower = follower.follower) {
+                follower.reply = forward.reply;
+                follower.returned = forward.returned;
+                follower.close = forward.close;
+                this.ready.add(follower);
+            }
+        }
+    }
+
+    @Override
+    public void recycle() throws ProcessException {
+        if (!this.status.active()) {
+            throw new ProcessException("Process cannot be recycled in current state.");
+        }
+        if (this.spool != null) {
+            // send the spooled requests again once recycled
+            for (Forward forward : this.pending) {
+                this.retry(forward);
+            }
+            this.waiting.forEach(this::retry);
+            this.spool.commit();
+        }
+        this.pending.clear();
+        this.waiting.clear();
+        this.ready.clear();
+        this.inFlight.clear();
+        this.batches.clear();
+        this.status.reset();
+        if (this.spool != null && !this.spool.getServices().isEmpty()) {
+            this.status.setWaitingProcess(true);
+        }
+    }
+
+    /**
+     * Put a request from the spool back to be sent again.
+     */
+    private void retry(Forward forward) {
+        if (forward.spooled >= 0) {
+            this.spool.retry(forward.service, forward.spooled);
+            forward.spooled = -1;
+        }
+    }
+
+    /**
+     * Clear a slot once its reply has been returned and keep it for reuse.
+     */
+    private void release(Forward forward) {
+        forward.request = null;
+        forward.service = null;
+        forward.reply = null;
+        forward.returned = null;
+        forward.close = null;
+        forward.key = null;
+        forward.spooled = -1;
+        forward.follower = null;
+        forward.batchNext = null;
+        forward.batchLast = null;
+        if (this.free.size() < PassThrough.MAX_FREE) {
+            this.free.push(forward);
+        }
     }
 
     @Override
@@ -241,9 +804,40 @@ public class PassThrough
         this.id = id;
     }
 
+    @Override
+    public void setMetrics(ProcessMetrics metrics) {
+        this.metrics = metrics;
+    }
+
 	@Override
 	public DataSet getMessageData()
 	{
 		throw new UnsupportedOperationException("lexa.core.server.process.PassThrough.getMessageData:lexa.core.data.DataSet not supported yet."); //To change body of generated methods, choose Tools | Templates.
 	}
+
+    /**
+     * The slot for a request passed through the process.
+     */
+    private static class Forward {
+        /** the source ref for the forwarded request */
+        private int sid;
+        /** the original request */
+        private DataSet request;
+        /** the service to forward to */
+        private String service;
+        /** the reply fields once received */
+        private DataItem reply;
+        private DataItem returned;
+        private DataItem close;
+        /** position in the spool; -1 when not sent from the spool */
+        private long spooled = -1;
+        /** key for matching identical requests; only set on the leader */
+        private String key;
+        /** the next request waiting on the same reply */
+        private Forward follower;
+        /** the next request in the same batch */
+        private Forward batchNext;
+        /** the last request in the batch; only set on the first */
+        private Forward batchLast;
+    }
 }
@@ -0,0 +1,93 @@
+/*==============================================================================
+ * Lexa - Property of William Norman-Walker
+ *------------------------------------------------------------------------------
+ * PipelinedEcho.java (lxProcess)
+ *------------------------------------------------------------------------------
+ * Author:  William Norman-Walker
+ * Created: October 2026
+ *==============================================================================
+ */
+package lexa.core.process;
+
+import lexa.core.data.config.ConfigDataSet;
+import lexa.core.data.DataSet;
+import lexa.core.data.ArrayDataSet;
+import lexa.core.data.exception.DataException;
+import lexa.core.expression.ExpressionException;
+import lexa.core.expression.function.FunctionLibrary;
+import lexa.core.process.context.Context;
+
+/**
+ * Test process using a simple echo for many requests at once.
+ *
+ * <p>Configured as:
+ * <pre>
+ * &lt;process&gt; {
+ *   class PipelinedEcho
+ *   config {
+ *     maxRequests % &lt;conversations; default 64&gt;
+ *   }
+ * }
+ * </pre>
+ *
+ * <p>As with {@link Echo}, the returned reply will be a copy of the request;
+ * each request is held in its own {@link PipelinedProcess.Conversation
+ * conversation}.
+ *
+ * @author William
+ * @since 2026-10
+ */
+public class PipelinedEcho
+        extends PipelinedProcess {
+
+    @Override
+    public DataSet buildReply(Conversation conversation) throws ProcessException {
+        return new ArrayDataSet(conversation.getRequest())
+                .put(Context.REPLY, (DataSet)conversation.getData());
+    }
+
+    @Override
+    public DataSet buildRequests(Conversation conversation) throws ProcessException {
+        return null;
+    }
+
+    @Override
+    public boolean hasForwardRequests(Conversation conversation) throws ProcessException {
+        return false; // never has any
+    }
+
+    @Override
+    public boolean hasFurtherWork(Conversation conversation) throws ProcessException {
+        return (conversation.getData() == null);
+    }
+
+    @Override
+    public void onClose() throws ProcessException {
+        // no special processing
+    }
+
+    @Override
+    public void onInitialise(FunctionLibrary funtionLibrary, ConfigDataSet config)
+            throws ProcessException,
+                    DataException,
+                    ExpressionException {
+        // no special processing
+    }
+
+    @Override
+    public void onNewRequest(Conversation conversation) throws ProcessException {
+        // the reply is built by onProcess
+    }
+
+    @Override
+    public boolean onReply(Conversation conversation, DataSet reply) throws ProcessException {
+        return true;
+    }
+
+    @Override
+    public void onProcess(Conversation conversation) throws ProcessException {
+        conversation.setData(new ArrayDataSet(
+                conversation.getRequest().getDataSet(Context.REQUEST)
+        ));
+    }
+}
@@ -0,0 +1,718 @@
+/*==============================================================================
+ * Lexa - Property of William Norman-Walker
+ *------------------------------------------------------------------------------
+ * PipelinedProcess.java
+ *------------------------------------------------------------------------------
+ * Author:  William Norman-Walker
+ * Created: October 2026
+ *==============================================================================
+ */
+package lexa.core.process;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import lexa.core.data.ArrayDataSet;
+import lexa.core.data.DataItem;
+import lexa.core.data.DataSet;
+import lexa.core.data.SealedDataSet;
+import lexa.core.data.config.ConfigDataSet;
+import lexa.core.data.exception.DataException;
+import lexa.core.expression.ExpressionException;
+import lexa.core.expression.function.FunctionLibrary;
+import lexa.core.process.logging.ProcessLogger;
+import lexa.core.process.context.Config;
+import lexa.core.process.context.Context;
+import lexa.core.process.context.Value;
+
+/**
+ * A request process that handles many requests at once.
+ * <p>Where a {@link RequestProcess} stops accepting requests until it has
+ * replied, this keeps a {@link Conversation} for each request it is
+ * handling, each with its own status.  New requests are accepted while
+ * others are waiting on replies, and replies are returned in the order the
+ * requests complete rather than the order they arrived.
+ * <p>The {@link Status} of the process is made up from all the
+ * conversations; for example it has a reply ready when any conversation
+ * has.  Requests stop being accepted once {@code maxRequests} conversations
+ * are in progress:
+ * <pre>
+ * maxRequests &lt;conversations; default 64&gt;
+ * </pre>
+ * <p>Requests forwarded by every conversation are sent together by
+ * {@link #getRequests() getRequests}, each with a message id unique to the
+ * process, and the replies are matched back to their conversation.
+ * <p>An exception raised for one conversation does not stop the others; it
+ * is logged and the conversation is ended with a reply carrying the
+ * {@code return} message and {@code close ? true}, as for a timeout.
+ * <p>A caller handling many requests at once, such as the
+ * {@link lexa.core.process.engine.ProcessEngine ProcessEngine}, uses
+ * {@link #getLastId() getLastId} and {@link #getReadyId() getReadyId} to
+ * match each reply to its request.
+ *
+ * @author William
+ * @since 2026-10
+ */
+public abstract class PipelinedProcess
+        implements LexaProcess {
+
+    /**
+     * The state of a single request handled by the process.
+     * <p>The {@link #getState() state} is one of
+     * {@link Status.Type#WAITING_PROCESS WAITING_PROCESS},
+     * {@link Status.Type#REQUEST_PENDING REQUEST_PENDING},
+     * {@link Status.Type#WAITING_REPLY WAITING_REPLY} or
+     * {@link Status.Type#REPLY_READY REPLY_READY}.
+     */
+    public static final class Conversation {
+        /** correlation id assigned by the process */
+        private final int id;
+        /** the request received */
+        private final DataSet request;
+        private Status.Type state;
+        /** ids of the messages forwarded and waiting for a reply */
+        private int[] messageIds;
+        private int messageCount;
+        /** a reply that ended the request early, such as a timeout */
+        private DataSet failed;
+        /** state held by the implementation */
+        private Object data;
+
+        private Conversation(int id, DataSet request) {
+            this.id = id;
+            this.request = request;
+            this.messageIds = new int[4];
+        }
+
+        /**
+         * Get the state held by the implementation for the request.
+         *
+         * @return  the state held for the request.
+         */
+        public Object getData() {
+            return this.data;
+        }
+
+        /**
+         * Get the correlation id for the request.
+         *
+         * @return  the correlation id for the request.
+         */
+        public int getId() {
+            return this.id;
+        }
+
+        /**
+         * Get the request being handled.
+         *
+         * @return  the request being handled.
+         */
+        public DataSet getRequest() {
+            return this.request;
+        }
+
+        /**
+         * Get the state of the request.
+         *
+         * @return  the state of the request.
+         */
+        public Status.Type getState() {
+            return this.state;
+        }
+
+        /**
+         * Set the state held by the implementation for the request.
+         *
+         * @param   data
+         *          the state held for the request.
+         */
+        public void setData(Object data) {
+            this.data = data;
+        }
+
+        private void addMessage(int messageId) {
+            if (this.messageCount == this.messageIds.length) {
+                this.messageIds = Arrays.copyOf(this.messageIds, this.messageCount * 2);
+            }
+            this.messageIds[this.messageCount++] = messageId;
+        }
+    }
+
+    /** logger for information */
+    protected ProcessLogger logger;
+    private final Status status;
+    /** Unique id assigned to the process */
+    private int id;
+    /** most conversations in progress */
+    private int maxRequests;
+    private int lastConversationId;
+    private int lastMessageId;
+    /** conversations in progress */
+    private int active;
+    /** conversations waiting to process */
+    private final ArrayDeque<Conversation> toProcess;
+    /** conversations with requests to forward */
+    private final ArrayDeque<Conversation> toForward;
+    /** conversations with a reply ready */
+    private final ArrayDeque<Conversation> ready;
+    /** conversations waiting on replies, by message id */
+    private final IntTable<Conversation> waiting;
+    /** the conversation being called back; {@code null} between calls */
+    private Conversation current;
+
+    /**
+     * creates a new process
+     */
+    public PipelinedProcess() {
+        this.logger = new ProcessLogger(this.getClass().getSimpleName(), null);
+        this.status = new Status();
+        this.toProcess = new ArrayDeque();
+        this.toForward = new ArrayDeque();
+        this.ready = new ArrayDeque();
+        this.waiting = new IntTable();
+    }
+
+    /**
+     * Build the reply for a request.
+     *
+     * @param   conversation
+     *          the conversation for the request.
+     * @return  The data for the reply.
+     * @throws  ProcessException
+     *          when an exception occurs building the reply.
+     */
+    public abstract DataSet buildReply(Conversation conversation)
+            throws ProcessException;
+
+    /**
+     * Build the requests to forward for a request.
+     * <p>The format is:
+     * <pre>
+     * &lt;key&gt; {
+     *   service &lt;service&gt;
+     *   message &lt;message&gt;
+     *   request {
+     *     &lt;request data&gt;
+     *   }
+     * }
+     * [...]
+     * </pre>
+     * <p>The keys are replaced with message ids assigned by the process.
+     *
+     * @param   conversation
+     *          the conversation for the request.
+     * @return  the requests to forward; may be {@code null} if there are none.
+     * @throws  ProcessException
+     *          when an exception occurs building the requests.
+     */
+    public abstract DataSet buildRequests(Conversation conversation)
+            throws ProcessException;
+
+    @Override
+    public void close() throws ProcessException {
+        this.onClose();
+        this.status.setClosed();
+    }
+
+    /**
+     * Remove a conversation once its reply has been returned.
+     */
+    private void complete(Conversation conversation) {
+        this.forget(conversation);
+        this.active--;
+    }
+
+    @Override
+    public DataSet drainReplies() throws ProcessException {
+        DataSet replies = new ArrayDataSet();
+        int index = 0;
+        Conversation conversation;
+        while ((conversation = this.ready.poll()) != null) {
+            replies.put(String.valueOf(++index), this.reply(conversation));
+        }
+        this.refresh();
+        return replies;
+    }
+
+    /**
+     * Get the number of requests in progress.
+     *
+     * @return  the number of requests in progress.
+     */
+    public int getActive() {
+        return this.active;
+    }
+
+    /**
+     * Stop waiting on the messages forwarded for a conversation.
+     */
+    private void forget(Conversation conversation) {
+        for (int m = 0; m < conversation.messageCount; m++) {
+            this.waiting.remove(conversation.messageIds[m]);
+        }
+        conversation.messageCount = 0;
+    }
+
+    @Override
+    public int getId() {
+        return this.id;
+    }
+
+    /**
+     * Get the id of the conversation for the last request accepted.
+     *
+     * @return  the id of the conversation started by the last successful
+     *          call to {@link #handleRequest(DataSet) handleRequest}, as
+     *          given by {@link #getReadyId() getReadyId} when its reply is
+     *          ready; 0 if no request has been accepted.
+     */
+    public int getLastId() {
+        return this.lastConversationId;
+    }
+
+    /**
+     * Get the maximum number of requests in progress.
+     *
+     * @return  the most conversations in progress at once.
+     */
+    public int getMaxRequests() {
+        return this.maxRequests;
+    }
+
+    /**
+     * Get the request for the conversation being called back.
+     * <p>Outside a call back there is no single message, so this returns
+     * {@code null}; use {@link Conversation#getRequest()} instead.
+     *
+     * @return  a sealed view of the request being handled, or {@code null}.
+     */
+    @Override
+    public DataSet getMessageData() {
+        return this.current == null ?
+                null :
+                new SealedDataSet(this.current.request);
+    }
+
+    /**
+     * Get the id of the conversation for the next reply.
+     *
+     * @return  the id of the conversation whose reply is returned by the next
+     *          call to {@link #getReply() getReply}, or 0 if none are ready.
+     */
+    public int getReadyId() {
+        Conversation conversation = this.ready.peek();
+        return conversation == null ? 0 : conversation.id;
+    }
+
+    @Override
+    public DataSet getReply() throws ProcessException {
+        Conversation conversation = this.ready.poll();
+        if (conversation == null) {
+            throw new ProcessException("Process has no replies ready.");
+        }
+        DataSet reply = this.reply(conversation);
+        this.refresh();
+        return reply;
+    }
+
+    /**
+     * Get the requests forwarded by all the conversations.
+     * <p>See {@link LexaProcess#getRequests()} for the format.
+     *
+     * @return  the requests to forward or {@code null} if there are none.
+     * @throws  ProcessException
+     *          when an exception occurs building the requests.
+     */
+    @Override
+    public DataSet getRequests() throws ProcessException {
+        if (!this.status.requestPending()) {
+            throw new ProcessException("Process has no pending requests.");
+        }
+        DataSet messageList = new ArrayDataSet();
+        Conversation conversation;
+        while ((conversation = this.toForward.poll()) != null) {
+            DataSet requests;
+            try {
+                this.current = conversation;
+                requests = this.buildRequests(conversation);
+            } catch (ProcessException | RuntimeException ex) {
+                this.fail(conversation, ex);
+                continue;
+            }
+            if (requests == null || requests.isEmpty()) {
+                // nothing to send, so carry on
+                this.moveTo(conversation, Status.Type.WAITING_PROCESS);
+                continue;
+            }
+            DataSet original = conversation.request;
+            for (DataItem item : requests) {
+                int messageId = ++this.lastMessageId;
+                DataSet request = item.getDataSet();
+                messageList.put(String.valueOf(messageId), new ArrayDataSet()
+                        .put(request.get(Context.SERVICE))
+                        .put(request.get(Context.MESSAGE))
+                        .put(Context.SOURCE, new ArrayDataSet()
+                            .put(Context.SOURCE_REF, messageId)
+                            .put(Context.SOURCE, new ArrayDataSet()
+                                .put(original.get(Context.SERVICE))
+                                .put(original.get(Context.MESSAGE))
+                                .put(original.get(Context.SOURCE_ID))
+                                .put(original.get(Context.SOURCE_REF))
+                                .put(original.get(Context.SOURCE))))
+                        .put(request.get(Context.REQUEST)));
+                conversation.addMessage(messageId);
+                this.waiting.put(messageId, conversation);
+            }
+            conversation.state = Status.Type.WAITING_REPLY;
+        }
+        this.refresh();
+        if (messageList.isEmpty()) {
+            return null;
+        }
+        return new ArrayDataSet()
+                .put(Context.SOURCE_REF, this.getId())
+                .put(Context.MESSAGE_LIST, messageList);
+    }
+
+    @Override
+    public Status getStatus() {
+        return this.status;
+    }
+
+    @Override
+    public void handleReplies(DataSet replies) throws ProcessException {
+        if (!this.status.waitingReply()) {
+            throw new ProcessException("Process has no replies waiting.");
+        }
+        try {
+            for (DataItem item : replies) {
+                this.reply(item.getDataSet());
+            }
+        } finally {
+            // the replies passed before a failure are still acted on
+            this.refresh();
+        }
+    }
+
+    @Override
+    public void handleReply(DataSet reply) throws ProcessException {
+        if (!this.status.waitingReply()) {
+            throw new ProcessException("Process has no replies waiting.");
+        }
+        this.reply(reply);
+        this.refresh();
+    }
+
+    /**
+     * Handle a request made to the process and start a conversation for it.
+     * <p>The request is only counted as in progress once it has been
+     * accepted; if an exception is thrown there is no conversation.
+     *
+     * @param   request
+     *          a request made to the process.
+     * @throws  ProcessException
+     *          when the process cannot accept requests or the request
+     *          cannot be handled.
+     */
+    @Override
+    public void handleRequest(DataSet request) throws ProcessException {
+        if (!this.status.acceptRequests()) {
+            throw new ProcessException("Process cannot accept requests.");
+        }
+        Conversation conversation =
+                new Conversation(this.lastConversationId + 1, request);
+        try {
+            this.current = conversation;
+            this.onNewRequest(conversation);
+            Status.Type state = this.nextState(conversation);
+            this.lastConversationId = conversation.id;
+            this.active++;
+            this.moveTo(conversation, state);
+        } finally {
+            this.refresh();
+        }
+    }
+
+    /**
+     * Indicates if a request needs requests forwarding.
+     * <p>This is called after {@link #onNewRequest(Conversation) onNewRequest}
+     * and {@link #onProcess(Conversation) onProcess}.
+     *
+     * @param   conversation
+     *          the conversation for the request.
+     * @return  {@code true} if requests are needed,
+     *          otherwise {@code false}.
+     * @throws  ProcessException
+     *          when an exception occurs determining if there are more requests.
+     */
+    public abstract boolean hasForwardRequests(Conversation conversation)
+            throws ProcessException;
+
+    /**
+     * Indicates if a request needs processing before it can reply.
+     *
+     * @param   conversation
+     *          the conversation for the request.
+     * @return  {@code true} if the request has further work,
+     *          otherwise {@code false}.
+     * @throws  ProcessException
+     *          when an exception occurs checking for further work.
+     */
+    public abstract boolean hasFurtherWork(Conversation conversation)
+            throws ProcessException;
+
+    @Override
+    public void initialise(FunctionLibrary functionLibrary, ConfigDataSet config)
+            throws ProcessException,
+                    DataException,
+                    ExpressionException {
+        if (!this.status.getCurrent().equals(Status.Type.UNKNOWN)) {
+            throw new ProcessException("Process cannot be initialised in current state.");
+        }
+        this.maxRequests = config.get(Config.MAX_REQUESTS,
+                Value.DEFAULT_MAX_REQUESTS).getInteger();
+        if (this.maxRequests < 1) {
+            throw new DataException("Invalid maxRequests " + this.maxRequests);
+        }
+        this.onInitialise(functionLibrary, config);
+        this.status.update(Status.ACTIVE | Status.ACCEPT_REQUESTS, 0);
+    }
+
+    /**
+     * Put a conversation in the queue for its new state.
+     */
+    private void moveTo(Conversation conversation, Status.Type state) {
+        conversation.state = state;
+        switch (state) {
+            case WAITING_PROCESS : {
+                this.toProcess.add(conversation);
+                break;
+            }
+            case REQUEST_PENDING : {
+                this.toForward.add(conversation);
+                break;
+            }
+            case REPLY_READY : {
+                this.ready.add(conversation);
+                break;
+            }
+            default : {
+                // waiting on replies; found through the message ids
+            }
+        }
+    }
+
+    /**
+     * Get the next state for a conversation after a new request.
+     */
+    private Status.Type nextState(Conversation conversation)
+            throws ProcessException {
+        if (this.hasForwardRequests(conversation)) {
+            return Status.Type.REQUEST_PENDING;
+        }
+        if (this.hasFurtherWork(conversation)) {
+            return Status.Type.WAITING_PROCESS;
+        }
+        return Status.Type.REPLY_READY;
+    }
+
+    /**
+     * Called when the process is being closed.
+     *
+     * @throws  ProcessException
+     *          when an exception occurs closing the process.
+     */
+    public abstract void onClose() throws ProcessException;
+
+    /**
+     * Called when the process is being initialised.
+     *
+     * @param   functionLibrary
+     *          a function library to use with the process
+     * @param   config
+     *          the configuration data for the process.
+     * @throws  ProcessException
+     *          when an exception occurs initialising the process.
+     * @throws  DataException
+     *          when an exception occurs in the configuration.
+     * @throws  ExpressionException
+     *          when an exception occurs in an expression.
+     */
+    public abstract void onInitialise(FunctionLibrary functionLibrary, ConfigDataSet config)
+            throws ProcessException,
+                    DataException,
+                    ExpressionException;
+
+    /**
+     * Called when the process receives a new request.
+     *
+     * @param   conversation
+     *          the conversation for the request.
+     * @throws  ProcessException
+     *          when an exception occurs handling the request.
+     */
+    public abstract void onNewRequest(Conversation conversation)
+            throws ProcessException;
+
+    /**
+     * Called when a request needs to perform some work.
+     *
+     * @param   conversation
+     *          the conversation for the request.
+     * @throws  ProcessException
+     *          when an exception occurs performing the processing.
+     */
+    public abstract void onProcess(Conversation conversation)
+            throws ProcessException;
+
+    /**
+     * Called when a request receives a reply to a forwarded request.
+     *
+     * @param   conversation
+     *          the conversation for the request.
+     * @param   reply
+     *          the data for the reply.
+     * @return  {@code true} if no more replies are expected,
+     *          otherwise {@code false}
+     * @throws  ProcessException
+     *          when an exception occurs handling the reply.
+     */
+    public abstract boolean onReply(Conversation conversation, DataSet reply)
+            throws ProcessException;
+
+    /**
+     * End a conversation that raised an exception with a reply giving the
+     * reason.
+     */
+    private void fail(Conversation conversation, Exception cause) {
+        ProcessException ex = cause instanceof ProcessException ?
+                (ProcessException)cause :
+                new ProcessException(cause.getMessage(), conversation.request, cause);
+        ex.log(this.logger);
+        conversation.failed = new ArrayDataSet()
+                .put(Context.RETURN, ex.getMessage())
+                .put(Context.CLOSE, true);
+        this.forget(conversation);
+        this.moveTo(conversation, Status.Type.REPLY_READY);
+    }
+
+    /**
+     * Process all the conversations that are waiting.
+     *
+     * @throws  ProcessException
+     *          when an exception occurs during processing.
+     */
+    @Override
+    public void process() throws ProcessException {
+        if (!this.status.waitingProcess()) {
+            throw new ProcessException("Process is not waiting to process.");
+        }
+        Conversation conversation;
+        while ((conversation = this.toProcess.poll()) != null) {
+            try {
+                this.current = conversation;
+                this.onProcess(conversation);
+                this.moveTo(conversation,
+                        this.hasForwardRequests(conversation) ?
+                                Status.Type.REQUEST_PENDING :
+                                Status.Type.REPLY_READY);
+            } catch (ProcessException | RuntimeException ex) {
+                this.fail(conversation, ex);
+            }
+        }
+        this.refresh();
+    }
+
+    @Override
+    public void recycle() throws ProcessException {
+        if (!this.status.active()) {
+            throw new ProcessException("Process cannot be recycled in current state.");
+        }
+        this.toProcess.clear();
+        this.toForward.clear();
+        this.ready.clear();
+        this.waiting.clear();
+        this.active = 0;
+        this.current = null;
+        this.status.reset();
+    }
+
+    /**
+     * Set the status flags from the conversations.
+     */
+    private void refresh() {
+        this.current = null;
+        int flags = 0;
+        if (this.active < this.maxRequests) {
+            flags |= Status.ACCEPT_REQUESTS;
+        }
+        if (!this.ready.isEmpty()) {
+            flags |= Status.REPLY_READY;
+        }
+        if (!this.toForward.isEmpty()) {
+            flags |= Status.REQUEST_PENDING;
+        }
+        if (!this.toProcess.isEmpty()) {
+            flags |= Status.WAITING_PROCESS;
+        }
+        if (!this.waiting.isEmpty()) {
+            flags |= Status.WAITING_REPLY;
+        }
+        this.status.update(flags,
+                ~flags & (Status.ACCEPT_REQUESTS | Status.REPLY_READY |
+                        Status.REQUEST_PENDING | Status.WAITING_PROCESS |
+                        Status.WAITING_REPLY));
+    }
+
+    /**
+     * Build the reply for a conversation and end it.
+     */
+    private DataSet reply(Conversation conversation) throws ProcessException {
+        this.complete(conversation);
+        if (conversation.failed != null) {
+            return new ArrayDataSet(conversation.request)
+                    .put(conversation.failed.get(Context.RETURN))
+                    .put(conversation.failed.get(Context.CLOSE));
+        }
+        this.current = conversation;
+        return this.buildReply(conversation);
+    }
+
+    /**
+     * Pass a reply to its conversation.
+     */
+    private void reply(DataSet reply) throws ProcessException {
+        DataSet source = reply.getDataSet(Context.SOURCE);
+        Integer messageId = source == null ? null : source.getInteger(Context.SOURCE_REF);
+        if (messageId == null) {
+            throw new ProcessException("No request for reply", reply);
+        }
+        Conversation conversation = this.waiting.remove(messageId);
+        if (conversation == null) {
+            throw new ProcessException("No request for reply", reply);
+        }
+        if (Value.TIMEOUT.equals(reply.getString(Context.STATE))) {
+            // give up on the request and return the timeout to the caller
+            conversation.failed = reply;
+            this.forget(conversation);
+            this.moveTo(conversation, Status.Type.REPLY_READY);
+            return;
+        }
+        boolean complete;
+        try {
+            this.current = conversation;
+            complete = this.onReply(conversation, reply);
+        } catch (ProcessException | RuntimeException ex) {
+            this.fail(conversation, ex);
+            return;
+        }
+        if (complete) {
+            this.forget(conversation);
+            this.moveTo(conversation, Status.Type.WAITING_PROCESS);
+        }
+    }
+
+    @Override
+    public void setId(int id) {
+        this.id = id;
+    }
+}
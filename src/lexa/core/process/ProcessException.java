@@ -11,26 +11,48 @@
  * Date:        By: Ref:        Description:
  * ----------   --- ----------  --------------------------------------------------
  * 2016-08-30	WNW	2016-08		Replace clone of DataSet with copy constructors
+ * 2026-10-17	WNW	2026-10		Seal the context on first use and log on demand
  *================================================================================
  */
 package lexa.core.process;
 
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import lexa.core.data.DataSet;
 import lexa.core.data.SealedDataSet;
-import lexa.core.logging.Logger;
+import lexa.core.process.logging.ProcessLogger;
 
 /**
  * An exception that occurred processing a message.
+ * <p>The exception is not logged when it is created; whoever handles it
+ * should call {@link #log(ProcessLogger) log}, which limits the rate of logging so
+ * a flood of failures does not flood the log as well.
+ * <p>The context is sealed the first time it is read, so it must not be
+ * changed after the exception is thrown.
+ *
  * @author  William
  * @since   2013-04
  */
 public class ProcessException
         extends Exception {
 
+    /** most exceptions logged each second */
+    private static final int LOG_LIMIT = 100;
+    /** the second that exceptions are being counted for */
+    private static final AtomicLong logSecond = new AtomicLong();
+    /** exceptions logged in the current second */
+    private static final AtomicInteger logged = new AtomicInteger();
+    /** exceptions not logged since the last one that was */
+    private static final AtomicInteger suppressed = new AtomicInteger();
+
     /**
-     * The message context for the exception.
+     * The message context for the exception, as given.
      */
     private final DataSet context;
+    /**
+     * The sealed copy of the context, made on first use.
+     */
+    private volatile DataSet sealed;
 
     /**
      * Constructs a new exception with the specified detail message.
@@ -100,10 +122,28 @@ public class ProcessException
      *          or unknown.)
      */
     public ProcessException(String message, DataSet context, Throwable cause) {
-        super(message, cause);
-            this.context = context == null ? null :
-                    new SealedDataSet(context);
-        new Logger("ProcessException", null).error(message, context, cause);
+        this(message, context, cause, true);
+    }
+
+    /**
+     * Constructs a new exception with the specified detail message, context and cause,
+     * and with the stack trace enabled or disabled.
+     * <p>An exception without a stack trace is much cheaper to create, and is
+     * meant for routine failures where the stack is of no interest.
+     *
+     * @param   message
+     *          the detail message.
+     * @param   context
+     *          the context, or {@code null} if nonexistent or unknown.
+     * @param   cause
+     *          the cause, or {@code null} if nonexistent or unknown.
+     * @param   writableStackTrace
+     *          whether or not the stack trace should be writable.
+     */
+    protected ProcessException(String message, DataSet context, Throwable cause,
+            boolean writableStackTrace) {
+        super(message, cause, true, writableStackTrace);
+        this.context = context;
     }
 
     /**
@@ -112,6 +152,45 @@ public class ProcessException
      * @return  the context of this exception or {@code null} if the context is nonexistent or unknown.
      */
     public DataSet getContext() {
-        return this.context;
+        if (this.context == null) {
+            return null;
+        }
+        DataSet copy = this.sealed;
+        if (copy == null) {
+            // a race only seals the context twice
+            copy = new SealedDataSet(this.context);
+            this.sealed = copy;
+        }
+        return copy;
+    }
+
+    /**
+     * Log the exception at error level.
+     * <p>At most {@value #LOG_LIMIT} exceptions are logged each second across
+     * the whole JVM; the rest are counted and the count is included with the
+     * next exception that is logged.
+     *
+     * @param   logger
+     *          the logger to write to.
+     * @return  {@code true} if the exception was logged, otherwise
+     *          {@code false}.
+     */
+    public boolean log(ProcessLogger logger) {
+        long second = System.currentTimeMillis() / 1000;
+        long current = ProcessException.logSecond.get();
+        if (second != current &&
+                ProcessException.logSecond.compareAndSet(current, second)) {
+            ProcessException.logged.set(0);
+        }
+        if (ProcessException.logged.incrementAndGet() > ProcessException.LOG_LIMIT) {
+            ProcessException.suppressed.incrementAndGet();
+            return false;
+        }
+        int skipped = ProcessException.suppressed.getAndSet(0);
+        String message = skipped == 0 ?
+                this.getMessage() :
+                this.getMessage() + " (" + skipped + " earlier exceptions not logged)";
+        logger.error(message, this.context, this.getCause());
+        return true;
     }
 }
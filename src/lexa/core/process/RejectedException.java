@@ -0,0 +1,36 @@
+/*==============================================================================
+ * Lexa - Property of William Norman-Walker
+ *------------------------------------------------------------------------------
+ * RejectedException.java
+ *------------------------------------------------------------------------------
+ * Author:  William Norman-Walker
+ * Created: October 2026
+ *==============================================================================
+ */
+package lexa.core.process;
+
+import lexa.core.data.DataSet;
+
+/**
+ * A request rejected as invalid, such as one with a missing field.
+ * <p>Rejections are routine, so the exception has no stack trace and is cheap
+ * to create; its context is only copied if it is read.
+ *
+ * @author  William
+ * @since   2026-10
+ */
+public class RejectedException
+        extends ProcessException {
+
+    /**
+     * Constructs a new rejection with the specified detail message and context.
+     *
+     * @param   message
+     *          the reason the request was rejected.
+     * @param   context
+     *          the request that was rejected, or {@code null} if unknown.
+     */
+    public RejectedException(String message, DataSet context) {
+        super(message, context, null, false);
+    }
+}
@@ -0,0 +1,184 @@
+/*==============================================================================
+ * Lexa - Property of William Norman-Walker
+ *------------------------------------------------------------------------------
+ * ReplyCache.java
+ *------------------------------------------------------------------------------
+ * Author:  William Norman-Walker
+ * Created: October 2026
+ *==============================================================================
+ */
+package lexa.core.process;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import lexa.core.data.ArrayDataSet;
+import lexa.core.data.DataSet;
+
+/**
+ * A bounded cache of replies for a {@link ConfigProcess}.
+ * <p>Replies are held against a key built from the request and are evicted
+ * when the least recently used once the cache is full, or when they are older
+ * than the time to live.
+ * <p>The cache is shared by all the instances created from the same
+ * {@link ConfigTemplate} and is thread safe.  The replies held are sealed so
+ * they can be returned to every caller without copying.
+ *
+ * @author William
+ * @since 2026-10
+ */
+public final class ReplyCache
+{
+    /** Statistic "{@code hits}"; the number of replies found in the cache */
+    public static final String HITS = "hits";
+    /** Statistic "{@code misses}"; the number of replies not in the cache */
+    public static final String MISSES = "misses";
+    /** Statistic "{@code size}"; the number of replies in the cache */
+    public static final String SIZE = "size";
+
+    /**
+     * A reply held in the cache.
+     */
+    private static class Entry
+    {
+        private final DataSet reply;
+        /** time the reply was added */
+        private final long created;
+
+        private Entry(DataSet reply, long created)
+        {
+            this.reply = reply;
+            this.created = created;
+        }
+    }
+
+    /** the replies in access order */
+    private final LinkedHashMap<String, Entry> entries;
+    /** maximum number of replies held */
+    private final int maxSize;
+    /** time to live in milliseconds; 0 or less to never expire */
+    private final long timeToLive;
+    private long hits;
+    private long misses;
+
+    /**
+     * Create a reply cache.
+     *
+     * @param   maxSize
+     *          the maximum number of replies held.
+     * @param   timeToLive
+     *          the time in milliseconds a reply is held for;
+     *          0 or less to hold replies until they are evicted.
+     */
+    public ReplyCache(int maxSize, long timeToLive)
+    {
+        if (maxSize < 1)
+        {
+            throw new IllegalArgumentException("Invalid cache size " + maxSize);
+        }
+        this.maxSize = maxSize;
+        this.timeToLive = timeToLive;
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest)
+            {
+                return this.size() > ReplyCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * Remove all the replies.
+     */
+    public synchronized void clear()
+    {
+        this.entries.clear();
+    }
+
+    /**
+     * Get a reply from the cache.
+     *
+     * @param   key
+     *          the key for the request.
+     * @return  the sealed reply or {@code null} if there is none.
+     */
+    public synchronized DataSet get(String key)
+    {
+        Entry entry = this.entries.get(key);
+        if (entry != null && this.timeToLive > 0 &&
+                System.currentTimeMillis() - entry.created > this.timeToLive)
+        {
+            this.entries.remove(key);
+            entry = null;
+        }
+        if (entry == null)
+        {
+            this.misses++;
+            return null;
+        }
+        this.hits++;
+        return entry.reply;
+    }
+
+    /**
+     * Get the number of replies found in the cache.
+     *
+     * @return  the number of hits.
+     */
+    public synchronized long getHits()
+    {
+        return this.hits;
+    }
+
+    /**
+     * Get the number of replies not found in the cache.
+     *
+     * @return  the number of misses.
+     */
+    public synchronized long getMisses()
+    {
+        return this.misses;
+    }
+
+    /**
+     * Get the statistics for the cache.
+     * <p>The statistics are:
+     * <pre>
+     * hits &lt;replies found&gt;
+     * misses &lt;replies not found&gt;
+     * size &lt;replies held&gt;
+     * </pre>
+     *
+     * @return  the statistics for the cache.
+     */
+    public synchronized DataSet getStatistics()
+    {
+        return new ArrayDataSet()
+                .put(ReplyCache.HITS, this.hits)
+                .put(ReplyCache.MISSES, this.misses)
+                .put(ReplyCache.SIZE, this.entries.size());
+    }
+
+    /**
+     * Add a reply to the cache.
+     *
+     * @param   key
+     *          the key for the request.
+     * @param   reply
+     *          the reply, which must be sealed.
+     */
+    public synchronized void put(String key, DataSet reply)
+    {
+        this.entries.put(key, new Entry(reply, System.currentTimeMillis()));
+    }
+
+    /**
+     * Get the number of replies in the cache.
+     *
+     * @return  the number of replies in the cache.
+     */
+    public synchronized int size()
+    {
+        return this.entries.size();
+    }
+}
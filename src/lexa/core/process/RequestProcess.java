@@ -10,13 +10,17 @@
 package lexa.core.process;
 
 import lexa.core.data.config.ConfigDataSet;
+import lexa.core.data.DataItem;
 import lexa.core.data.DataSet;
 import lexa.core.data.ArrayDataSet;
 import lexa.core.data.exception.DataException;
 import lexa.core.expression.ExpressionException;
 import lexa.core.expression.function.FunctionLibrary;
-import lexa.core.logging.*;
+import lexa.core.process.logging.ProcessLogger;
 import lexa.core.process.context.Context;
+import lexa.core.process.context.Value;
+import lexa.core.process.metrics.ProcessMetrics;
+import lexa.core.process.metrics.ProcessMetrics.Callback;
 
 /**
  * A request process implements a basic process that receives requests and processes them.
@@ -30,7 +34,7 @@ public abstract class RequestProcess
         implements LexaProcess {
 
     /** logger for information */
-    protected Logger logger;
+    protected ProcessLogger logger;
     /** the current status */
     private final Status status;
     /** Unique id assigned to the process */
@@ -44,11 +48,15 @@ public abstract class RequestProcess
 	private DataSet forwardReplies;
 	/** reply data */
 	private DataSet reply;
+	/** a reply that ended the request early, such as a timeout */
+	private DataSet failed;
+	/** metrics to record into; {@code null} when not recorded */
+	private ProcessMetrics metrics;
     /**
      * creates a new process
      */
     public RequestProcess() {
-        this.logger = new Logger(this.getClass().getSimpleName(), null);
+        this.logger = new ProcessLogger(this.getClass().getSimpleName(), null);
         this.status = new Status();
     }
 
@@ -79,7 +87,7 @@ public abstract class RequestProcess
     @Override
     public void close() throws ProcessException {
         this.onClose();
-        this.status.closed();
+        this.status.setClosed();
     }
 
     @Override
@@ -92,11 +100,31 @@ public abstract class RequestProcess
         if (!this.status.replyReady()) {
             throw new ProcessException("Process has no replies ready.");
         }
-        DataSet messageReply = this.buildReply();
+        if (this.failed != null) {
+            DataSet failedReply = new ArrayDataSet(this.request)
+                    .put(this.failed.get(Context.RETURN))
+                    .put(this.failed.get(Context.CLOSE));
+            this.failed = null;
+            this.status.update(0, Status.REPLY_READY);
+            ProcessMetrics.reply(this.metrics);
+            return failedReply;
+        }
+        long start = ProcessMetrics.start(this.metrics);
+        DataSet messageReply;
+        try {
+            messageReply = this.buildReply();
+        } catch (ProcessException | RuntimeException ex) {
+            ProcessMetrics.error(this.metrics);
+            throw ex;
+        } finally {
+            ProcessMetrics.stop(this.metrics, Callback.BUILD_REPLY, start);
+        }
 
-        // update the status then switch off reply ready.
-        this.updateStatus();
-        this.status.setReplyReady(false);
+        // update the status and switch off reply ready as one change.
+        int next = this.nextStatus();
+        this.status.update(next == Status.REPLY_READY ? 0 : next,
+                Status.REPLY_READY);
+        ProcessMetrics.reply(this.metrics);
         return messageReply;
     }
 
@@ -142,14 +170,22 @@ public abstract class RequestProcess
         if (!this.status.requestPending()) {
             throw new ProcessException("Process has no pending requests.");
         }
-        this.forwardRequests = this.buildRequests(this.request);
-        this.status.setRequestPending(false);
+        long start = ProcessMetrics.start(this.metrics);
+        try {
+            this.forwardRequests = this.buildRequests(this.request);
+        } catch (ProcessException | RuntimeException ex) {
+            ProcessMetrics.error(this.metrics);
+            throw ex;
+        } finally {
+            ProcessMetrics.stop(this.metrics, Callback.BUILD_REQUESTS, start);
+        }
         if (this.forwardRequests == null) {
 			// nothing we can carry on
-			this.status.setWaitingProcess(true);
+			this.status.update(Status.WAITING_PROCESS, Status.REQUEST_PENDING);
 			return null;
 		}
-		this.status.setReplyReady(false);
+		this.status.update(Status.WAITING_REPLY,
+				Status.REQUEST_PENDING | Status.REPLY_READY);
 		return this.forwardRequests;
     }
 
@@ -163,13 +199,62 @@ public abstract class RequestProcess
         if (!this.status.waitingReply()) {
             throw new ProcessException("Process cannot accept requests.");
         }
-        if (this.onReply(reply)) {
-            this.status.setWaitingReply(false);
+        if (Value.TIMEOUT.equals(reply.getString(Context.STATE))) {
+            // give up on the request and return the timeout to the caller
+            this.failed = reply;
+            this.status.update(Status.REPLY_READY,
+                    Status.WAITING_REPLY | Status.WAITING_PROCESS |
+                            Status.REQUEST_PENDING);
+            return;
         }
-        this.status.setWaitingProcess(true);
+        this.status.update(Status.WAITING_PROCESS,
+                this.reply(reply) ? Status.WAITING_REPLY : 0);
 
     }
 
+    /**
+     * Handle a batch of replies from forwarded messages.
+     * <p>Each reply is passed to {@link #onReply(DataSet) onReply} and the
+     * status is only updated once for the batch.  If a reply fails, the
+     * status is still updated for the replies passed before it, so they are
+     * not stranded.
+     *
+     * @param   replies
+     *          a batch of replies from forwarded messages.
+     *
+     * @throws  ProcessException
+     *          when an exception occurs during processing.
+     */
+    @Override
+    public void handleReplies(DataSet replies) throws ProcessException {
+        if (!this.status.waitingReply()) {
+            throw new ProcessException("Process cannot accept requests.");
+        }
+        boolean complete = false;
+        int handled = 0;
+        try {
+            for (DataItem item : replies) {
+                DataSet reply = item.getDataSet();
+                if (complete) {
+                    throw new ProcessException("No request for reply", reply);
+                }
+                if (Value.TIMEOUT.equals(reply.getString(Context.STATE))) {
+                    // the rest of the batch is for the failed request
+                    handled = 0;
+                    this.handleReply(reply);
+                    return;
+                }
+                complete = this.reply(reply);
+                handled++;
+            }
+        } finally {
+            if (handled > 0) {
+                this.status.update(Status.WAITING_PROCESS,
+                        complete ? Status.WAITING_REPLY : 0);
+            }
+        }
+    }
+
 	/**
 	 * Handle a request made to the process.
 	 *
@@ -185,9 +270,18 @@ public abstract class RequestProcess
         if (!this.status.acceptRequests()) {
             throw new ProcessException("Process cannot accept requests.");
         }
-        this.status.setAcceptRequests(false);
-        this.onNewRequest(request);
-        this.updateStatus();
+        this.request = request;
+        ProcessMetrics.request(this.metrics);
+        long start = ProcessMetrics.start(this.metrics);
+        try {
+            this.onNewRequest(request);
+        } catch (ProcessException | RuntimeException ex) {
+            ProcessMetrics.error(this.metrics);
+            throw ex;
+        } finally {
+            ProcessMetrics.stop(this.metrics, Callback.ON_NEW_REQUEST, start);
+        }
+        this.status.update(this.nextStatus(), Status.ACCEPT_REQUESTS);
     }
 
     /**
@@ -221,8 +315,26 @@ public abstract class RequestProcess
             throw new ProcessException("Process cannot be initialised in current state.");
         }
         this.onInitialise(functionLibrary, config);
-        this.status.setActive();
-        this.status.setAcceptRequests(true);
+        this.activate();
+    }
+
+    /**
+     * Activate the process so it can accept requests.
+     * <p>This is called by {@link #initialise(FunctionLibrary, ConfigDataSet)
+     * initialise} once the process is configured; a process that is configured
+     * by another route, such as a {@link TemplateProcess}, should call this
+     * when it is ready.
+     *
+     * @throws  ProcessException
+     *          when the process has already been initialised.
+     */
+    protected void activate()
+            throws ProcessException
+    {
+        if (!this.status.getCurrent().equals(Status.Type.UNKNOWN)) {
+            throw new ProcessException("Process cannot be initialised in current state.");
+        }
+        this.status.update(Status.ACTIVE | Status.ACCEPT_REQUESTS, 0);
     }
 
     /**
@@ -289,6 +401,20 @@ public abstract class RequestProcess
      */
     public abstract void onProcess()throws ProcessException;
 
+    /**
+     * Called when the process is being recycled.
+     * <p>Use this method in preference to overriding {@link #recycle() recycle};
+     * any state held for the current request should be cleared.
+     * <p>The default does nothing, so a process that holds no state of its
+     * own need not override it.
+     *
+     * @throws  ProcessException
+     *          when an exception occurs recycling the process.
+     */
+    public void onRecycle() throws ProcessException {
+        // no state held by the base class
+    }
+
     @Override
     public void process()
 			throws ProcessException
@@ -296,34 +422,73 @@ public abstract class RequestProcess
         if (!this.status.waitingProcess()) {
             throw new ProcessException("Process is not waiting to process.");
         }
-        this.onProcess();
-        this.status.setWaitingProcess(false);
-        if (this.hasForwardRequests()) {
-            this.status.setRequestPending(true);
-        } else {
-            this.status.setReplyReady(true);
+        long start = ProcessMetrics.start(this.metrics);
+        try {
+            this.onProcess();
+        } catch (ProcessException | RuntimeException ex) {
+            ProcessMetrics.error(this.metrics);
+            throw ex;
+        } finally {
+            ProcessMetrics.stop(this.metrics, Callback.ON_PROCESS, start);
+        }
+        this.status.update(
+                this.hasForwardRequests() ?
+                        Status.REQUEST_PENDING :
+                        Status.REPLY_READY,
+                Status.WAITING_PROCESS);
+    }
+
+    @Override
+    public void recycle()
+            throws ProcessException
+    {
+        if (!this.status.active()) {
+            throw new ProcessException("Process cannot be recycled in current state.");
         }
+        this.request = null;
+        this.forwardRequests = null;
+        this.forwardReplies = null;
+        this.reply = null;
+        this.failed = null;
+        this.onRecycle();
+        this.status.reset();
     }
 
     /**
-     * Update the status while processing a message.
+     * Get the status flag for the next step while processing a message.
      *
+     * @return  the flag to set for the next step.
      * @throws  ProcessException
      *          when an exception occurs performing the processing.
      */
-    private void updateStatus()
+    private int nextStatus()
             throws ProcessException
     {
         if (this.hasForwardRequests()) {
-            this.status.setRequestPending(true);
+            return Status.REQUEST_PENDING;
         }
         else if (this.hasFurtherWork())
         {
-            this.status.setWaitingProcess(true);
+            return Status.WAITING_PROCESS;
         }
         else
         {
-            this.status.setReplyReady(true);
+            return Status.REPLY_READY;
+        }
+    }
+
+    /**
+     * Pass a reply to {@link #onReply(DataSet) onReply} and time it.
+     */
+    private boolean reply(DataSet reply) throws ProcessException {
+        long start = ProcessMetrics.start(this.metrics);
+        try {
+            return this.onReply(reply);
+        } catch (ProcessException | RuntimeException ex) {
+            ProcessMetrics.error(this.metrics);
+            throw ex;
+        } finally {
+            ProcessMetrics.stop(this.metrics, Callback.ON_REPLY, start);
         }
     }
 
@@ -332,6 +497,11 @@ public abstract class RequestProcess
         this.id = id;
     }
 
+    @Override
+    public void setMetrics(ProcessMetrics metrics) {
+        this.metrics = metrics;
+    }
+
 	@Override
 	public DataSet getMessageData()
 	{
@@ -9,6 +9,9 @@
  */
 package lexa.core.process;
 
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * Manage the status of a process.
  * <p>The process can flag its ability to accept tasks or that it is waiting for
@@ -35,49 +38,136 @@ package lexa.core.process;
  * <dt>{@link Status#waitingReply()} waitingReply</dt>
  *   <dd>The process is waiting for data to be returned from the process's linked broker.</dd>
  * </dl>
+ * <p>The flags are held in a single word that is updated atomically, so the
+ * status can be read from any thread and always gives a consistent view.
+ * <p>A {@link StatusListener} can be added to be told each time the
+ * {@link #getCurrent() current} status changes.
  *
  * @author William
  * @since 2013-06
  */
 public class Status {
     /** process is active */
-    private boolean active;
+    static final int ACTIVE             = 0x01;
     /** process has been closed */
-    private boolean closed;
+    static final int CLOSED             = 0x02;
     /** process can receive new requests */
-    private boolean acceptRequests;
+    static final int ACCEPT_REQUESTS    = 0x04;
     /** reply is ready to be sent back to the caller */
-    private boolean replyReady;
+    static final int REPLY_READY        = 0x08;
     /** request is waiting to be sent */
-    private boolean requestPending;
+    static final int REQUEST_PENDING    = 0x10;
     /** process is waiting to perform some processing */
-    private boolean waitingProcess;
+    static final int WAITING_PROCESS    = 0x20;
     /** process is waiting for data */
-    private boolean waitingReply;
+    static final int WAITING_REPLY      = 0x40;
+    /** flags that can only be set while active */
+    private static final int WORK_FLAGS         =
+            ACCEPT_REQUESTS | REPLY_READY | REQUEST_PENDING |
+            WAITING_PROCESS | WAITING_REPLY;
+    /** number of possible combinations of the flags */
+    private static final int STATES             = 0x80;
+
+    /** no listeners */
+    private static final StatusListener[] NO_LISTENERS = new StatusListener[0];
+
+    /** the packed flags */
+    private final AtomicInteger state;
+    /** listeners for changes; replaced, never changed, when updated */
+    private volatile StatusListener[] listeners;
 
     /**
      * Create a new status engine.
      * <p>On creation all flags are set to {@code false}.
      */
     Status () {
-        this.active = false;
-        this.closed = false;
-        this._checkStates();
+        this.state = new AtomicInteger();
+        this.listeners = Status.NO_LISTENERS;
+    }
+
+    /**
+     * Add a listener for changes to the current status.
+     *
+     * @param   listener
+     *          the listener to add.
+     */
+    public synchronized void addListener(StatusListener listener) {
+        StatusListener[] current = this.listeners;
+        StatusListener[] added = Arrays.copyOf(current, current.length + 1);
+        added[current.length] = listener;
+        this.listeners = added;
     }
 
     /**
-     * Implementation for {@link Status#checkStates() checkStates}.
-     * This is private so it can be called by the constructor.
+     * Remove a listener for changes to the current status.
+     *
+     * @param   listener
+     *          the listener to remove.
      */
-    private void _checkStates() {
-        if (this.closed) {
-            this.active = false;
+    public synchronized void removeListener(StatusListener listener) {
+        StatusListener[] current = this.listeners;
+        for (int l = 0; l < current.length; l++) {
+            if (current[l] == listener) {
+                StatusListener[] removed = new StatusListener[current.length - 1];
+                System.arraycopy(current, 0, removed, 0, l);
+                System.arraycopy(current, l + 1, removed, l, removed.length - l);
+                this.listeners = removed.length == 0 ? Status.NO_LISTENERS : removed;
+                return;
+            }
         }
-        this.acceptRequests = this.acceptRequests && this.active;
-        this.requestPending = this.requestPending && this.active;
-        this.waitingProcess = this.waitingProcess && this.active;
-        this.waitingReply = this.waitingReply && this.active;
-        this.replyReady = this.replyReady && this.active;
+    }
+
+    /**
+     * Apply the rules for the flags to a state.
+     * <p>If closed then the process is not active, if not active then no
+     * other flag can be set.
+     */
+    private static int normalise(int flags) {
+        if ((flags & CLOSED) != 0) {
+            flags &= ~ACTIVE;
+        }
+        if ((flags & ACTIVE) == 0) {
+            flags &= ~WORK_FLAGS;
+        }
+        return flags;
+    }
+
+    /**
+     * Atomically set and clear flags.
+     * <p>Use this to make a transition that changes more than one flag so
+     * that listeners only see the final status.
+     *
+     * @param   set
+     *          the flags to set.
+     * @param   clear
+     *          the flags to clear.
+     */
+    void update(int set, int clear) {
+        int current;
+        int next;
+        do {
+            current = this.state.get();
+            next = Status.normalise((current & ~clear) | set);
+        } while (current != next && !this.state.compareAndSet(current, next));
+        Type previous = Type.CURRENT[current];
+        Type changed = Type.CURRENT[next];
+        if (previous != changed) {
+            for (StatusListener listener : this.listeners) {
+                listener.statusChanged(this, previous, changed);
+            }
+        }
+    }
+
+    private void setFlag(int flag, boolean value) {
+        if (value) {
+            this.update(flag, 0);
+        } else {
+            this.update(0, flag);
+        }
+    }
+
+    private boolean isSet(int flag) {
+        return (this.state.get() & flag) != 0;
     }
 
     /**
@@ -87,7 +177,7 @@ public class Status {
      *          otherwise {@code false}.
      */
     public boolean acceptRequests() {
-        return this.acceptRequests;
+        return this.isSet(ACCEPT_REQUESTS);
     }
 
     /**
@@ -97,16 +187,17 @@ public class Status {
      *          otherwise {@code false}.
      */
     public boolean active() {
-        return this.active;
+        return this.isSet(ACTIVE);
     }
 
     /**
      * Check the state of all the flags.
      * <p>If {@link #closed() closed} is {@code true} then {@link #active() active} is {@code false}.
      * <p>If {@link #active() active} is {@code false} then all other flags are {@code false}.
+     * <p>The rules are applied on every change so this has no effect.
      */
     public void checkStates() {
-        this._checkStates();
+        this.update(0, 0);
     }
 
     /**
@@ -116,7 +207,7 @@ public class Status {
      *          otherwise {@code false}.
      */
     public boolean closed() {
-        return this.closed;
+        return this.isSet(CLOSED);
     }
 
     /**
@@ -128,7 +219,7 @@ public class Status {
      */
     public Type getCurrent()
     {
-       return Status.Type.getCurrent(this);
+       return Type.CURRENT[this.state.get()];
     }
     /**
      * Indicates if a reply is ready.
@@ -137,7 +228,7 @@ public class Status {
      *          otherwise {@code false}.
      */
     public boolean replyReady() {
-        return this.replyReady;
+        return this.isSet(REPLY_READY);
     }
 
     /**
@@ -147,7 +238,16 @@ public class Status {
      *          otherwise {@code false}.
      */
     public boolean requestPending() {
-        return this.requestPending;
+        return this.isSet(REQUEST_PENDING);
+    }
+
+    /**
+     * Reset the flags for a new request.
+     * <p>All the work flags are cleared and requests are accepted; the process
+     * remains active.
+     */
+    void reset() {
+        this.update(ACCEPT_REQUESTS, WORK_FLAGS);
     }
 
     /**
@@ -157,44 +257,37 @@ public class Status {
      *          otherwise {@code false}.
      */
     void setAcceptRequests(boolean acceptRequests) {
-        this.acceptRequests = acceptRequests;
-        this.checkStates();
+        this.setFlag(ACCEPT_REQUESTS, acceptRequests);
     }
 
     /**
      * Set the process to active.
      */
     void setActive() {
-        this.active = true;
-        this.checkStates();
+        this.update(ACTIVE, 0);
     }
 
     /**
      * Set the process closed.
      */
     void setClosed() {
-        this.closed = false;
-        this.checkStates();
+        this.update(CLOSED, 0);
     }
 
     void setReplyReady(boolean replyReady) {
-        this.replyReady = replyReady;
-        this.checkStates();
+        this.setFlag(REPLY_READY, replyReady);
     }
 
     void setRequestPending(boolean requestPending) {
-        this.requestPending = requestPending;
-        this.checkStates();
+        this.setFlag(REQUEST_PENDING, requestPending);
     }
 
     void setWaitingProcess(boolean waitingProcess) {
-        this.waitingProcess = waitingProcess;
-        this.checkStates();
+        this.setFlag(WAITING_PROCESS, waitingProcess);
     }
 
     void setWaitingReply(boolean waitingReply) {
-        this.waitingReply = waitingReply;
-        this.checkStates();
+        this.setFlag(WAITING_REPLY, waitingReply);
     }
 
     /**
@@ -204,7 +297,7 @@ public class Status {
      *          otherwise {@code false}.
      */
     public boolean waitingProcess() {
-        return this.waitingProcess;
+        return this.isSet(WAITING_PROCESS);
     }
 
     /**
@@ -214,19 +307,20 @@ public class Status {
      *          otherwise {@code false}.
      */
     public boolean waitingReply() {
-        return this.waitingReply;
+        return this.isSet(WAITING_REPLY);
     }
 
     @Override
     public String toString()
     {
-        return "Status{active=" + this.active +
-                ", closed=" + this.closed +
-                ", acceptRequests=" + this.acceptRequests +
-                ", replyReady=" + this.replyReady +
-                ", requestPending=" + this.requestPending +
-                ", waitingProcess=" + this.waitingProcess +
-                ", waitingReply=" + waitingReply + '}';
+        int flags = this.state.get();
+        return "Status{active=" + ((flags & ACTIVE) != 0) +
+                ", closed=" + ((flags & CLOSED) != 0) +
+                ", acceptRequests=" + ((flags & ACCEPT_REQUESTS) != 0) +
+                ", replyReady=" + ((flags & REPLY_READY) != 0) +
+                ", requestPending=" + ((flags & REQUEST_PENDING) != 0) +
+                ", waitingProcess=" + ((flags & WAITING_PROCESS) != 0) +
+                ", waitingReply=" + ((flags & WAITING_REPLY) != 0) + '}';
     }
 
     /**
@@ -252,33 +346,43 @@ public class Status {
         /** Unknown */
         UNKNOWN;
 
-        private static Type getCurrent(Status status)
+        /** the current status for every combination of flags */
+        private static final Type[] CURRENT = new Type[Status.STATES];
+        static
+        {
+            for (int flags = 0; flags < Status.STATES; flags++)
+            {
+                Type.CURRENT[flags] = Type.getCurrent(flags);
+            }
+        }
+
+        private static Type getCurrent(int flags)
         {
-            if(status.closed())
+            if((flags & Status.CLOSED) != 0)
             {
                 return Type.CLOSED;
             }
-            if(status.replyReady())
+            if((flags & Status.REPLY_READY) != 0)
             {
                 return Type.REPLY_READY;
             }
-            if(status.requestPending())
+            if((flags & Status.REQUEST_PENDING) != 0)
             {
                 return Type.REQUEST_PENDING;
             }
-            if(status.waitingProcess())
+            if((flags & Status.WAITING_PROCESS) != 0)
             {
                 return Type.WAITING_PROCESS;
             }
-            if(status.waitingReply())
+            if((flags & Status.WAITING_REPLY) != 0)
             {
                 return Type.WAITING_REPLY;
             }
-            if(status.acceptRequests())
+            if((flags & Status.ACCEPT_REQUESTS) != 0)
             {
                 return Type.ACCEPT_REQUESTS;
             }
-            if(status.active())
+            if((flags & Status.ACTIVE) != 0)
             {
                 return Type.ACTIVE;
             }
@@ -0,0 +1,35 @@
+/*==============================================================================
+ * Lexa - Property of William Norman-Walker
+ *------------------------------------------------------------------------------
+ * StatusListener.java
+ *------------------------------------------------------------------------------
+ * Author:  William Norman-Walker
+ * Created: October 2026
+ *==============================================================================
+ */
+package lexa.core.process;
+
+/**
+ * Interface for receiving changes to the {@link Status} of a process.
+ * <p>The listener is called on the thread that changed the status, after the
+ * change has been made, and only when {@link Status#getCurrent()} changes.
+ * Listeners should return quickly and must not call back into the process.
+ *
+ * @author William
+ * @since 2026-10
+ * @see Status#addListener(StatusListener)
+ */
+public interface StatusListener
+{
+    /**
+     * Called when the current status changes.
+     *
+     * @param   status
+     *          the status that changed.
+     * @param   previous
+     *          the status before the change.
+     * @param   current
+     *          the status after the change.
+     */
+    void statusChanged(Status status, Status.Type previous, Status.Type current);
+}
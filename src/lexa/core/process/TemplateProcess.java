@@ -0,0 +1,66 @@
+/*==============================================================================
+ * Lexa - Property of William Norman-Walker
+ *------------------------------------------------------------------------------
+ * TemplateProcess.java
+ *------------------------------------------------------------------------------
+ * Author:  William Norman-Walker
+ * Created: October 2026
+ *==============================================================================
+ */
+package lexa.core.process;
+
+import lexa.core.data.config.ConfigDataSet;
+import lexa.core.data.exception.DataException;
+import lexa.core.expression.ExpressionException;
+import lexa.core.expression.function.FunctionLibrary;
+
+/**
+ * Interface for a process that can share its compiled configuration.
+ * <p>The {@link lexa.core.process.factory.ProcessFactory ProcessFactory}
+ * compiles the configuration once using the first instance and then
+ * initialises every instance with the same template in place of
+ * {@link LexaProcess#initialise(FunctionLibrary, ConfigDataSet) initialise}.
+ * <p>The template must be immutable as it is shared by all the instances
+ * across threads.
+ *
+ * @param   <T> the type of the compiled template
+ * @author William
+ * @since 2026-10
+ */
+public interface TemplateProcess<T>
+        extends LexaProcess
+{
+    /**
+     * Compile the configuration into a template.
+     *
+     * @param   functionLibrary
+     *          the library to use with this process.
+     * @param   config
+     *          the configuration for the process.
+     * @return  the compiled template.
+     *
+     * @throws  ProcessException
+     *          when an exception has occurred compiling the template.
+     * @throws  DataException
+     *          when an exception occurs in the configuration.
+     * @throws  ExpressionException
+     *          when an exception has occurred with an expression.
+     */
+    public T compile(FunctionLibrary functionLibrary, ConfigDataSet config)
+            throws ProcessException,
+                    DataException,
+                    ExpressionException;
+
+    /**
+     * Initialise the process from a compiled template.
+     *
+     * @param   template
+     *          the template from {@link #compile(FunctionLibrary, ConfigDataSet)
+     *          compile}.
+     *
+     * @throws  ProcessException
+     *          when an exception has occurred initialising the process.
+     */
+    public void initialise(T template)
+            throws ProcessException;
+}
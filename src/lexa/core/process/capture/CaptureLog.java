@@ -0,0 +1,390 @@
+/*==============================================================================
+ * Lexa - Property of William Norman-Walker
+ *------------------------------------------------------------------------------
+ * CaptureLog.java
+ *------------------------------------------------------------------------------
+ * Author:  William Norman-Walker
+ * Created: October 2026
+ *==============================================================================
+ */
+package lexa.core.process.capture;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import lexa.core.data.DataSet;
+import lexa.core.data.exception.DataException;
+import lexa.core.process.codec.EnvelopeCodec;
+
+/**
+ * An append only log of the traffic through processes.
+ * <p>The log is written to a series of memory mapped segment files named
+ * {@code <base>.000001}, {@code <base>.000002} and so on; a new segment is
+ * started when the current one is full.  Each segment starts with a header:
+ * <pre>
+ * magic(int) version(int) origin(long)
+ * </pre>
+ * where the origin is the time the log was opened in milliseconds.  Each
+ * record is then:
+ * <pre>
+ * length(int) kind(byte) processId(int) time(long) envelope
+ * </pre>
+ * where the length covers everything after itself, the time is in
+ * nanoseconds from the origin and the envelope is written by the
+ * {@link EnvelopeCodec}.  A length of zero marks the end of the segment.
+ * <p>Writers reserve their space with a single atomic add and then encode
+ * straight into the mapped file, so appending never takes a lock except to
+ * start a new segment, and the file is written by the operating system.
+ * The space is marked as a gap, with the length negated, as soon as it is
+ * reserved and the length is only made positive once the record is
+ * complete, so a record that fails part way is skipped by its reservation.
+ * A record that cannot be encoded, or is larger than a segment, is dropped
+ * and counted.
+ * <p>Opening a log never removes what is already there; its segments are
+ * numbered on from the highest left with the same base name.  Each log
+ * is a run told apart by its origin, and {@link CaptureReader} reads one
+ * run at a time.
+ *
+ * @author  William
+ * @since   2026-10
+ */
+public final class CaptureLog
+{
+    /** the default size of each segment, 64MB */
+    public static final int DEFAULT_SEGMENT_SIZE = 64 << 20;
+    /** marks a capture segment; "{@code LXCP}" */
+    static final int MAGIC = 0x4c584350;
+    /** the version of the format */
+    static final int VERSION = 1;
+    /** the size of the segment header */
+    static final int HEADER_SIZE = 16;
+    /** the size of the record header, not counting the length */
+    static final int RECORD_HEADER_SIZE = 13;
+
+    /**
+     * The kinds of record captured.
+     */
+    public enum Kind
+    {
+        /** A request passed to the process */
+        REQUEST,
+        /** The requests forwarded by the process */
+        FORWARD,
+        /** A reply to a forwarded request passed to the process */
+        REPLY,
+        /** A reply returned by the process */
+        RESULT,
+        /** The process was recycled for its next conversation */
+        RECYCLE;
+
+        /**
+         * Get the kind for its code in the log.
+         */
+        static Kind fromCode(byte code)
+                throws DataException
+        {
+            Kind[] kinds = Kind.values();
+            if (code < 0 || code >= kinds.length)
+            {
+                throw new DataException("Unknown capture record " + code);
+            }
+            return kinds[code];
+        }
+    }
+
+    private final String base;
+    private final int segmentSize;
+    /** time the log was opened, in milliseconds */
+    private final long originMillis;
+    /** value of {@link System#nanoTime()} when the log was opened */
+    private final long originNanos;
+    private final AtomicLong records;
+    private final AtomicLong dropped;
+    private volatile Segment segment;
+    private int lastIndex;
+    private volatile boolean closed;
+
+    /**
+     * Open a capture log.
+     * <p>This is equivalent to using {@code CaptureLog(base, DEFAULT_SEGMENT_SIZE)}.
+     *
+     * @param   base
+     *          the base name of the segment files.
+     * @throws  IOException
+     *          when the first segment cannot be created.
+     */
+    public CaptureLog(String base)
+            throws IOException
+    {
+        this(base, CaptureLog.DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Open a capture log.
+     * <p>Segments already written with the same base name are kept, and
+     * this log's segments are numbered after them.
+     *
+     * @param   base
+     *          the base name of the segment files.
+     * @param   segmentSize
+     *          the size of each segment in bytes.
+     * @throws  IOException
+     *          when the first segment cannot be created.
+     */
+    public CaptureLog(String base, int segmentSize)
+            throws IOException
+    {
+        this.base = base;
+        this.segmentSize = segmentSize;
+        this.originMillis = System.currentTimeMillis();
+        this.originNanos = System.nanoTime();
+        this.records = new AtomicLong();
+        this.dropped = new AtomicLong();
+        File parent = new File(base).getAbsoluteFile().getParentFile();
+        if (parent != null)
+        {
+            parent.mkdirs();
+        }
+        int[] existing = CaptureLog.segments(base);
+        this.lastIndex = existing.length == 0 ?
+                0 :
+                existing[existing.length - 1];
+        this.segment = this.createSegment();
+    }
+
+    /**
+     * Append a record to the log.
+     * <p>This never throws; a record that cannot be written is dropped and
+     * counted.
+     *
+     * @param   kind
+     *          the kind of record.
+     * @param   processId
+     *          the id of the process.
+     * @param   envelope
+     *          the envelope passed to or from the process.
+     */
+    public void append(Kind kind, int processId, DataSet envelope)
+    {
+        if (this.closed || envelope == null)
+        {
+            return;
+        }
+        long time = System.nanoTime() - this.originNanos;
+        int length;
+        try
+        {
+            length = CaptureLog.RECORD_HEADER_SIZE + EnvelopeCodec.size(envelope);
+        }
+        catch (DataException ex)
+        {
+            this.dropped.incrementAndGet();
+            return;
+        }
+        if (4 + length > this.segmentSize - CaptureLog.HEADER_SIZE)
+        {
+            this.dropped.incrementAndGet();
+            return;
+        }
+        Segment current = this.segment;
+        int offset;
+        while ((offset = current.reserve(4 + length)) < 0)
+        {
+            try
+            {
+                current = this.nextSegment(current);
+            }
+            catch (IOException ex)
+            {
+                this.dropped.incrementAndGet();
+                return;
+            }
+            if (current == null)
+            {
+                // closed
+                return;
+            }
+        }
+        // a gap until the record is complete
+        current.buffer.putInt(offset, -length);
+        ByteBuffer buffer = current.buffer.duplicate();
+        buffer.limit(offset + 4 + length);
+        buffer.position(offset + 4);
+        try
+        {
+            buffer.put((byte)kind.ordinal())
+                    .putInt(processId)
+                    .putLong(time);
+            EnvelopeCodec.encode(envelope, buffer);
+        }
+        catch (DataException | RuntimeException ex)
+        {
+            // the envelope changed since it was sized
+            this.dropped.incrementAndGet();
+            return;
+        }
+        current.buffer.putInt(offset, length);
+        this.records.incrementAndGet();
+    }
+
+    /**
+     * Close the log.
+     * <p>Records still being written by other threads are completed; any
+     * appended afterwards are ignored.
+     */
+    public synchronized void close()
+    {
+        this.closed = true;
+        this.segment.buffer.force();
+    }
+
+    /**
+     * Create the next segment file and map it.
+     */
+    private Segment createSegment()
+            throws IOException
+    {
+        File file;
+        do
+        {
+            // another log with the same base name may have taken the index
+            file = new File(CaptureLog.segmentName(this.base, ++this.lastIndex));
+        }
+        while (!file.createNewFile());
+        MappedByteBuffer buffer;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw"))
+        {
+            raf.setLength(this.segmentSize);
+            buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE,
+                    0, this.segmentSize);
+        }
+        buffer.putInt(CaptureLog.MAGIC)
+                .putInt(CaptureLog.VERSION)
+                .putLong(this.originMillis);
+        return new Segment(buffer);
+    }
+
+    /**
+     * Get the number of records dropped.
+     *
+     * @return  the number of records dropped.
+     */
+    public long getDropped()
+    {
+        return this.dropped.get();
+    }
+
+    /**
+     * Get the number of records written.
+     *
+     * @return  the number of records written.
+     */
+    public long getRecords()
+    {
+        return this.records.get();
+    }
+
+    /**
+     * Move on from a full segment.
+     *
+     * @return  the segment to write to, or {@code null} if the log is closed.
+     */
+    private synchronized Segment nextSegment(Segment full)
+            throws IOException
+    {
+        if (this.closed)
+        {
+            return null;
+        }
+        if (this.segment == full)
+        {
+            full.buffer.force();
+            this.segment = this.createSegment();
+        }
+        return this.segment;
+    }
+
+    /**
+     * Get the name of a segment file.
+     *
+     * @param   base
+     *          the base name of the segment files.
+     * @param   index
+     *          the index of the segment, from 1.
+     * @return  the name of the segment file.
+     */
+    static String segmentName(String base, int index)
+    {
+        return String.format("%s.%06d", base, index);
+    }
+
+    /**
+     * Get the indexes of the segment files with a base name.
+     *
+     * @param   base
+     *          the base name of the segment files.
+     * @return  the indexes in ascending order; empty if there are none.
+     */
+    static int[] segments(String base)
+    {
+        File file = new File(base).getAbsoluteFile();
+        File parent = file.getParentFile();
+        String prefix = file.getName() + ".";
+        String[] names = parent == null ?
+                null :
+                parent.list((File dir, String name) ->
+                        name.startsWith(prefix) &&
+                        name.substring(prefix.length()).matches("[0-9]{6,}"));
+        if (names == null)
+        {
+            return new int[0];
+        }
+        int[] indexes = new int[names.length];
+        for (int i = 0; i < names.length; i++)
+        {
+            indexes[i] = Integer.parseInt(names[i].substring(prefix.length()));
+        }
+        Arrays.sort(indexes);
+        return indexes;
+    }
+
+    /**
+     * A mapped segment file.
+     */
+    private static class Segment
+    {
+        private final MappedByteBuffer buffer;
+        /** the next free offset */
+        private final AtomicInteger position;
+
+        private Segment(MappedByteBuffer buffer)
+        {
+            this.buffer = buffer;
+            this.position = new AtomicInteger(CaptureLog.HEADER_SIZE);
+        }
+
+        /**
+         * Reserve space in the segment.
+         *
+         * @return  the offset of the space, or -1 if the segment is full.
+         */
+        private int reserve(int size)
+        {
+            if (this.position.get() > this.buffer.capacity())
+            {
+                return -1;
+            }
+            int offset = this.position.getAndAdd(size);
+            // the length needs room after the last record to read as zero
+            return offset + size + 4 <= this.buffer.capacity() ?
+                    offset :
+                    -1;
+        }
+    }
+}
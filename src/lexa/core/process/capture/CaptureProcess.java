@@ -0,0 +1,205 @@
+/*==============================================================================
+ * Lexa - Property of William Norman-Walker
+ *------------------------------------------------------------------------------
+ * CaptureProcess.java
+ *------------------------------------------------------------------------------
+ * Author:  William Norman-Walker
+ * Created: October 2026
+ *==============================================================================
+ */
+package lexa.core.process.capture;
+
+import lexa.core.data.ArrayDataSet;
+import lexa.core.data.DataItem;
+import lexa.core.data.DataSet;
+import lexa.core.data.config.ConfigDataSet;
+import lexa.core.data.exception.DataException;
+import lexa.core.expression.ExpressionException;
+import lexa.core.expression.function.FunctionLibrary;
+import lexa.core.process.LexaProcess;
+import lexa.core.process.ProcessException;
+import lexa.core.process.Status;
+import lexa.core.process.metrics.ProcessMetrics;
+
+/**
+ * A process that records the traffic through another process.
+ * <p>Each request and reply passed in, and each request forwarded or reply
+ * returned, is appended to a {@link CaptureLog} before it is passed on.  The
+ * capture can be replayed through a new process to reproduce the load.
+ * <p>Requests and replies passed in a group, and replies drained in a
+ * group, are recorded one at a time.  A recycle is recorded with an empty
+ * envelope so a replay starts the next conversation in the same place.
+ *
+ * @author  William
+ * @since   2026-10
+ */
+public class CaptureProcess
+        implements LexaProcess
+{
+    /** the envelope recorded for a recycle; never changed */
+    private static final DataSet NO_ENVELOPE = new ArrayDataSet();
+
+    private final LexaProcess process;
+    private final CaptureLog log;
+
+    /**
+     * Create a process that records the traffic through another.
+     *
+     * @param   process
+     *          the process to record.
+     * @param   log
+     *          the log to record to.
+     */
+    public CaptureProcess(LexaProcess process, CaptureLog log)
+    {
+        this.process = process;
+        this.log = log;
+    }
+
+    @Override
+    public void close()
+            throws ProcessException
+    {
+        this.process.close();
+    }
+
+    @Override
+    public DataSet drainReplies()
+            throws ProcessException
+    {
+        DataSet replies = this.process.drainReplies();
+        for (DataItem item : replies)
+        {
+            this.log.append(CaptureLog.Kind.RESULT, this.getId(), item.getDataSet());
+        }
+        return replies;
+    }
+
+    @Override
+    public int getId()
+    {
+        return this.process.getId();
+    }
+
+    @Override
+    public DataSet getMessageData()
+    {
+        return this.process.getMessageData();
+    }
+
+    /**
+     * Get the process being recorded.
+     *
+     * @return  the process being recorded.
+     */
+    public LexaProcess getProcess()
+    {
+        return this.process;
+    }
+
+    @Override
+    public DataSet getReply()
+            throws ProcessException
+    {
+        DataSet reply = this.process.getReply();
+        this.log.append(CaptureLog.Kind.RESULT, this.getId(), reply);
+        return reply;
+    }
+
+    @Override
+    public DataSet getRequests()
+            throws ProcessException
+    {
+        DataSet requests = this.process.getRequests();
+        this.log.append(CaptureLog.Kind.FORWARD, this.getId(), requests);
+        return requests;
+    }
+
+    @Override
+    public Status getStatus()
+    {
+        return this.process.getStatus();
+    }
+
+    @Override
+    public void handleReplies(DataSet replies)
+            throws ProcessException
+    {
+        for (DataItem item : replies)
+        {
+            this.log.append(CaptureLog.Kind.REPLY, this.getId(), item.getDataSet());
+        }
+        this.process.handleReplies(replies);
+    }
+
+    @Override
+    public void handleReply(DataSet reply)
+            throws ProcessException
+    {
+        this.log.append(CaptureLog.Kind.REPLY, this.getId(), reply);
+        this.process.handleReply(reply);
+    }
+
+    @Override
+    public void handleRequest(DataSet request)
+            throws ProcessException
+    {
+        this.log.append(CaptureLog.Kind.REQUEST, this.getId(), request);
+        this.process.handleRequest(request);
+    }
+
+    @Override
+    public int handleRequests(DataSet requests)
+            throws ProcessException
+    {
+        int accepted = this.process.handleRequests(requests);
+        // only the requests the process took are replayed
+        int logged = 0;
+        for (DataItem item : requests)
+        {
+            if (logged++ == accepted)
+            {
+                break;
+            }
+            this.log.append(CaptureLog.Kind.REQUEST, this.getId(), item.getDataSet());
+        }
+        return accepted;
+    }
+
+    @Override
+    public void initialise(FunctionLibrary functionLibrary, ConfigDataSet config)
+            throws ProcessException,
+                    DataException,
+                    ExpressionException
+    {
+        this.process.initialise(functionLibrary, config);
+    }
+
+    @Override
+    public void process()
+            throws ProcessException
+    {
+        this.process.process();
+    }
+
+    @Override
+    public void recycle()
+            throws ProcessException
+    {
+        this.process.recycle();
+        this.log.append(CaptureLog.Kind.RECYCLE, this.getId(),
+                CaptureProcess.NO_ENVELOPE);
+    }
+
+    @Override
+    public void setId(int id)
+    {
+        this.process.setId(id);
+    }
+
+    @Override
+    public void setMetrics(ProcessMetrics metrics)
+    {
+        this.process.setMetrics(metrics);
+    }
+}
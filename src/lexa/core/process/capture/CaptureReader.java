@@ -0,0 +1,285 @@
+/*==============================================================================
+ * Lexa - Property of William Norman-Walker
+ *------------------------------------------------------------------------------
+ * CaptureReader.java
+ *------------------------------------------------------------------------------
+ * Author:  William Norman-Walker
+ * Created: October 2026
+ *==============================================================================
+ */
+package lexa.core.process.capture;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.TreeSet;
+import lexa.core.data.DataSet;
+import lexa.core.data.exception.DataException;
+import lexa.core.process.codec.EnvelopeCodec;
+
+/**
+ * Reads the records written to a {@link CaptureLog}.
+ * <p>The segment files may hold several runs, one for each time a log was
+ * opened with the same base name.  A reader reads one run, chosen by its
+ * origin, or the most recent run if none is given; the run's segments are
+ * read in order, each mapped in turn, and the segments of other runs are
+ * passed over.  Records that were not completed are skipped.
+ *
+ * @author  William
+ * @since   2026-10
+ */
+public final class CaptureReader
+{
+    private final String base;
+    /** the indexes of the segment files; read with the first segment */
+    private int[] segments;
+    /** the position in {@link #segments} of the next segment */
+    private int next;
+    private int index;
+    private ByteBuffer buffer;
+    /** the origin of the run read; 0 until the most recent is found */
+    private long origin;
+
+    /**
+     * Create a reader for the most recent run in a capture log.
+     *
+     * @param   base
+     *          the base name of the segment files.
+     */
+    public CaptureReader(String base)
+    {
+        this(base, 0);
+    }
+
+    /**
+     * Create a reader for one run in a capture log.
+     *
+     * @param   base
+     *          the base name of the segment files.
+     * @param   origin
+     *          the origin of the run, as given by {@link #getOrigins(String)},
+     *          or 0 for the most recent run.
+     */
+    public CaptureReader(String base, long origin)
+    {
+        this.base = base;
+        this.origin = origin;
+    }
+
+    /**
+     * Get the origins of the runs in a capture log.
+     *
+     * @param   base
+     *          the base name of the segment files.
+     * @return  the origin of each run, oldest first.
+     * @throws  IOException
+     *          when a segment cannot be read.
+     * @throws  DataException
+     *          when a segment is not valid.
+     */
+    public static long[] getOrigins(String base)
+            throws IOException,
+                    DataException
+    {
+        TreeSet<Long> origins = new TreeSet();
+        for (int segment : CaptureLog.segments(base))
+        {
+            origins.add(CaptureReader.map(base, segment).getLong());
+        }
+        long[] list = new long[origins.size()];
+        int i = 0;
+        for (Long origin : origins)
+        {
+            list[i++] = origin;
+        }
+        return list;
+    }
+
+    /**
+     * Get the time the log was opened.
+     * <p>For the most recent run this is only known once the first record
+     * has been read.
+     *
+     * @return  the time the log was opened in milliseconds.
+     */
+    public long getOrigin()
+    {
+        return this.origin;
+    }
+
+    /**
+     * Read the next record.
+     *
+     * @return  the next record, or {@code null} at the end of the log.
+     * @throws  IOException
+     *          when a segment cannot be read.
+     * @throws  DataException
+     *          when a segment or record is not valid.
+     */
+    public Record next()
+            throws IOException,
+                    DataException
+    {
+        while (true)
+        {
+            if (this.buffer == null && !this.nextSegment())
+            {
+                return null;
+            }
+            int length = this.buffer.remaining() < 4 ?
+                    0 :
+                    this.buffer.getInt();
+            if (length == 0)
+            {
+                this.buffer = null;
+                continue;
+            }
+            if (length < 0)
+            {
+                // a record that was not completed
+                length = -length;
+                if (length > this.buffer.remaining())
+                {
+                    throw new DataException("Capture record overruns segment " +
+                            this.index);
+                }
+                this.buffer.position(this.buffer.position() + length);
+                continue;
+            }
+            if (length > this.buffer.remaining())
+            {
+                throw new DataException("Capture record overruns segment " +
+                        this.index);
+            }
+            ByteBuffer record = this.buffer.slice();
+            record.limit(length);
+            this.buffer.position(this.buffer.position() + length);
+            CaptureLog.Kind kind = CaptureLog.Kind.fromCode(record.get());
+            int processId = record.getInt();
+            long time = record.getLong();
+            return new Record(kind, processId, time, EnvelopeCodec.decode(record));
+        }
+    }
+
+    /**
+     * Map a segment and check its header.
+     *
+     * @return  the segment, positioned at its origin.
+     */
+    private static ByteBuffer map(String base, int index)
+            throws IOException,
+                    DataException
+    {
+        File file = new File(CaptureLog.segmentName(base, index));
+        ByteBuffer mapped;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"))
+        {
+            mapped = raf.getChannel().map(FileChannel.MapMode.READ_ONLY,
+                    0, raf.length());
+        }
+        if (mapped.remaining() < CaptureLog.HEADER_SIZE ||
+                mapped.getInt() != CaptureLog.MAGIC ||
+                mapped.getInt() != CaptureLog.VERSION)
+        {
+            throw new DataException("Not a capture segment " + file);
+        }
+        return mapped;
+    }
+
+    /**
+     * Map the next segment in the run.
+     *
+     * @return  {@code true} if there was another segment, otherwise
+     *          {@code false}.
+     */
+    private boolean nextSegment()
+            throws IOException,
+                    DataException
+    {
+        if (this.segments == null)
+        {
+            this.segments = CaptureLog.segments(this.base);
+            if (this.origin == 0 && this.segments.length > 0)
+            {
+                // the run that wrote the last segment
+                this.origin = CaptureReader.map(this.base,
+                        this.segments[this.segments.length - 1]).getLong();
+            }
+        }
+        while (this.next < this.segments.length)
+        {
+            int segment = this.segments[this.next++];
+            ByteBuffer mapped = CaptureReader.map(this.base, segment);
+            if (mapped.getLong() == this.origin)
+            {
+                this.index = segment;
+                this.buffer = mapped;
+                return true;
+            }
+            // from another run
+        }
+        return false;
+    }
+
+    /**
+     * A record read from the log.
+     */
+    public static class Record
+    {
+        private final CaptureLog.Kind kind;
+        private final int processId;
+        private final long time;
+        private final DataSet envelope;
+
+        private Record(CaptureLog.Kind kind, int processId, long time,
+                DataSet envelope)
+        {
+            this.kind = kind;
+            this.processId = processId;
+            this.time = time;
+            this.envelope = envelope;
+        }
+
+        /**
+         * Get the envelope passed to or from the process.
+         *
+         * @return  the envelope.
+         */
+        public DataSet getEnvelope()
+        {
+            return this.envelope;
+        }
+
+        /**
+         * Get the kind of record.
+         *
+         * @return  the kind of record.
+         */
+        public CaptureLog.Kind getKind()
+        {
+            return this.kind;
+        }
+
+        /**
+         * Get the id of the process.
+         *
+         * @return  the id of the process when captured.
+         */
+        public int getProcessId()
+        {
+            return this.processId;
+        }
+
+        /**
+         * Get the time of the record.
+         *
+         * @return  the time in nanoseconds from the log being opened.
+         */
+        public long getTime()
+        {
+            return this.time;
+        }
+    }
+}
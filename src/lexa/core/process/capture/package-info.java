@@ -0,0 +1,24 @@
+/*==============================================================================
+ *  Lexa - Property of William Norman-Walker
+ * ------------------------------------------------------------------------------
+ *  package-info.java (lxProcess)
+ * ------------------------------------------------------------------------------
+ *  Author:  William Norman-Walker
+ *  Created: October 2026
+ * ==============================================================================
+ */
+
+/**
+ * Capture of the traffic through Lexa processes.
+ * <p>
+ * A {@link lexa.core.process.factory.ProcessFactory ProcessFactory} with a
+ * {@code capture} block wraps each instance in a
+ * {@link lexa.core.process.capture.CaptureProcess CaptureProcess}, which
+ * records the envelopes passed to and from the process in a memory mapped
+ * {@link lexa.core.process.capture.CaptureLog CaptureLog}.  The log is read
+ * back with a {@link lexa.core.process.capture.CaptureReader CaptureReader}.
+ *
+ * @author  william
+ * @since   2026-10
+ */
+package lexa.core.process.capture;
@@ -0,0 +1,521 @@
+/*==============================================================================
+ * Lexa - Property of William Norman-Walker
+ *------------------------------------------------------------------------------
+ * EnvelopeCodec.java
+ *------------------------------------------------------------------------------
+ * Author:  William Norman-Walker
+ * Created: October 2026
+ *==============================================================================
+ */
+package lexa.core.process.codec;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.HashMap;
+import lexa.core.data.ArrayDataSet;
+import lexa.core.data.DataItem;
+import lexa.core.data.DataSet;
+import lexa.core.data.exception.DataException;
+import lexa.core.process.context.Context;
+
+/**
+ * A compact binary form for the envelopes passed between processes.
+ * <p>Any {@link DataSet} of booleans, integers, longs, doubles, dates,
+ * strings, nulls and nested data sets can be encoded; that covers the
+ * requests built by {@link lexa.core.process.LexaProcess#getRequests()
+ * getRequests()} and the replies passed to
+ * {@link lexa.core.process.LexaProcess#handleReply(DataSet) handleReply}.
+ * <p>The encoding is written straight into and read straight out of a
+ * {@link ByteBuffer}, heap or direct, with no intermediate copy:
+ * <pre>
+ * envelope  = version data-set
+ * data-set  = count(varint) { key value }
+ * key       = 0(varint) string | index + 1(varint)
+ * value     = type(byte) [payload]
+ * string    = length(varint) utf-8 bytes
+ * </pre>
+ * <p>Keys from {@link Context} are written as a single byte and decoded to
+ * the shared constant, so the decoded envelopes do not hold copies of
+ * them.  Integers and longs are zig-zag variable length; doubles and dates
+ * are eight bytes.
+ *
+ * @author  William
+ * @since   2026-10
+ */
+public final class EnvelopeCodec
+{
+    /** the version of the encoding, written first */
+    public static final byte VERSION = 1;
+
+    /** the well known keys; the order is part of the encoding */
+    private static final String[] KEYS = {
+        Context.SOURCE_REF,
+        Context.MESSAGE_LIST,
+        Context.SERVICE,
+        Context.MESSAGE,
+        Context.SOURCE,
+        Context.REQUEST,
+        Context.REPLY,
+        Context.RETURN,
+        Context.CLOSE,
+        Context.STATE,
+        Context.SOURCE_ID,
+        Context.CONNECTION_ID,
+        Context.DATA,
+        Context.PROCESS,
+        Context.SYSTEM_REQUEST
+    };
+    /** the index of each well known key */
+    private static final HashMap<String, Integer> KEY_INDEX = new HashMap();
+    static
+    {
+        for (int index = 0; index < EnvelopeCodec.KEYS.length; index++)
+        {
+            EnvelopeCodec.KEY_INDEX.put(EnvelopeCodec.KEYS[index], index);
+        }
+    }
+
+    private static final byte TYPE_NULL = 0;
+    private static final byte TYPE_FALSE = 1;
+    private static final byte TYPE_TRUE = 2;
+    private static final byte TYPE_INTEGER = 3;
+    private static final byte TYPE_LONG = 4;
+    private static final byte TYPE_DOUBLE = 5;
+    private static final byte TYPE_DATE = 6;
+    private static final byte TYPE_STRING = 7;
+    private static final byte TYPE_DATA_SET = 8;
+
+    private EnvelopeCodec()
+    {
+    }
+
+    /**
+     * Decode an envelope.
+     * <p>The envelope is read from the buffer's position, which is left
+     * after the envelope.
+     *
+     * @param   buffer
+     *          the buffer to read from.
+     * @return  the decoded envelope.
+     * @throws  DataException
+     *          when the buffer does not hold a valid envelope.
+     */
+    public static DataSet decode(ByteBuffer buffer)
+            throws DataException
+    {
+        try
+        {
+            byte version = buffer.get();
+            if (version != EnvelopeCodec.VERSION)
+            {
+                throw new DataException("Unknown envelope version " + version);
+            }
+            return EnvelopeCodec.readDataSet(buffer);
+        }
+        catch (BufferUnderflowException ex)
+        {
+            throw new DataException("Envelope is truncated");
+        }
+    }
+
+    /**
+     * Encode an envelope.
+     * <p>The envelope is written at the buffer's position, which is left
+     * after the envelope; use {@link #size(DataSet) size} to find how much
+     * room it needs.
+     *
+     * @param   envelope
+     *          the envelope to encode.
+     * @param   buffer
+     *          the buffer to write to.
+     * @throws  DataException
+     *          when the envelope holds a value that cannot be encoded.
+     * @throws  BufferOverflowException
+     *          when the buffer does not have room for the envelope.
+     */
+    public static void encode(DataSet envelope, ByteBuffer buffer)
+            throws DataException
+    {
+        buffer.put(EnvelopeCodec.VERSION);
+        EnvelopeCodec.writeDataSet(envelope, buffer);
+    }
+
+    /**
+     * Get the number of bytes needed to encode an envelope.
+     *
+     * @param   envelope
+     *          the envelope to encode.
+     * @return  the size of the encoded envelope.
+     * @throws  DataException
+     *          when the envelope holds a value that cannot be encoded.
+     */
+    public static int size(DataSet envelope)
+            throws DataException
+    {
+        return 1 + EnvelopeCodec.sizeOf(envelope);
+    }
+
+    private static DataSet readDataSet(ByteBuffer buffer)
+            throws DataException
+    {
+        int count = EnvelopeCodec.readVarInt(buffer);
+        DataSet data = new ArrayDataSet();
+        for (int item = 0; item < count; item++)
+        {
+            String key = EnvelopeCodec.readKey(buffer);
+            data.put(key, EnvelopeCodec.readValue(buffer));
+        }
+        return data;
+    }
+
+    private static String readKey(ByteBuffer buffer)
+            throws DataException
+    {
+        int index = EnvelopeCodec.readVarInt(buffer);
+        if (index == 0)
+        {
+            return EnvelopeCodec.readString(buffer);
+        }
+        if (index > EnvelopeCodec.KEYS.length)
+        {
+            throw new DataException("Unknown envelope key " + index);
+        }
+        return EnvelopeCodec.KEYS[index - 1];
+    }
+
+    /**
+     * Read a string, decoding the bytes in place.
+     */
+    private static String readString(ByteBuffer buffer)
+            throws DataException
+    {
+        int length = EnvelopeCodec.readVarInt(buffer);
+        if (length > buffer.remaining())
+        {
+            throw new BufferUnderflowException();
+        }
+        if (buffer.hasArray())
+        {
+            int start = buffer.position();
+            buffer.position(start + length);
+            return new String(buffer.array(), buffer.arrayOffset() + start,
+                    length, StandardCharsets.UTF_8);
+        }
+        char[] chars = new char[length];
+        int count = 0;
+        int end = buffer.position() + length;
+        while (buffer.position() < end)
+        {
+            int b = buffer.get() & 0xff;
+            if (b < 0x80)
+            {
+                chars[count++] = (char)b;
+            }
+            else if (b < 0xe0)
+            {
+                chars[count++] = (char)(((b & 0x1f) << 6) |
+                        (buffer.get() & 0x3f));
+            }
+            else if (b < 0xf0)
+            {
+                chars[count++] = (char)(((b & 0x0f) << 12) |
+                        ((buffer.get() & 0x3f) << 6) |
+                        (buffer.get() & 0x3f));
+            }
+            else
+            {
+                int codePoint = ((b & 0x07) << 18) |
+                        ((buffer.get() & 0x3f) << 12) |
+                        ((buffer.get() & 0x3f) << 6) |
+                        (buffer.get() & 0x3f);
+                count += Character.toChars(codePoint, chars, count);
+            }
+        }
+        return new String(chars, 0, count);
+    }
+
+    private static Object readValue(ByteBuffer buffer)
+            throws DataException
+    {
+        byte type = buffer.get();
+        switch (type)
+        {
+            case EnvelopeCodec.TYPE_NULL : return null;
+            case EnvelopeCodec.TYPE_FALSE : return Boolean.FALSE;
+            case EnvelopeCodec.TYPE_TRUE : return Boolean.TRUE;
+            case EnvelopeCodec.TYPE_INTEGER :
+            {
+                int value = EnvelopeCodec.readVarInt(buffer);
+                return (value >>> 1) ^ -(value & 1);
+            }
+            case EnvelopeCodec.TYPE_LONG :
+            {
+                long value = EnvelopeCodec.readVarLong(buffer);
+                return (value >>> 1) ^ -(value & 1);
+            }
+            case EnvelopeCodec.TYPE_DOUBLE : return buffer.getDouble();
+            case EnvelopeCodec.TYPE_DATE : return new Date(buffer.getLong());
+            case EnvelopeCodec.TYPE_STRING : return EnvelopeCodec.readString(buffer);
+            case EnvelopeCodec.TYPE_DATA_SET : return EnvelopeCodec.readDataSet(buffer);
+            default : throw new DataException("Unknown envelope type " + type);
+        }
+    }
+
+    private static int readVarInt(ByteBuffer buffer)
+            throws DataException
+    {
+        long value = EnvelopeCodec.readVarLong(buffer);
+        if (value >>> 32 != 0)
+        {
+            throw new DataException("Envelope integer out of range");
+        }
+        return (int)value;
+    }
+
+    private static long readVarLong(ByteBuffer buffer)
+            throws DataException
+    {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7)
+        {
+            byte b = buffer.get();
+            value |= (long)(b & 0x7f) << shift;
+            if (b >= 0)
+            {
+                return value;
+            }
+        }
+        throw new DataException("Envelope integer too long");
+    }
+
+    /**
+     * Get the encoded size of a data set.
+     */
+    private static int sizeOf(DataSet data)
+            throws DataException
+    {
+        int size = EnvelopeCodec.sizeOfVarLong(data.size());
+        for (DataItem item : data)
+        {
+            Integer index = EnvelopeCodec.KEY_INDEX.get(item.getKey());
+            size += index != null ?
+                    EnvelopeCodec.sizeOfVarLong(index + 1) :
+                    1 + EnvelopeCodec.sizeOfString(item.getKey());
+            size += 1;
+            Object value = item.getObject();
+            if (value == null || value instanceof Boolean)
+            {
+                // the type is the value
+            }
+            else if (value instanceof Integer)
+            {
+                int i = (Integer)value;
+                size += EnvelopeCodec.sizeOfVarLong(((i << 1) ^ (i >> 31)) & 0xffffffffL);
+            }
+            else if (value instanceof Long)
+            {
+                long l = (Long)value;
+                size += EnvelopeCodec.sizeOfVarLong((l << 1) ^ (l >> 63));
+            }
+            else if (value instanceof Double || value instanceof Date)
+            {
+                size += 8;
+            }
+            else if (value instanceof String)
+            {
+                size += EnvelopeCodec.sizeOfString((String)value);
+            }
+            else if (value instanceof DataSet)
+            {
+                size += EnvelopeCodec.sizeOf((DataSet)value);
+            }
+            else
+            {
+                throw EnvelopeCodec.unsupported(item);
+            }
+        }
+        return size;
+    }
+
+    private static int sizeOfString(String value)
+    {
+        int length = EnvelopeCodec.utf8Length(value);
+        return EnvelopeCodec.sizeOfVarLong(length) + length;
+    }
+
+    private static int sizeOfVarLong(long value)
+    {
+        int size = 1;
+        while ((value >>>= 7) != 0)
+        {
+            size++;
+        }
+        return size;
+    }
+
+    private static DataException unsupported(DataItem item)
+    {
+        return new DataException("Cannot encode " + item.getKey() +
+                " of type " + item.getType());
+    }
+
+    /**
+     * Get the number of bytes a string takes as UTF-8.
+     */
+    private static int utf8Length(String value)
+    {
+        int length = value.length();
+        int bytes = length;
+        for (int index = 0; index < length; index++)
+        {
+            char c = value.charAt(index);
+            if (Character.isSurrogate(c))
+            {
+                if (Character.isHighSurrogate(c) && index + 1 < length &&
+                        Character.isLowSurrogate(value.charAt(index + 1)))
+                {
+                    // the pair takes four bytes
+                    bytes += 2;
+                    index++;
+                }
+            }
+            else if (c >= 0x800)
+            {
+                bytes += 2;
+            }
+            else if (c >= 0x80)
+            {
+                bytes++;
+            }
+        }
+        return bytes;
+    }
+
+    private static void writeDataSet(DataSet data, ByteBuffer buffer)
+            throws DataException
+    {
+        EnvelopeCodec.writeVarLong(data.size(), buffer);
+        for (DataItem item : data)
+        {
+            Integer index = EnvelopeCodec.KEY_INDEX.get(item.getKey());
+            if (index != null)
+            {
+                EnvelopeCodec.writeVarLong(index + 1, buffer);
+            }
+            else
+            {
+                buffer.put((byte)0);
+                EnvelopeCodec.writeString(item.getKey(), buffer);
+            }
+            EnvelopeCodec.writeValue(item, buffer);
+        }
+    }
+
+    /**
+     * Write a string, encoding the characters in place.
+     * <p>Unpaired surrogates are written as {@code ?}, as the JDK does.
+     */
+    private static void writeString(String value, ByteBuffer buffer)
+    {
+        EnvelopeCodec.writeVarLong(EnvelopeCodec.utf8Length(value), buffer);
+        int length = value.length();
+        for (int index = 0; index < length; index++)
+        {
+            char c = value.charAt(index);
+            if (c < 0x80)
+            {
+                buffer.put((byte)c);
+            }
+            else if (c < 0x800)
+            {
+                buffer.put((byte)(0xc0 | (c >> 6)))
+                        .put((byte)(0x80 | (c & 0x3f)));
+            }
+            else if (Character.isSurrogate(c))
+            {
+                if (Character.isHighSurrogate(c) && index + 1 < length &&
+                        Character.isLowSurrogate(value.charAt(index + 1)))
+                {
+                    int codePoint = Character.toCodePoint(c, value.charAt(++index));
+                    buffer.put((byte)(0xf0 | (codePoint >> 18)))
+                            .put((byte)(0x80 | ((codePoint >> 12) & 0x3f)))
+                            .put((byte)(0x80 | ((codePoint >> 6) & 0x3f)))
+                            .put((byte)(0x80 | (codePoint & 0x3f)));
+                }
+                else
+                {
+                    buffer.put((byte)'?');
+                }
+            }
+            else
+            {
+                buffer.put((byte)(0xe0 | (c >> 12)))
+                        .put((byte)(0x80 | ((c >> 6) & 0x3f)))
+                        .put((byte)(0x80 | (c & 0x3f)));
+            }
+        }
+    }
+
+    private static void writeValue(DataItem item, ByteBuffer buffer)
+            throws DataException
+    {
+        Object value = item.getObject();
+        if (value == null)
+        {
+            buffer.put(EnvelopeCodec.TYPE_NULL);
+        }
+        else if (value instanceof Boolean)
+        {
+            buffer.put((Boolean)value ?
+                    EnvelopeCodec.TYPE_TRUE :
+                    EnvelopeCodec.TYPE_FALSE);
+        }
+        else if (value instanceof Integer)
+        {
+            int i = (Integer)value;
+            buffer.put(EnvelopeCodec.TYPE_INTEGER);
+            EnvelopeCodec.writeVarLong(((i << 1) ^ (i >> 31)) & 0xffffffffL, buffer);
+        }
+        else if (value instanceof Long)
+        {
+            long l = (Long)value;
+            buffer.put(EnvelopeCodec.TYPE_LONG);
+            EnvelopeCodec.writeVarLong((l << 1) ^ (l >> 63), buffer);
+        }
+        else if (value instanceof Double)
+        {
+            buffer.put(EnvelopeCodec.TYPE_DOUBLE).putDouble((Double)value);
+        }
+        else if (value instanceof Date)
+        {
+            buffer.put(EnvelopeCodec.TYPE_DATE).putLong(((Date)value).getTime());
+        }
+        else if (value instanceof String)
+        {
+            buffer.put(EnvelopeCodec.TYPE_STRING);
+            EnvelopeCodec.writeString((String)value, buffer);
+        }
+        else if (value instanceof DataSet)
+        {
+            buffer.put(EnvelopeCodec.TYPE_DATA_SET);
+            EnvelopeCodec.writeDataSet((DataSet)value, buffer);
+        }
+        else
+        {
+            throw EnvelopeCodec.unsupported(item);
+        }
+    }
+
+    private static void writeVarLong(long value, ByteBuffer buffer)
+    {
+        while ((value & ~0x7fL) != 0)
+        {
+            buffer.put((byte)((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte)value);
+    }
+}
@@ -0,0 +1,21 @@
+/*==============================================================================
+ *  Lexa - Property of William Norman-Walker
+ * ------------------------------------------------------------------------------
+ *  package-info.java (lxProcess)
+ * ------------------------------------------------------------------------------
+ *  Author:  William Norman-Walker
+ *  Created: October 2026
+ * ==============================================================================
+ */
+
+/**
+ * Encoding for the envelopes passed between Lexa processes.
+ * <p>
+ * The {@link lexa.core.process.codec.EnvelopeCodec EnvelopeCodec} writes
+ * request and reply envelopes to a compact binary form in place of the text
+ * form, for hosts that pass them between processes over the wire.
+ *
+ * @author  william
+ * @since   2026-10
+ */
+package lexa.core.process.codec;
@@ -14,6 +14,18 @@ public class Config {
     /** "{@code allowAnonymous}" */
     public static final String ALLOW_ANONYMOUS
             = "allowAnonymous";
+    /** "{@code capture}" */
+    public static final String CAPTURE
+            = "capture";
+    /** "{@code cache}" */
+    public static final String CACHE
+            = "cache";
+    /** "{@code batchLinger}" */
+    public static final String BATCH_LINGER
+            = "batchLinger";
+    /** "{@code batchSize}" */
+    public static final String BATCH_SIZE
+            = "batchSize";
     /** "{@code loader}" */
     public static final String CALCULATION
             = "calculation";
@@ -23,6 +35,12 @@ public class Config {
     /** "{@code classPath}" */
     public static final String CLASS_PATH
             = "class";
+    /** "{@code coalesce}" */
+    public static final String COALESCE
+            = "coalesce";
+    /** "{@code coalesceFields}" */
+    public static final String COALESCE_FIELDS
+            = "coalesceFields";
     /** "{@code config}" */
     public static final String CONFIG
             = "config";
@@ -32,33 +50,66 @@ public class Config {
     /** "{@code data}" */
     public static final String DATA
             = "data";
+    /** "{@code file}" */
+    public static final String FILE
+            = "file";
     /** "{@code fields}" */
     public static final String REQUEST_FIELD_LIST
             = "requestFieldList";
     /** "{@code handleRequest}" */
     public static final String REQUEST_EXPRESSION
             = "requestExpression";
+    /** "{@code jmx}" */
+    public static final String JMX
+            = "jmx";
     /** "{@code logging}" */
     public static final String LOGGING
             = "logging";
     /** "{@code maxProcesses}" */
     public static final String MAX_PROCESSES
             = "maxProcesses";
+    /** "{@code maxRequests}" */
+    public static final String MAX_REQUESTS
+            = "maxRequests";
+    /** "{@code maxSize}" */
+    public static final String MAX_SIZE
+            = "maxSize";
+    /** "{@code metrics}" */
+    public static final String METRICS
+            = "metrics";
+    /** "{@code minProcesses}" */
+    public static final String MIN_PROCESSES
+            = "minProcesses";
     /** "{@code name}" */
     public static final String NAME
             = "name";
+    /** "{@code probeInterval}" */
+    public static final String PROBE_INTERVAL
+            = "probeInterval";
     /** "{@code processList}" */
     public static final String PROCESS_LIST
             = "processList";
+    /** "{@code segmentSize}" */
+    public static final String SEGMENT_SIZE
+            = "segmentSize";
    /** "{@code serviceList}" */
     public static final String SERVICE_LIST
             = "serviceList";
+    /** "{@code spool}" */
+    public static final String SPOOL
+            = "spool";
+    /** "{@code replayLimit}" */
+    public static final String REPLAY_LIMIT
+            = "replayLimit";
     /** "{@code replyMap}" */
     public static final String REPLY_MAP
             = "replyMap";
     /** "{@code timeout}" */
     public static final String TIMEOUT
             = "timeout";
+    /** "{@code timeToLive}" */
+    public static final String TIME_TO_LIVE
+            = "timeToLive";
     /** "{@code wildcard}" */
     public static final String WILDCARD
             = "wildcard";
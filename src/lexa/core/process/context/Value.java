@@ -22,18 +22,38 @@ package lexa.core.process.context;
  * @since 2013-07
  */
 public class Value {
+    /** The value "{@code batch}"; the message for a batch of requests */
+    public static final String BATCH            = "batch";
     public static final String CLASS_CONFIG	    = "Config";
     /** "{@code Echo}" */
     public static final String CLASS_ECHO	    = "Echo";
-    /** "{@code Echo}" */
+    /** "{@code PipelinedEcho}" */
+    public static final String CLASS_PIPELINED_ECHO = "PipelinedEcho";
+    /** "{@code PassThrough}" */
     public static final String CLASS_PASS_THROUGH
 												= "PassThrough";
     /** The value "{@code CLOSE_MESSAGE}" */
     public static final String CLOSE_MESSAGE    = "CLOSE_MESSAGE";
     /** The value "{@code local}" */
     public static final String LOCAL            = "local";
+    /** The value {@code 1000} */
+    public static final int DEFAULT_CACHE_SIZE  = 1000;
+    /** The value {@code 10} */
+    public static final int DEFAULT_MAX_PROCESSES = 10;
+    /** The value {@code 64} */
+    public static final int DEFAULT_MAX_REQUESTS = 64;
+    /** The value {@code 1} */
+    public static final int DEFAULT_MIN_PROCESSES = 1;
     /** The value {@code 30000} or 30 seconds */
     public static final int DEFAULT_TIMEOUT     = 30000;
+    /** The value {@code 0}; cached replies do not expire */
+    public static final int DEFAULT_TIME_TO_LIVE = 0;
+    /** The value "{@code timeout}"; the state of a reply to a request that timed out */
+    public static final String TIMEOUT          = "timeout";
+    /** The value "{@code Request timed out}" */
+    public static final String TIMEOUT_MESSAGE  = "Request timed out";
+    /** The value "{@code unavailable}"; the state of a reply from a service that cannot be reached */
+    public static final String UNAVAILABLE      = "unavailable";
 	
 	public static final String HOST_SERVICE		= "host";
 	public static final String TYPE_ASYNC		= "async";
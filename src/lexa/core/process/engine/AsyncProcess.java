@@ -0,0 +1,218 @@
+/*==============================================================================
+ * Lexa - Property of William Norman-Walker
+ *------------------------------------------------------------------------------
+ * AsyncProcess.java
+ *------------------------------------------------------------------------------
+ * Author:  William Norman-Walker
+ * Created: October 2026
+ *==============================================================================
+ */
+package lexa.core.process.engine;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import lexa.core.data.ArrayDataSet;
+import lexa.core.data.DataItem;
+import lexa.core.data.DataSet;
+import lexa.core.process.logging.ProcessLogger;
+import lexa.core.process.ProcessException;
+import lexa.core.process.context.Context;
+import lexa.core.process.factory.ProcessPool;
+
+/**
+ * An asynchronous facade over the processes in a pool.
+ * <p>Each message submitted returns a {@link CompletableFuture} for its reply
+ * in place of the caller driving the {@link lexa.core.process.Status Status}
+ * of a process.  The processes are driven by a {@link ProcessEngine}.
+ * <p>Each request forwarded by a process is passed to the {@link AsyncSender}
+ * and the reply is handed back to the process when the sender completes it;
+ * no thread waits on the reply.  If the sender fails, the process is given a
+ * reply with the error in {@code return} and {@code close ? true}.
+ *
+ * @author William
+ * @since 2026-10
+ */
+public class AsyncProcess
+{
+    /**
+     * Sends the requests forwarded by a process to other services.
+     */
+    public interface AsyncSender
+    {
+        /**
+         * Send a request to another service.
+         * <p>This is called on an engine thread and should not block.
+         *
+         * @param   request
+         *          a message from the {@code messageList} of
+         *          {@link lexa.core.process.LexaProcess#getRequests()
+         *          getRequests}.
+         * @return  a stage that completes with the reply to the request.
+         */
+        CompletionStage<DataSet> send(DataSet request);
+    }
+
+    private final ProcessLogger logger;
+    private final AsyncSender sender;
+    private final ProcessEngine engine;
+
+    /**
+     * Create a facade with a thread for each available processor.
+     *
+     * @param   pool
+     *          the pool of processes to handle the messages.
+     * @param   sender
+     *          the sender for forwarded requests.
+     */
+    public AsyncProcess(ProcessPool pool, AsyncSender sender)
+    {
+        this.logger = new ProcessLogger(AsyncProcess.class.getSimpleName(), null);
+        this.sender = sender;
+        this.engine = new ProcessEngine(pool, this::forward);
+    }
+
+    /**
+     * Create a facade using the supplied executor.
+     * <p>The executor is not shut down when the facade is closed.
+     *
+     * @param   pool
+     *          the pool of processes to handle the messages.
+     * @param   executor
+     *          the executor to run the processes.
+     * @param   sender
+     *          the sender for forwarded requests.
+     */
+    public AsyncProcess(ProcessPool pool, ExecutorService executor,
+            AsyncSender sender)
+    {
+        this.logger = new ProcessLogger(AsyncProcess.class.getSimpleName(), null);
+        this.sender = sender;
+        this.engine = new ProcessEngine(pool, executor, this::forward);
+    }
+
+    /**
+     * Close the facade.
+     * <p>No further messages are accepted; see {@link ProcessEngine#close()}.
+     */
+    public void close()
+    {
+        this.engine.close();
+    }
+
+    /**
+     * Send each forwarded request and return its reply to the process.
+     */
+    private void forward(int processId, DataSet requests)
+    {
+        DataSet messageList = requests.getDataSet(Context.MESSAGE_LIST);
+        if (messageList == null)
+        {
+            return;
+        }
+        for (DataItem item : messageList)
+        {
+            DataSet request = item.getDataSet();
+            CompletionStage<DataSet> stage;
+            try
+            {
+                stage = this.sender.send(request);
+            }
+            catch (RuntimeException ex)
+            {
+                stage = AsyncProcess.failed(ex);
+            }
+            stage.whenComplete((DataSet reply, Throwable ex) ->
+                    this.reply(processId, request, reply, ex));
+        }
+    }
+
+    private static CompletionStage<DataSet> failed(Throwable ex)
+    {
+        CompletableFuture<DataSet> future = new CompletableFuture();
+        future.completeExceptionally(ex);
+        return future;
+    }
+
+    /**
+     * Get the engine driving the processes.
+     *
+     * @return  the engine driving the processes.
+     */
+    public ProcessEngine getEngine()
+    {
+        return this.engine;
+    }
+
+    /**
+     * Return the reply for a forwarded request to its process.
+     */
+    private void reply(int processId, DataSet request, DataSet reply,
+            Throwable exception)
+    {
+        DataSet message;
+        if (exception != null || reply == null)
+        {
+            message = new ArrayDataSet()
+                    .put(request.get(Context.SOURCE))
+                    .put(Context.RETURN, exception == null ?
+                            "No reply" :
+                            String.valueOf(exception.getMessage()))
+                    .put(Context.CLOSE, true);
+        }
+        else if (!reply.contains(Context.SOURCE))
+        {
+            // the process needs the source to match the reply
+            message = new ArrayDataSet(reply)
+                    .put(request.get(Context.SOURCE));
+        }
+        else
+        {
+            message = reply;
+        }
+        try
+        {
+            this.engine.handleReply(processId, message);
+        }
+        catch (ProcessException ex)
+        {
+            // the conversation has already ended, such as a timeout
+            this.logger.debug("Reply dropped", message);
+        }
+    }
+
+    /**
+     * Submit a message to be processed.
+     *
+     * @param   request
+     *          the message to process.
+     * @return  a future that completes with the reply from the process, or
+     *          exceptionally with a {@link ProcessException} if it fails.
+     */
+    public CompletableFuture<DataSet> submit(DataSet request)
+    {
+        CompletableFuture<DataSet> future = new CompletableFuture();
+        try
+        {
+            this.engine.submit(request, new ProcessEngine.ReplyHandler()
+            {
+                @Override
+                public void reply(DataSet reply)
+                {
+                    future.complete(reply);
+                }
+
+                @Override
+                public void error(ProcessException exception)
+                {
+                    future.completeExceptionally(exception);
+                }
+            });
+        }
+        catch (ProcessException ex)
+        {
+            future.completeExceptionally(ex);
+        }
+        return future;
+    }
+}
@@ -0,0 +1,112 @@
+/*==============================================================================
+ * Lexa - Property of William Norman-Walker
+ *------------------------------------------------------------------------------
+ * Flow.java
+ *------------------------------------------------------------------------------
+ * Author:  William Norman-Walker
+ * Created: October 2026
+ *==============================================================================
+ */
+package lexa.core.process.engine;
+
+/**
+ * Interfaces for streams of messages with flow control.
+ * <p>These match {@code java.util.concurrent.Flow}, which is not available
+ * at the Java 8 source level of this project, so a stream can be bridged to
+ * it with a simple adapter.
+ * <p>A {@link Subscriber} is only sent as many items as it has requested
+ * through its {@link Subscription}.
+ *
+ * @author William
+ * @since 2026-10
+ */
+public final class Flow
+{
+    private Flow()
+    {
+    }
+
+    /**
+     * A source of items for a subscriber.
+     *
+     * @param   <T> the type of item published.
+     */
+    public interface Publisher<T>
+    {
+        /**
+         * Add a subscriber to the publisher.
+         *
+         * @param   subscriber
+         *          the subscriber for the items.
+         */
+        void subscribe(Subscriber<? super T> subscriber);
+    }
+
+    /**
+     * A receiver of items from a publisher.
+     * <p>The calls to a subscriber are never made concurrently.
+     *
+     * @param   <T> the type of item received.
+     */
+    public interface Subscriber<T>
+    {
+        /**
+         * Called once the subscription has started.
+         *
+         * @param   subscription
+         *          the subscription to request items.
+         */
+        void onSubscribe(Subscription subscription);
+
+        /**
+         * Called with each item requested.
+         *
+         * @param   item
+         *          the next item.
+         */
+        void onNext(T item);
+
+        /**
+         * Called if the publisher fails; no further calls are made.
+         *
+         * @param   throwable
+         *          the cause of the failure.
+         */
+        void onError(Throwable throwable);
+
+        /**
+         * Called once all the items have been sent; no further calls are made.
+         */
+        void onComplete();
+    }
+
+    /**
+     * The link between a publisher and a subscriber.
+     */
+    public interface Subscription
+    {
+        /**
+         * Request more items.
+         *
+         * @param   n
+         *          the number of items to add to the demand; must be positive.
+         */
+        void request(long n);
+
+        /**
+         * Stop receiving items.
+         */
+        void cancel();
+    }
+
+    /**
+     * A stage that subscribes to one publisher and publishes the results.
+     *
+     * @param   <T> the type of item received.
+     * @param   <R> the type of item published.
+     */
+    public interface Processor<T, R>
+            extends Subscriber<T>, Publisher<R>
+    {
+    }
+}
@@ -0,0 +1,863 @@
+/*==============================================================================
+ * Lexa - Property of William Norman-Walker
+ *------------------------------------------------------------------------------
+ * ProcessEngine.java
+ *------------------------------------------------------------------------------
+ * Author:  William Norman-Walker
+ * Created: October 2026
+ *------------------------------------------------------------------------------
+ * Change Log
+ * Date:        By: Ref:        Description:
+ *==============================================================================
+ */
+package lexa.core.process.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import lexa.core.data.ArrayDataSet;
+import lexa.core.data.DataItem;
+import lexa.core.data.DataSet;
+import lexa.core.data.exception.DataException;
+import lexa.core.expression.ExpressionException;
+import lexa.core.process.logging.ProcessLogger;
+import lexa.core.process.IntTable;
+import lexa.core.process.LexaProcess;
+import lexa.core.process.PipelinedProcess;
+import lexa.core.process.ProcessException;
+import lexa.core.process.capture.CaptureProcess;
+import lexa.core.process.context.Context;
+import lexa.core.process.context.Value;
+import lexa.core.process.factory.ProcessPool;
+
+/**
+ * An engine to drive the {@link lexa.core.process.Status Status} of many
+ * processes across a pool of threads.
+ * <p>Each message submitted to the engine is given a process from a
+ * {@link ProcessPool}; if none are free the message waits in a backlog until
+ * one is released.  The engine then calls the process for each step in the
+ * state engine until the process is waiting on a reply from another service
+ * or the conversation is complete.
+ * <p>A process is only ever scheduled when there is work for it, either a new
+ * message or a reply to a forwarded request; there is no polling of the
+ * status.  At most one thread works on a process at any time.
+ * <p>A {@link PipelinedProcess} is given further messages while it is
+ * waiting on replies, up to its {@code maxRequests}, before another process
+ * is taken from the pool; its replies are matched to their messages by
+ * conversation id, so they may be delivered out of order.
+ * <p>Forwarded requests are passed to the {@link RequestHandler} and the
+ * replies for them must be returned with
+ * {@link #handleReply(int, DataSet) handleReply}.  Replies to the caller are
+ * delivered to the {@link ReplyHandler} given with the message.
+ * <p>Each forwarded request must be answered within the {@code timeout} from
+ * the {@link lexa.core.process.factory.ProcessFactory ProcessFactory}
+ * configuration.  The deadlines are kept on a {@link TimerWheel}; when one
+ * expires the process is given a reply in place of the missing one with
+ * {@code state - timeout}, a {@code return} message and {@code close ? true}.
+ * Any reply arriving after that is dropped.
+ *
+ * @author William
+ * @since 2026-10
+ */
+public class ProcessEngine
+{
+    /**
+     * Receives the replies for a message submitted to the engine.
+     * <p>The handler is called on an engine thread and should not block.
+     */
+    public interface ReplyHandler
+    {
+        /**
+         * Called with each reply from the process.
+         *
+         * @param   reply
+         *          the reply from {@link LexaProcess#getReply()}.
+         */
+        void reply(DataSet reply);
+
+        /**
+         * Called if the process failed while handling the message.
+         * <p>No further calls are made to the handler.
+         *
+         * @param   exception
+         *          the exception raised by the process.
+         */
+        void error(ProcessException exception);
+    }
+
+    /**
+     * Sends the requests forwarded by a process on to other services.
+     * <p>The handler is called on an engine thread and should not block.
+     */
+    public interface RequestHandler
+    {
+        /**
+         * Forward requests from a process.
+         *
+         * @param   processId
+         *          the id of the process to pass back with each reply to
+         *          {@link ProcessEngine#handleReply(int, DataSet) handleReply}.
+         * @param   requests
+         *          the requests from {@link LexaProcess#getRequests()}.
+         */
+        void forward(int processId, DataSet requests);
+    }
+
+    /** length of a tick on the timer wheel in milliseconds */
+    private static final long TICK_LENGTH = 100;
+    /** number of ticks on the timer wheel */
+    private static final int TICKS_PER_WHEEL = 512;
+
+    private final ProcessLogger logger;
+    private final ProcessPool pool;
+    private final ExecutorService executor;
+    private final boolean ownExecutor;
+    private final RequestHandler requestHandler;
+    /** processes with a conversation in progress by id */
+    private final ConcurrentHashMap<Integer, Driver> drivers;
+    /** messages waiting for a process */
+    private final ConcurrentLinkedQueue<Submission> backlog;
+    /** time to wait for a reply to a forwarded request */
+    private final long timeout;
+    /** deadlines for forwarded requests; guarded by its own lock */
+    private final TimerWheel<Deadline> wheel;
+    /** expires the deadlines on the wheel */
+    private final ScheduledExecutorService ticker;
+    private volatile boolean closed;
+
+    /**
+     * Create an engine with a thread for each available processor.
+     *
+     * @param   pool
+     *          the pool of processes to handle the messages.
+     * @param   requestHandler
+     *          the handler for forwarded requests.
+     */
+    public ProcessEngine(ProcessPool pool, RequestHandler requestHandler)
+    {
+        this(pool,
+                Executors.newFixedThreadPool(
+                        Runtime.getRuntime().availableProcessors()),
+                true,
+                requestHandler);
+    }
+
+    /**
+     * Create an engine using the supplied executor.
+     * <p>The executor is not shut down when the engine is closed.
+     *
+     * @param   pool
+     *          the pool of processes to handle the messages.
+     * @param   executor
+     *          the executor to run the processes.
+     * @param   requestHandler
+     *          the handler for forwarded requests.
+     */
+    public ProcessEngine(ProcessPool pool, ExecutorService executor,
+            RequestHandler requestHandler)
+    {
+        this(pool, executor, false, requestHandler);
+    }
+
+    private ProcessEngine(ProcessPool pool, ExecutorService executor,
+            boolean ownExecutor, RequestHandler requestHandler)
+    {
+        this.logger = new ProcessLogger(ProcessEngine.class.getSimpleName(), null);
+        this.pool = pool;
+        this.executor = executor;
+        this.ownExecutor = ownExecutor;
+        this.requestHandler = requestHandler;
+        this.drivers = new ConcurrentHashMap();
+        this.backlog = new ConcurrentLinkedQueue();
+        this.timeout = pool.getFactory().getTimeout();
+        if (this.timeout > 0)
+        {
+            this.wheel = new TimerWheel(ProcessEngine.TICK_LENGTH,
+                    ProcessEngine.TICKS_PER_WHEEL, System.currentTimeMillis());
+            this.ticker = Executors.newSingleThreadScheduledExecutor(
+                    (Runnable runnable) -> {
+                        Thread thread = new Thread(runnable, "ProcessEngine.ticker");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            this.ticker.scheduleAtFixedRate(this::expire,
+                    ProcessEngine.TICK_LENGTH, ProcessEngine.TICK_LENGTH,
+                    TimeUnit.MILLISECONDS);
+        }
+        else
+        {
+            this.wheel = null;
+            this.ticker = null;
+        }
+    }
+
+    /**
+     * Close the engine.
+     * <p>No further messages are accepted and any in the backlog are failed;
+     * conversations already in progress are left to complete.
+     */
+    public void close()
+    {
+        this.closed = true;
+        Submission submission;
+        while ((submission = this.backlog.poll()) != null)
+        {
+            submission.replyHandler.error(
+                    new ProcessException("Process engine closed", submission.request));
+        }
+        if (this.ownExecutor)
+        {
+            this.executor.shutdown();
+        }
+        if (this.ticker != null)
+        {
+            this.ticker.shutdown();
+        }
+    }
+
+    /**
+     * Start conversations for messages in the backlog while processes are free.
+     */
+    private void dispatch()
+    {
+        while (!this.backlog.isEmpty())
+        {
+            Driver open = this.openDriver();
+            if (open != null)
+            {
+                Submission submission = this.backlog.poll();
+                if (submission == null)
+                {
+                    open.unreserve();
+                    return;
+                }
+                open.requests.add(submission);
+                open.wake();
+                continue;
+            }
+            LexaProcess process;
+            try
+            {
+                process = this.pool.acquire(0);
+            }
+            catch (ProcessException | DataException | ExpressionException |
+                    InterruptedException ex)
+            {
+                Submission submission = this.backlog.poll();
+                if (submission != null)
+                {
+                    submission.replyHandler.error(new ProcessException(
+                            "Unable to get a process", submission.request, ex));
+                }
+                continue;
+            }
+            if (process == null)
+            {
+                // the next release will pick up the backlog
+                return;
+            }
+            Submission submission = this.backlog.poll();
+            if (submission == null)
+            {
+                this.pool.release(process);
+                continue;
+            }
+            Driver driver = new Driver(process, submission);
+            this.drivers.put(process.getId(), driver);
+            driver.wake();
+        }
+    }
+
+    /**
+     * Find a pipelined process with room for another message.
+     *
+     * @return  a driver with a message reserved, or {@code null} if there is
+     *          none with room.
+     */
+    private Driver openDriver()
+    {
+        for (Driver driver : this.drivers.values())
+        {
+            if (driver.reserve())
+            {
+                return driver;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get the process that handles many messages at once.
+     *
+     * @return  the pipelined process, or {@code null} if the process
+     *          handles a single message.
+     */
+    private static PipelinedProcess pipelined(LexaProcess process)
+    {
+        LexaProcess inner = process instanceof CaptureProcess ?
+                ((CaptureProcess)process).getProcess() :
+                process;
+        return inner instanceof PipelinedProcess ?
+                (PipelinedProcess)inner :
+                null;
+    }
+
+    /**
+     * Expire the deadlines that are due and give each process its timeout.
+     * <p>This never throws, as an exception would cancel the ticker and no
+     * request would time out again.
+     */
+    private void expire()
+    {
+        List<Deadline> expired = new ArrayList();
+        try
+        {
+            synchronized (this.wheel)
+            {
+                this.wheel.expire(System.currentTimeMillis(), expired::add);
+            }
+        }
+        catch (RuntimeException ex)
+        {
+            this.logger.error("Unable to expire deadlines", null, ex);
+        }
+        for (Deadline deadline : expired)
+        {
+            try
+            {
+                deadline.driver.timeout(deadline.messageId);
+            }
+            catch (RuntimeException ex)
+            {
+                this.logger.error("Unable to time out request " + deadline.messageId,
+                        null, ex);
+            }
+        }
+    }
+
+    /**
+     * Get the number of processes with conversations in progress.
+     *
+     * @return  the number of processes with conversations in progress.
+     */
+    public int getActive()
+    {
+        return this.drivers.size();
+    }
+
+    /**
+     * Get the number of messages waiting for a process.
+     *
+     * @return  the number of messages waiting for a process.
+     */
+    public int getBacklog()
+    {
+        return this.backlog.size();
+    }
+
+    /**
+     * Handle a reply to a request forwarded by a process.
+     *
+     * @param   processId
+     *          the id passed to the {@link RequestHandler}.
+     * @param   reply
+     *          the reply to the forwarded request.
+     * @throws  ProcessException
+     *          when the process is not known to the engine.
+     */
+    public void handleReply(int processId, DataSet reply)
+            throws ProcessException
+    {
+        Driver driver = this.drivers.get(processId);
+        if (driver == null)
+        {
+            throw new ProcessException("No process for reply", reply);
+        }
+        driver.inbox.add(reply);
+        driver.wake();
+    }
+
+    /**
+     * Submit a message to be processed.
+     *
+     * @param   request
+     *          the message to process.
+     * @param   replyHandler
+     *          the handler for the reply.
+     * @throws  ProcessException
+     *          when the engine is closed.
+     */
+    public void submit(DataSet request, ReplyHandler replyHandler)
+            throws ProcessException
+    {
+        if (this.closed)
+        {
+            throw new ProcessException("Process engine closed", request);
+        }
+        this.backlog.add(new Submission(request, replyHandler));
+        this.dispatch();
+    }
+
+    /**
+     * A message waiting for a process.
+     */
+    private static class Submission
+    {
+        private final DataSet request;
+        private final ReplyHandler replyHandler;
+
+        private Submission(DataSet request, ReplyHandler replyHandler)
+        {
+            this.request = request;
+            this.replyHandler = replyHandler;
+        }
+    }
+
+    /**
+     * The deadline for a reply to a forwarded request.
+     */
+    private static class Deadline
+    {
+        private final Driver driver;
+        private final int messageId;
+
+        private Deadline(Driver driver, int messageId)
+        {
+            this.driver = driver;
+            this.messageId = messageId;
+        }
+    }
+
+    /**
+     * Drives a single process through its conversations.
+     * <p>The driver is only run by one thread at a time; the
+     * {@code scheduled} flag hands it from one thread to the next.
+     */
+    private class Driver
+            implements Runnable
+    {
+        private final LexaProcess process;
+        /** the process if it handles many messages; otherwise {@code null} */
+        private final PipelinedProcess pipelined;
+        /** messages waiting to be handed to the process */
+        private final ConcurrentLinkedQueue<Submission> requests;
+        /** handler for each message in progress by conversation id */
+        private final IntTable<ReplyHandler> handlers;
+        /** messages given to the driver and not yet replied; -1 once finished */
+        private final AtomicInteger slots;
+        /** replies waiting to be handled by the process */
+        private final ConcurrentLinkedQueue<DataSet> inbox;
+        private final AtomicBoolean scheduled;
+        /** deadlines for forwarded requests by message id */
+        private final IntTable<TimerWheel.Timeout<Deadline>> outstanding;
+        /** set once the process has been released */
+        private volatile boolean finished;
+        /** the handler for a process with a single message */
+        private ReplyHandler replyHandler;
+        /** set once a reply has been returned */
+        private boolean replied;
+
+        private Driver(LexaProcess process, Submission submission)
+        {
+            this.process = process;
+            this.pipelined = ProcessEngine.pipelined(process);
+            this.requests = new ConcurrentLinkedQueue();
+            this.requests.add(submission);
+            this.handlers = new IntTable();
+            this.slots = new AtomicInteger(1);
+            this.inbox = new ConcurrentLinkedQueue();
+            this.scheduled = new AtomicBoolean();
+            this.outstanding = new IntTable();
+        }
+
+        /**
+         * Start the deadlines for requests forwarded by the process.
+         */
+        private void arm(DataSet requests)
+        {
+            DataSet messageList = requests.getDataSet(Context.MESSAGE_LIST);
+            if (ProcessEngine.this.wheel == null || messageList == null)
+            {
+                return;
+            }
+            long deadline = System.currentTimeMillis() + ProcessEngine.this.timeout;
+            synchronized (ProcessEngine.this.wheel)
+            {
+                for (DataItem item : messageList)
+                {
+                    int messageId;
+                    try
+                    {
+                        messageId = Integer.parseInt(item.getKey());
+                    }
+                    catch (NumberFormatException ex)
+                    {
+                        // only numbered messages can be matched to replies
+                        continue;
+                    }
+                    this.outstanding.put(messageId,
+                            ProcessEngine.this.wheel.schedule(
+                                    new Deadline(this, messageId), deadline));
+                }
+            }
+        }
+
+        /**
+         * Check a reply is for a request that is still outstanding.
+         *
+         * @return  {@code true} if the reply should be passed to the process.
+         */
+        private boolean disarm(DataSet reply)
+        {
+            if (ProcessEngine.this.wheel == null)
+            {
+                return true;
+            }
+            DataSet source = reply.getDataSet(Context.SOURCE);
+            Integer messageId = source == null ?
+                    null :
+                    source.getInteger(Context.SOURCE_REF);
+            if (messageId == null)
+            {
+                return true;
+            }
+            TimerWheel.Timeout<Deadline> deadline =
+                    this.outstanding.remove(messageId);
+            if (deadline == null)
+            {
+                // already timed out or never sent
+                ProcessEngine.this.logger.debug("Late reply dropped", reply);
+                return false;
+            }
+            synchronized (ProcessEngine.this.wheel)
+            {
+                ProcessEngine.this.wheel.cancel(deadline);
+            }
+            return true;
+        }
+
+        /**
+         * Cancel the deadlines still outstanding when the conversation ends.
+         */
+        private void disarmAll()
+        {
+            if (ProcessEngine.this.wheel == null || this.outstanding.isEmpty())
+            {
+                return;
+            }
+            synchronized (ProcessEngine.this.wheel)
+            {
+                this.outstanding.forEach(ProcessEngine.this.wheel::cancel);
+            }
+            this.outstanding.clear();
+        }
+
+        /**
+         * Fail the messages in progress after the process failed.
+         */
+        private void fail(ProcessException ex)
+        {
+            if (this.pipelined == null)
+            {
+                this.replyHandler.error(ex);
+                return;
+            }
+            this.handlers.forEach((ReplyHandler handler) -> handler.error(ex));
+            this.handlers.clear();
+        }
+
+        /**
+         * Give the messages not yet handed to the process back to the
+         * backlog.
+         */
+        private void requeue()
+        {
+            Submission submission;
+            while ((submission = this.requests.poll()) != null)
+            {
+                ProcessEngine.this.backlog.add(submission);
+            }
+        }
+
+        /**
+         * Reserve room in a pipelined process for another message.
+         *
+         * @return  {@code true} if the room was reserved.
+         */
+        private boolean reserve()
+        {
+            if (this.pipelined == null)
+            {
+                return false;
+            }
+            int max = this.pipelined.getMaxRequests();
+            int reserved;
+            do
+            {
+                reserved = this.slots.get();
+                if (reserved < 0 || reserved >= max)
+                {
+                    return false;
+                }
+            }
+            while (!this.slots.compareAndSet(reserved, reserved + 1));
+            return true;
+        }
+
+        /**
+         * Give the process a reply for a request that has timed out.
+         */
+        private void timeout(int messageId)
+        {
+            if (this.finished)
+            {
+                return;
+            }
+            this.inbox.add(new ArrayDataSet()
+                    .put(Context.SOURCE, new ArrayDataSet()
+                            .put(Context.SOURCE_REF, messageId))
+                    .put(Context.STATE, Value.TIMEOUT)
+                    .put(Context.RETURN, Value.TIMEOUT_MESSAGE)
+                    .put(Context.CLOSE, true));
+            this.wake();
+        }
+
+        /**
+         * Release room reserved for a message that was not given.
+         */
+        private void unreserve()
+        {
+            this.slots.decrementAndGet();
+            // the process may be waiting for the message to finish
+            this.wake();
+        }
+
+        /**
+         * Schedule the driver unless it is already scheduled.
+         */
+        private void wake()
+        {
+            if (this.scheduled.compareAndSet(false, true))
+            {
+                ProcessEngine.this.executor.execute(this);
+            }
+        }
+
+        @Override
+        public void run()
+        {
+            if (this.finished)
+            {
+                // a message given while the process was being released
+                this.drain();
+                return;
+            }
+            try
+            {
+                do
+                {
+                    if (this.step())
+                    {
+                        this.finish();
+                        return;
+                    }
+                    // a reply may arrive after the inbox was drained
+                    this.scheduled.set(false);
+                }
+                while ((!this.inbox.isEmpty() || !this.requests.isEmpty()) &&
+                        this.scheduled.compareAndSet(false, true));
+            }
+            catch (ProcessException ex)
+            {
+                ex.log(ProcessEngine.this.logger);
+                this.fail(ex);
+                this.finish();
+            }
+            catch (RuntimeException ex)
+            {
+                ProcessEngine.this.logger.error("Process failed", null, ex);
+                this.fail(new ProcessException(ex.getMessage(), ex));
+                this.finish();
+            }
+        }
+
+        /**
+         * Run the process until it has to wait.
+         *
+         * @return  {@code true} if the conversation is complete.
+         */
+        private boolean step()
+                throws ProcessException
+        {
+            Submission submission;
+            while ((submission = this.requests.poll()) != null)
+            {
+                if (this.pipelined == null)
+                {
+                    this.replyHandler = submission.replyHandler;
+                    this.process.handleRequest(submission.request);
+                    continue;
+                }
+                try
+                {
+                    this.process.handleRequest(submission.request);
+                }
+                catch (ProcessException ex)
+                {
+                    // only this message fails
+                    ex.log(ProcessEngine.this.logger);
+                    submission.replyHandler.error(ex);
+                    this.slots.decrementAndGet();
+                    continue;
+                }
+                this.handlers.put(this.pipelined.getLastId(),
+                        submission.replyHandler);
+            }
+            DataSet reply;
+            while ((reply = this.inbox.poll()) != null)
+            {
+                if (this.disarm(reply))
+                {
+                    this.process.handleReply(reply);
+                }
+            }
+            while (true)
+            {
+                switch (this.process.getStatus().getCurrent())
+                {
+                    case WAITING_PROCESS :
+                    {
+                        this.process.process();
+                        break;
+                    }
+                    case REQUEST_PENDING :
+                    {
+                        DataSet requests = this.process.getRequests();
+                        if (requests != null)
+                        {
+                            ProcessEngine.this.requestHandler.forward(
+                                    this.process.getId(), requests);
+                            this.arm(requests);
+                        }
+                        break;
+                    }
+                    case REPLY_READY :
+                    {
+                        if (this.pipelined != null)
+                        {
+                            this.replyPipelined();
+                            break;
+                        }
+                        this.replyHandler.reply(this.process.getReply());
+                        this.replied = true;
+                        break;
+                    }
+                    case WAITING_REPLY :
+                    {
+                        return false;
+                    }
+                    default :
+                    {
+                        if (this.pipelined != null)
+                        {
+                            return this.idle();
+                        }
+                        if (!this.replied)
+                        {
+                            throw new ProcessException(
+                                    "Process is idle without a reply");
+                        }
+                        return true;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Check if a pipelined process has finished when it has no work.
+         *
+         * @return  {@code true} if there are no messages in progress or
+         *          reserved, so the process can be released.
+         */
+        private boolean idle()
+                throws ProcessException
+        {
+            if (this.process.getStatus().waitingReply())
+            {
+                // still accepting requests while others wait on replies
+                return false;
+            }
+            if (!this.handlers.isEmpty())
+            {
+                throw new ProcessException("Process is idle without a reply");
+            }
+            // a message reserved but not yet given wakes the driver again
+            return this.slots.compareAndSet(0, -1);
+        }
+
+        /**
+         * Return the next reply from a pipelined process to its handler.
+         */
+        private void replyPipelined()
+                throws ProcessException
+        {
+            ReplyHandler handler = this.handlers.remove(this.pipelined.getReadyId());
+            if (handler == null)
+            {
+                throw new ProcessException("No message for reply");
+            }
+            this.slots.decrementAndGet();
+            DataSet reply;
+            try
+            {
+                reply = this.process.getReply();
+            }
+            catch (ProcessException ex)
+            {
+                // only this message fails
+                ex.log(ProcessEngine.this.logger);
+                handler.error(ex);
+                return;
+            }
+            handler.reply(reply);
+        }
+
+        /**
+         * End the conversations and give the process to the next message.
+         */
+        private void finish()
+        {
+            this.finished = true;
+            // no more reservations, but one already made may still be given
+            int reserved;
+            do
+            {
+                reserved = this.slots.get();
+            }
+            while (reserved >= 0 && !this.slots.compareAndSet(reserved, -1));
+            this.disarmAll();
+            ProcessEngine.this.drivers.remove(this.process.getId());
+            ProcessEngine.this.pool.release(this.process);
+            this.drain();
+        }
+
+        /**
+         * Give a finished driver's messages back to the backlog.
+         * <p>The driver is unscheduled before the messages are taken, so a
+         * message given after this wakes the driver and is taken then.
+         */
+        private void drain()
+        {
+            this.scheduled.set(false);
+            this.requeue();
+            ProcessEngine.this.dispatch();
+        }
+    }
+}
@@ -0,0 +1,335 @@
+/*==============================================================================
+ * Lexa - Property of William Norman-Walker
+ *------------------------------------------------------------------------------
+ * ProcessFlow.java
+ *------------------------------------------------------------------------------
+ * Author:  William Norman-Walker
+ * Created: October 2026
+ *==============================================================================
+ */
+package lexa.core.process.engine;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import lexa.core.data.ArrayDataSet;
+import lexa.core.data.DataSet;
+import lexa.core.process.ProcessException;
+import lexa.core.process.context.Context;
+import lexa.core.process.factory.ProcessPool;
+
+/**
+ * Passes a stream of requests through the processes in a pool and publishes
+ * the replies.
+ * <p>The flow subscribes to a {@link Flow.Publisher} of requests and hands
+ * each one to a {@link ProcessEngine}; the replies are published to a single
+ * subscriber in the order they complete.
+ * <p>Requests are only taken from the publisher while the messages in the
+ * engine plus the replies waiting for the subscriber are fewer than the
+ * {@code maxProcesses} for the pool.  A slow subscriber therefore slows the
+ * intake of requests and nothing is buffered without limit.
+ * <p>If a process fails on a request then the request is published with the
+ * error in {@code return} and {@code close ? true} so the stream continues.
+ * <p>The engine is closed once the stream ends.
+ *
+ * @author William
+ * @since 2026-10
+ */
+public class ProcessFlow
+        implements Flow.Processor<DataSet, DataSet>
+{
+    private final ProcessEngine engine;
+    /** most messages held by the flow */
+    private final int maxProcesses;
+    /** replies waiting for the subscriber */
+    private final ConcurrentLinkedQueue<DataSet> ready;
+    /** demand from the subscriber */
+    private final AtomicLong demand;
+    /** requests asked of the publisher and not yet received */
+    private final AtomicInteger requested;
+    /** requests in the engine */
+    private final AtomicInteger inFlight;
+    /** serialises the calls to the subscriber */
+    private final AtomicInteger wip;
+    private volatile Flow.Subscription upstream;
+    private volatile Flow.Subscriber<? super DataSet> downstream;
+    /** the publisher has completed */
+    private volatile boolean done;
+    private volatile Throwable error;
+    private volatile boolean cancelled;
+    /** the subscriber has been completed; only used in drain */
+    private boolean terminated;
+
+    /**
+     * Create a flow through the processes in a pool.
+     *
+     * @param   pool
+     *          the pool of processes to handle the requests.
+     * @param   requestHandler
+     *          the handler for forwarded requests; the replies are returned
+     *          through {@link #getEngine() getEngine}.
+     */
+    public ProcessFlow(ProcessPool pool, ProcessEngine.RequestHandler requestHandler)
+    {
+        this.engine = new ProcessEngine(pool, requestHandler);
+        this.maxProcesses = pool.getMaxProcesses();
+        this.ready = new ConcurrentLinkedQueue();
+        this.demand = new AtomicLong();
+        this.requested = new AtomicInteger();
+        this.inFlight = new AtomicInteger();
+        this.wip = new AtomicInteger();
+    }
+
+    /**
+     * Deliver the replies that have been requested, complete the subscriber
+     * when the stream ends and ask the publisher for more requests.
+     */
+    private void drain()
+    {
+        if (this.wip.getAndIncrement() != 0)
+        {
+            return;
+        }
+        int missed = 1;
+        do
+        {
+            Flow.Subscriber<? super DataSet> subscriber = this.downstream;
+            if (subscriber != null && !this.terminated)
+            {
+                if (this.cancelled)
+                {
+                    this.ready.clear();
+                }
+                else
+                {
+                    this.emit(subscriber);
+                }
+            }
+            missed = this.wip.addAndGet(-missed);
+        }
+        while (missed != 0);
+    }
+
+    /**
+     * Called by {@link #drain() drain} to publish to the subscriber.
+     */
+    private void emit(Flow.Subscriber<? super DataSet> subscriber)
+    {
+        long wanted = this.demand.get();
+        long sent = 0;
+        while (sent != wanted)
+        {
+            DataSet reply = this.ready.poll();
+            if (reply == null)
+            {
+                break;
+            }
+            subscriber.onNext(reply);
+            sent++;
+        }
+        if (sent > 0 && wanted != Long.MAX_VALUE)
+        {
+            this.demand.addAndGet(-sent);
+        }
+        if (this.error != null)
+        {
+            this.terminate();
+            subscriber.onError(this.error);
+            return;
+        }
+        if (this.done && this.inFlight.get() == 0 && this.ready.isEmpty())
+        {
+            this.terminate();
+            subscriber.onComplete();
+            return;
+        }
+        Flow.Subscription subscription = this.upstream;
+        if (subscription != null && !this.done)
+        {
+            int more = this.maxProcesses - this.inFlight.get() -
+                    this.ready.size() - this.requested.get();
+            if (more > 0)
+            {
+                this.requested.addAndGet(more);
+                subscription.request(more);
+            }
+        }
+    }
+
+    /**
+     * Get the engine driving the processes.
+     * <p>Replies to forwarded requests are returned through
+     * {@link ProcessEngine#handleReply(int, DataSet) handleReply}.
+     *
+     * @return  the engine driving the processes.
+     */
+    public ProcessEngine getEngine()
+    {
+        return this.engine;
+    }
+
+    @Override
+    public void onComplete()
+    {
+        this.done = true;
+        this.drain();
+    }
+
+    @Override
+    public void onError(Throwable throwable)
+    {
+        this.error = throwable;
+        this.done = true;
+        this.drain();
+    }
+
+    @Override
+    public void onNext(DataSet request)
+    {
+        this.inFlight.incrementAndGet();
+        this.requested.decrementAndGet();
+        try
+        {
+            this.engine.submit(request, new ReplyHandler(request));
+        }
+        catch (ProcessException ex)
+        {
+            this.reply(ProcessFlow.failed(request, ex));
+        }
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription)
+    {
+        if (this.upstream != null)
+        {
+            subscription.cancel();
+            return;
+        }
+        this.upstream = subscription;
+        this.drain();
+    }
+
+    private static DataSet failed(DataSet request, ProcessException exception)
+    {
+        return new ArrayDataSet(request)
+                .put(Context.RETURN, exception.getMessage())
+                .put(Context.CLOSE, true);
+    }
+
+    /**
+     * Queue the reply for a request that has left the engine.
+     */
+    private void reply(DataSet reply)
+    {
+        this.ready.add(reply);
+        this.inFlight.decrementAndGet();
+        this.drain();
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super DataSet> subscriber)
+    {
+        if (this.downstream != null)
+        {
+            subscriber.onSubscribe(new Flow.Subscription()
+            {
+                @Override
+                public void request(long n)
+                {
+                }
+
+                @Override
+                public void cancel()
+                {
+                }
+            });
+            subscriber.onError(
+                    new IllegalStateException("ProcessFlow only supports one subscriber"));
+            return;
+        }
+        this.downstream = subscriber;
+        subscriber.onSubscribe(new Flow.Subscription()
+        {
+            @Override
+            public void request(long n)
+            {
+                if (n <= 0)
+                {
+                    ProcessFlow.this.onError(new IllegalArgumentException(
+                            "Demand must be positive: " + n));
+                    return;
+                }
+                ProcessFlow.this.demand.getAndUpdate((long current) -> {
+                    long total = current + n;
+                    return total < 0 ? Long.MAX_VALUE : total;
+                });
+                ProcessFlow.this.drain();
+            }
+
+            @Override
+            public void cancel()
+            {
+                ProcessFlow.this.cancelled = true;
+                Flow.Subscription subscription = ProcessFlow.this.upstream;
+                if (subscription != null)
+                {
+                    subscription.cancel();
+                }
+                ProcessFlow.this.engine.close();
+                ProcessFlow.this.drain();
+            }
+        });
+        this.drain();
+    }
+
+    /**
+     * Mark the stream as ended and release the engine.
+     */
+    private void terminate()
+    {
+        this.terminated = true;
+        this.engine.close();
+    }
+
+    /**
+     * Receives the reply for a single request from the engine.
+     */
+    private class ReplyHandler
+            implements ProcessEngine.ReplyHandler
+    {
+        private final DataSet request;
+        /** set once the request has left the engine */
+        private boolean replied;
+
+        private ReplyHandler(DataSet request)
+        {
+            this.request = request;
+        }
+
+        @Override
+        public void reply(DataSet reply)
+        {
+            if (this.replied)
+            {
+                // a process may reply more than once
+                ProcessFlow.this.ready.add(reply);
+                ProcessFlow.this.drain();
+                return;
+            }
+            this.replied = true;
+            ProcessFlow.this.reply(reply);
+        }
+
+        @Override
+        public void error(ProcessException exception)
+        {
+            if (this.replied)
+            {
+                return;
+            }
+            this.replied = true;
+            ProcessFlow.this.reply(ProcessFlow.failed(this.request, exception));
+        }
+    }
+}
@@ -0,0 +1,221 @@
+/*==============================================================================
+ * Lexa - Property of William Norman-Walker
+ *------------------------------------------------------------------------------
+ * TimerWheel.java
+ *------------------------------------------------------------------------------
+ * Author:  William Norman-Walker
+ * Created: October 2026
+ *==============================================================================
+ */
+package lexa.core.process.engine;
+
+import java.util.function.Consumer;
+
+/**
+ * A hashed timer wheel for tracking deadlines.
+ * <p>Time is split into ticks and each deadline is placed in the bucket for
+ * the tick it falls due; buckets are reused on each turn of the wheel.
+ * Scheduling and cancelling a deadline are constant time, expiring the due
+ * deadlines only visits the buckets for the ticks that have passed.
+ * <p>Deadlines never expire early but may expire up to a tick late.
+ * <p>The wheel is not thread safe.
+ *
+ * @param   <T> the type of task held by each deadline.
+ * @author William
+ * @since 2026-10
+ */
+public final class TimerWheel<T>
+{
+    /**
+     * A deadline scheduled on the wheel.
+     *
+     * @param   <T> the type of task held by the deadline.
+     */
+    public static final class Timeout<T>
+    {
+        private final T task;
+        /** the tick the deadline falls due */
+        private final long tick;
+        private int bucket;
+        private Timeout<T> previous;
+        private Timeout<T> next;
+
+        private Timeout(T task, long tick, int bucket)
+        {
+            this.task = task;
+            this.tick = tick;
+            this.bucket = bucket;
+        }
+
+        /**
+         * Get the task for the deadline.
+         *
+         * @return  the task for the deadline.
+         */
+        public T getTask()
+        {
+            return this.task;
+        }
+
+        /**
+         * Indicates if the deadline is still waiting to expire.
+         *
+         * @return  {@code true} if the deadline is on the wheel,
+         *          otherwise {@code false}.
+         */
+        public boolean isPending()
+        {
+            return this.bucket >= 0;
+        }
+    }
+
+    private final Timeout<T>[] buckets;
+    private final int mask;
+    /** length of a tick in milliseconds */
+    private final long tickLength;
+    /** time the wheel started */
+    private final long start;
+    /** the next tick to be expired */
+    private long currentTick;
+    private int size;
+
+    /**
+     * Create a timer wheel.
+     *
+     * @param   tickLength
+     *          the length of a tick in milliseconds.
+     * @param   ticksPerWheel
+     *          the number of buckets; rounded up to a power of two.
+     * @param   now
+     *          the current time in milliseconds.
+     */
+    public TimerWheel(long tickLength, int ticksPerWheel, long now)
+    {
+        if (tickLength < 1 || ticksPerWheel < 1)
+        {
+            throw new IllegalArgumentException("Invalid timer wheel " +
+                    tickLength + "ms x " + ticksPerWheel);
+        }
+        int wheelSize = 1;
+        while (wheelSize < ticksPerWheel)
+        {
+            wheelSize <<= 1;
+        }
+        this.buckets = new Timeout[wheelSize];
+        this.mask = wheelSize - 1;
+        this.tickLength = tickLength;
+        this.start = now;
+        this.currentTick = 0;
+    }
+
+    /**
+     * Cancel a deadline.
+     *
+     * @param   timeout
+     *          the deadline to cancel.
+     * @return  {@code true} if the deadline was cancelled,
+     *          otherwise {@code false} as it had already expired or been
+     *          cancelled.
+     */
+    public boolean cancel(Timeout<T> timeout)
+    {
+        if (!timeout.isPending())
+        {
+            return false;
+        }
+        this.unlink(timeout);
+        return true;
+    }
+
+    /**
+     * Expire all the deadlines that are due.
+     *
+     * @param   now
+     *          the current time in milliseconds.
+     * @param   expired
+     *          called with the task for each deadline that expires.
+     * @return  the number of deadlines expired.
+     */
+    public int expire(long now, Consumer<T> expired)
+    {
+        int count = 0;
+        while (this.start + this.currentTick * this.tickLength <= now)
+        {
+            int bucket = (int)(this.currentTick & this.mask);
+            Timeout<T> timeout = this.buckets[bucket];
+            while (timeout != null)
+            {
+                Timeout<T> next = timeout.next;
+                if (timeout.tick <= this.currentTick)
+                {
+                    this.unlink(timeout);
+                    expired.accept(timeout.task);
+                    count++;
+                }
+                timeout = next;
+            }
+            this.currentTick++;
+        }
+        return count;
+    }
+
+    /**
+     * Schedule a deadline.
+     *
+     * @param   task
+     *          the task for the deadline.
+     * @param   deadline
+     *          the time in milliseconds the deadline falls due.
+     * @return  the deadline, which can be used to cancel it.
+     */
+    public Timeout<T> schedule(T task, long deadline)
+    {
+        // round up so the deadline never expires early
+        long tick = (deadline - this.start + this.tickLength - 1) / this.tickLength;
+        if (tick < this.currentTick)
+        {
+            tick = this.currentTick;
+        }
+        int bucket = (int)(tick & this.mask);
+        Timeout<T> timeout = new Timeout(task, tick, bucket);
+        Timeout<T> head = this.buckets[bucket];
+        timeout.next = head;
+        if (head != null)
+        {
+            head.previous = timeout;
+        }
+        this.buckets[bucket] = timeout;
+        this.size++;
+        return timeout;
+    }
+
+    /**
+     * Get the number of deadlines waiting to expire.
+     *
+     * @return  the number of deadlines waiting to expire.
+     */
+    public int size()
+    {
+        return this.size;
+    }
+
+    private void unlink(Timeout<T> timeout)
+    {
+        if (timeout.previous != null)
+        {
+            timeout.previous.next = timeout.next;
+        }
+        else
+        {
+            this.buckets[timeout.bucket] = timeout.next;
+        }
+        if (timeout.next != null)
+        {
+            timeout.next.previous = timeout.previous;
+        }
+        timeout.previous = null;
+        timeout.next = null;
+        timeout.bucket = -1;
+        this.size--;
+    }
+}
@@ -0,0 +1,27 @@
+/*==============================================================================
+ *  Lexa - Property of William Norman-Walker
+ * ------------------------------------------------------------------------------
+ *  package-info.java (lxProcess)
+ * ------------------------------------------------------------------------------
+ *  Author:  William Norman-Walker
+ *  Created: October 2026
+ * ==============================================================================
+ */
+
+/**
+ * Hosting for Lexa processes.
+ * <p>
+ * The {@link lexa.core.process.engine.ProcessEngine ProcessEngine} takes
+ * messages and drives the processes that handle them across a pool of threads,
+ * in place of a host polling each process for its status.
+ * <p>
+ * The {@link lexa.core.process.engine.AsyncProcess AsyncProcess} wraps an
+ * engine so each message returns a future for its reply.
+ * The {@link lexa.core.process.engine.ProcessFlow ProcessFlow} passes a
+ * {@link lexa.core.process.engine.Flow.Publisher Publisher} of messages
+ * through an engine with the intake limited by the subscriber's demand.
+ *
+ * @author  william
+ * @since   2026-10
+ */
+package lexa.core.process.engine;
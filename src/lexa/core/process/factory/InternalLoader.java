@@ -21,6 +21,7 @@ import lexa.core.data.exception.DataException;
 import lexa.core.process.ConfigProcess;
 import lexa.core.process.Echo;
 import lexa.core.process.PassThrough;
+import lexa.core.process.PipelinedEcho;
 import lexa.core.process.LexaProcess;
 import lexa.core.process.context.Value;
 
@@ -49,6 +50,11 @@ public class InternalLoader
 				this.loader = () -> new Echo();
 				break;
 			}
+			case Value.CLASS_PIPELINED_ECHO :
+			{
+				this.loader = () -> new PipelinedEcho();
+				break;
+			}
 			case Value.CLASS_PASS_THROUGH :
 			{
 				this.loader = () -> new PassThrough();
@@ -12,16 +12,28 @@
  */
 package lexa.core.process.factory;
 
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.management.JMException;
+import lexa.core.data.config.ConfigDataItem;
 import lexa.core.data.config.ConfigDataSet;
 import lexa.core.data.DataSet;
 import lexa.core.data.ArrayDataSet;
+import lexa.core.data.DataType;
 import lexa.core.data.exception.DataException;
 import lexa.core.expression.ExpressionException;
 import lexa.core.expression.function.FunctionLibrary;
 import lexa.core.logging.Logger;
 import lexa.core.process.ProcessException;
 import lexa.core.process.LexaProcess;
+import lexa.core.process.TemplateProcess;
+import lexa.core.process.capture.CaptureLog;
+import lexa.core.process.capture.CaptureProcess;
 import lexa.core.process.context.Config;
+import lexa.core.process.context.Value;
+import lexa.core.process.metrics.JmxMetrics;
+import lexa.core.process.metrics.ProcessMetrics;
+import lexa.core.process.metrics.SimpleMetricsRegistry;
 
 /**
  * A factory for creating and initialising processes.
@@ -33,16 +45,32 @@ public class ProcessFactory
 {
 	private final Logger logger;
 
-    private static int lastProcessId = 0;
+    private static final AtomicInteger lastProcessId = new AtomicInteger();
     private static int getNextProcessId()
     {
-        return ++ProcessFactory.lastProcessId;
+        return ProcessFactory.lastProcessId.incrementAndGet();
     }
+    /** keeps the MBean names unique when factories share a class path */
+    private static final AtomicInteger lastFactoryId = new AtomicInteger();
 
 	private final String classPath;
 	private final ProcessLoaderInterface loader;
 	private final FunctionLibrary functionLibrary;
 	private final DataSet processConfig;
+	private final int minProcesses;
+	private final int maxProcesses;
+	private final int timeout;
+	/** metrics for the instances; {@code null} when not recorded */
+	private final ProcessMetrics metrics;
+	/** the MBean publishing the metrics; {@code null} if not registered */
+	private final JmxMetrics mbean;
+	/** log of the traffic through the instances; {@code null} if not captured */
+	private final CaptureLog capture;
+	/**
+	 * shared configuration for {@link TemplateProcess} instances; only read
+	 * back as its type by {@link #getTemplate(TemplateProcess) getTemplate}
+	 */
+	private volatile Object template;
 
     /**
      * Creates a factory for instantiating processes.
@@ -73,6 +101,18 @@ public class ProcessFactory
                 config.factory().getDataSet()).getDataSet()
         );
         this.functionLibrary = functionLibrary;
+        this.minProcesses = config.get(Config.MIN_PROCESSES,
+                Value.DEFAULT_MIN_PROCESSES).getInteger();
+        this.maxProcesses = config.get(Config.MAX_PROCESSES,
+                Value.DEFAULT_MAX_PROCESSES).getInteger();
+        this.timeout = config.get(Config.TIMEOUT,
+                Value.DEFAULT_TIMEOUT).getInteger();
+        if (this.minProcesses < 0 || this.maxProcesses < 1 ||
+                this.minProcesses > this.maxProcesses)
+        {
+            throw new DataException("Invalid process limits " +
+                    this.minProcesses + " to " + this.maxProcesses);
+        }
         String loaderPath=config.get(Config.CLASS_LOADER,
                     InternalLoader.class.getCanonicalName()).getString();
 		try
@@ -87,6 +127,100 @@ public class ProcessFactory
 			throw new DataException(this.classPath);
 		}
 		this.loader.initialise(classPath);
+        if (config.get(Config.METRICS, true).getBoolean())
+        {
+            this.metrics = new ProcessMetrics(new SimpleMetricsRegistry());
+            this.mbean = config.get(Config.JMX, false).getBoolean() ?
+                    this.registerMetrics() :
+                    null;
+        }
+        else
+        {
+            this.metrics = null;
+            this.mbean = null;
+        }
+        if (config.contains(Config.CAPTURE))
+        {
+            config.validateType(Config.CAPTURE, DataType.DATA_SET);
+            this.capture = this.openCapture(
+                    ((ConfigDataItem)config.get(Config.CAPTURE)).getDataSet());
+        }
+        else
+        {
+            this.capture = null;
+        }
+    }
+
+    /**
+     * Close the factory.
+     * <p>The metrics are removed from the platform MBean server, if they
+     * were published, and the capture log is closed.
+     */
+    public void close()
+    {
+        if (this.capture != null)
+        {
+            this.capture.close();
+        }
+        if (this.mbean != null)
+        {
+            try
+            {
+                this.mbean.unregister();
+            }
+            catch (JMException ex)
+            {
+                this.logger.error("Unable to unregister the metrics", null, ex);
+            }
+        }
+    }
+
+    /**
+     * Get the metrics recorded by the instances.
+     * <p>Metrics are recorded unless {@code metrics} is {@code false} in the
+     * configuration; they are only published as an MBean when {@code jmx} is
+     * {@code true}, and must then be removed by closing the factory.
+     *
+     * @return  the metrics for the instances, or {@code null} if they are not
+     *          recorded.
+     */
+    public ProcessMetrics getMetrics()
+    {
+        return this.metrics;
+    }
+
+    /**
+     * Get the maximum number of processes to be instantiated.
+     * <p>This is read from {@code maxProcesses} in the configuration.
+     *
+     * @return  the maximum number of processes.
+     */
+    public int getMaxProcesses()
+    {
+        return this.maxProcesses;
+    }
+
+    /**
+     * Get the time to wait for a reply to a forwarded request.
+     * <p>This is read from {@code timeout} in the configuration; a value of
+     * zero or less means requests never time out.
+     *
+     * @return  the timeout in milliseconds.
+     */
+    public int getTimeout()
+    {
+        return this.timeout;
+    }
+
+    /**
+     * Get the number of processes to instantiate in advance.
+     * <p>This is read from {@code minProcesses} in the configuration.
+     *
+     * @return  the minimum number of processes.
+     */
+    public int getMinProcesses()
+    {
+        return this.minProcesses;
     }
 
 	/**
@@ -95,6 +229,9 @@ public class ProcessFactory
      * then given its configuration via a call to
      * {@link LexaProcess#initialise(lexa.core.expression.function.FunctionLibrary, lexa.core.data.config.ConfigDataSet)
      * initialise(FunctionLibrary, ConfigData)}.
+     * <p>A {@link TemplateProcess} is instead initialised with a template
+     * compiled from the configuration on first use and shared by every
+     * instance.
      *
      * @return  a new initialised instance of the process
      *
@@ -111,10 +248,116 @@ public class ProcessFactory
                     ExpressionException
     {
         LexaProcess process = this.loader.getInstance();
-        ConfigDataSet config = new ConfigDataSet(this.processConfig);
-        process.initialise(this.functionLibrary,config);
-        config.close();
+        if (process instanceof TemplateProcess)
+        {
+            this.initialise((TemplateProcess<?>)process);
+        }
+        else
+        {
+            ConfigDataSet config = new ConfigDataSet(this.processConfig);
+            process.initialise(this.functionLibrary,config);
+            config.close();
+        }
         process.setId(ProcessFactory.getNextProcessId());
-        return process;
+        if (this.metrics != null)
+        {
+            process.getStatus().addListener(this.metrics.listener());
+            process.setMetrics(this.metrics);
+        }
+        return this.capture == null ?
+                process :
+                new CaptureProcess(process, this.capture);
+    }
+
+    /**
+     * Open the log to capture the traffic through the instances.
+     * <p>The configuration is:
+     * <pre>
+     * capture {
+     *   file - &lt;base name of the segment files&gt;
+     *   [segmentSize % &lt;size of each segment in bytes&gt;]
+     * }
+     * </pre>
+     */
+    private CaptureLog openCapture(ConfigDataSet config)
+            throws DataException
+    {
+        String file = config.getString(Config.FILE);
+        int segmentSize = config.get(Config.SEGMENT_SIZE,
+                CaptureLog.DEFAULT_SEGMENT_SIZE).getInteger();
+        config.close();
+        try
+        {
+            return new CaptureLog(file, segmentSize);
+        }
+        catch (IOException ex)
+        {
+            this.logger.error("Unable to open the capture log " + file, null, ex);
+            throw new DataException("Unable to open the capture log " + file);
+        }
+    }
+
+    /**
+     * Publish the metrics as an MBean.
+     * <p>The metrics are still recorded if the MBean cannot be registered.
+     */
+    private JmxMetrics registerMetrics()
+    {
+        try
+        {
+            JmxMetrics jmx = new JmxMetrics(this.metrics.getRegistry(),
+                    ProcessFactory.class.getSimpleName(),
+                    this.classPath + "#" + ProcessFactory.lastFactoryId.incrementAndGet());
+            jmx.register();
+            return jmx;
+        }
+        catch (JMException ex)
+        {
+            this.logger.error("Unable to register the metrics", null, ex);
+            return null;
+        }
+    }
+
+    /**
+     * Initialise a process with the template shared by the instances.
+     */
+    private <T> void initialise(TemplateProcess<T> process)
+            throws ProcessException,
+                    DataException,
+                    ExpressionException
+    {
+        process.initialise(this.getTemplate(process));
+    }
+
+    /**
+     * Get the template shared by the instances, compiling it on first use.
+     * <p>Every instance is loaded from the same class, so the template
+     * compiled by the first is of the type the others expect; this is the
+     * only place it is cast back.
+     */
+    private <T> T getTemplate(TemplateProcess<T> process)
+            throws ProcessException,
+                    DataException,
+                    ExpressionException
+    {
+        Object compiled = this.template;
+        if (compiled == null)
+        {
+            synchronized (this)
+            {
+                compiled = this.template;
+                if (compiled == null)
+                {
+                    ConfigDataSet config = new ConfigDataSet(this.processConfig);
+                    T fresh = process.compile(this.functionLibrary, config);
+                    config.close();
+                    this.template = fresh;
+                    return fresh;
+                }
+            }
+        }
+        @SuppressWarnings("unchecked")
+        T shared = (T)compiled;
+        return shared;
     }
 }
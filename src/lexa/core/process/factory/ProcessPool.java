@@ -0,0 +1,449 @@
+/*==============================================================================
+ * Lexa - Property of William Norman-Walker
+ *------------------------------------------------------------------------------
+ * ProcessPool.java
+ *------------------------------------------------------------------------------
+ * Author:  William Norman-Walker
+ * Created: October 2026
+ *------------------------------------------------------------------------------
+ * Change Log
+ * Date:        By: Ref:        Description:
+ *==============================================================================
+ */
+package lexa.core.process.factory;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import lexa.core.data.ArrayDataSet;
+import lexa.core.data.DataSet;
+import lexa.core.data.exception.DataException;
+import lexa.core.expression.ExpressionException;
+import lexa.core.logging.Logger;
+import lexa.core.process.LexaProcess;
+import lexa.core.process.ProcessException;
+import lexa.core.process.context.Config;
+
+/**
+ * A bounded pool of processes built by a {@link ProcessFactory}.
+ * <p>The pool is created with {@code minProcesses} instances ready to use and
+ * will grow on demand up to {@code maxProcesses}; once all the processes are
+ * in use callers wait for one to be released.
+ * <p>A process is taken from the pool with {@link #acquire() acquire} and must
+ * be handed back with {@link #release(LexaProcess) release} once its reply has
+ * been read with {@link LexaProcess#getReply() getReply}.  Released processes
+ * are {@link LexaProcess#recycle() recycled} so they can be used again without
+ * being initialised.
+ * <p>The pool is thread safe.
+ *
+ * @author William
+ * @since 2026-10
+ */
+public class ProcessPool
+{
+    /** "{@code hits}" */
+    public static final String HITS     = "hits";
+    /** "{@code misses}" */
+    public static final String MISSES   = "misses";
+    /** "{@code waits}" */
+    public static final String WAITS    = "waits";
+    /** "{@code waitTime}" */
+    public static final String WAIT_TIME = "waitTime";
+    /** "{@code idle}" */
+    public static final String IDLE     = "idle";
+    /** "{@code busy}" */
+    public static final String BUSY     = "busy";
+    /** "{@code size}" */
+    public static final String SIZE     = "size";
+    /** "{@code maxProcesses}" */
+    public static final String MAX_PROCESSES = "maxProcesses";
+
+    private final Logger logger;
+    private final ProcessFactory factory;
+    private final int maxProcesses;
+
+    private final ReentrantLock lock;
+    private final Condition available;
+    /** processes ready to be used */
+    private final ArrayDeque<LexaProcess> idle;
+    /** number of processes created and not yet discarded */
+    private int size;
+    private volatile boolean closed;
+
+    /** acquired from the idle processes */
+    private final AtomicLong hits;
+    /** acquired by creating or waiting for a process */
+    private final AtomicLong misses;
+    /** number of calls that had to wait */
+    private final AtomicLong waits;
+    /** total time spent waiting in nanoseconds */
+    private final AtomicLong waitTime;
+
+    /**
+     * Create a pool using the limits configured for the factory.
+     *
+     * @param   factory
+     *          the factory for creating the processes.
+     * @throws  ProcessException
+     *          when a process failed to initialise
+     * @throws  DataException
+     *          when a problem occurred reading the configuration.
+     * @throws  ExpressionException
+     *          when a problem occurred evaluating an expression.
+     */
+    public ProcessPool(ProcessFactory factory)
+            throws ProcessException,
+                    DataException,
+                    ExpressionException
+    {
+        this(factory, factory.getMinProcesses(), factory.getMaxProcesses());
+    }
+
+    /**
+     * Create a pool with explicit limits.
+     *
+     * @param   factory
+     *          the factory for creating the processes.
+     * @param   minProcesses
+     *          the number of processes to create up front.
+     * @param   maxProcesses
+     *          the maximum number of processes in the pool.
+     * @throws  ProcessException
+     *          when a process failed to initialise
+     * @throws  DataException
+     *          when a problem occurred reading the configuration.
+     * @throws  ExpressionException
+     *          when a problem occurred evaluating an expression.
+     */
+    public ProcessPool(ProcessFactory factory, int minProcesses, int maxProcesses)
+            throws ProcessException,
+                    DataException,
+                    ExpressionException
+    {
+        if (minProcesses < 0 || maxProcesses < 1 || minProcesses > maxProcesses)
+        {
+            throw new DataException("Invalid process limits " +
+                    minProcesses + " to " + maxProcesses);
+        }
+        this.logger = new Logger(ProcessPool.class.getSimpleName(), null);
+        this.factory = factory;
+        this.maxProcesses = maxProcesses;
+        this.lock = new ReentrantLock();
+        this.available = this.lock.newCondition();
+        this.idle = new ArrayDeque(maxProcesses);
+        this.hits = new AtomicLong();
+        this.misses = new AtomicLong();
+        this.waits = new AtomicLong();
+        this.waitTime = new AtomicLong();
+
+        for (int p = 0; p < minProcesses; p++)
+        {
+            this.idle.push(this.factory.instance());
+        }
+        this.size = minProcesses;
+    }
+
+    /**
+     * Take a process from the pool, waiting until one is available.
+     *
+     * @return  an active process ready to accept a request.
+     * @throws  ProcessException
+     *          when a new process failed to initialise
+     * @throws  DataException
+     *          when a problem occurred reading the configuration.
+     * @throws  ExpressionException
+     *          when a problem occurred evaluating an expression.
+     * @throws  InterruptedException
+     *          when interrupted while waiting for a process.
+     */
+    public LexaProcess acquire()
+            throws ProcessException,
+                    DataException,
+                    ExpressionException,
+                    InterruptedException
+    {
+        return this.acquire(-1);
+    }
+
+    /**
+     * Take a process from the pool, waiting up to the timeout for one to be
+     * available.
+     *
+     * @param   timeout
+     *          the time to wait in milliseconds; zero to return immediately
+     *          and a negative value to wait until a process is available.
+     * @return  an active process ready to accept a request or {@code null} if
+     *          none was available in time.
+     * @throws  ProcessException
+     *          when a new process failed to initialise
+     * @throws  DataException
+     *          when a problem occurred reading the configuration.
+     * @throws  ExpressionException
+     *          when a problem occurred evaluating an expression.
+     * @throws  InterruptedException
+     *          when interrupted while waiting for a process.
+     */
+    public LexaProcess acquire(long timeout)
+            throws ProcessException,
+                    DataException,
+                    ExpressionException,
+                    InterruptedException
+    {
+        long start = 0;
+        this.lock.lockInterruptibly();
+        try
+        {
+            this.checkOpen();
+            if (!this.idle.isEmpty())
+            {
+                this.hits.incrementAndGet();
+                return this.idle.pop();
+            }
+            this.misses.incrementAndGet();
+            if (this.size < this.maxProcesses)
+            {
+                // reserve the slot and build the process outside the lock
+                this.size++;
+            }
+            else
+            {
+                if (timeout == 0)
+                {
+                    return null;
+                }
+                this.waits.incrementAndGet();
+                start = System.nanoTime();
+                long remaining = TimeUnit.MILLISECONDS.toNanos(timeout);
+                while (this.idle.isEmpty() && this.size >= this.maxProcesses)
+                {
+                    this.checkOpen();
+                    if (timeout < 0)
+                    {
+                        this.available.await();
+                    }
+                    else
+                    {
+                        if (remaining <= 0)
+                        {
+                            this.waitTime.addAndGet(System.nanoTime() - start);
+                            return null;
+                        }
+                        remaining = this.available.awaitNanos(remaining);
+                    }
+                }
+                this.checkOpen();
+                this.waitTime.addAndGet(System.nanoTime() - start);
+                if (!this.idle.isEmpty())
+                {
+                    return this.idle.pop();
+                }
+                this.size++;
+            }
+        }
+        finally
+        {
+            this.lock.unlock();
+        }
+        return this.create();
+    }
+
+    /**
+     * Close the pool and all the idle processes.
+     * <p>Processes currently in use are closed when they are released.  The
+     * factory is not closed, as the pool does not own it.
+     */
+    public void close()
+    {
+        this.lock.lock();
+        try
+        {
+            this.closed = true;
+            while (!this.idle.isEmpty())
+            {
+                this.discard(this.idle.pop());
+            }
+            this.available.signalAll();
+        }
+        finally
+        {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Create a new process in a slot reserved by the caller.
+     */
+    private LexaProcess create()
+            throws ProcessException,
+                    DataException,
+                    ExpressionException
+    {
+        boolean created = false;
+        try
+        {
+            LexaProcess process = this.factory.instance();
+            created = true;
+            return process;
+        }
+        finally
+        {
+            if (!created)
+            {
+                this.lock.lock();
+                try
+                {
+                    this.size--;
+                    this.available.signal();
+                }
+                finally
+                {
+                    this.lock.unlock();
+                }
+            }
+        }
+    }
+
+    private void checkOpen()
+            throws ProcessException
+    {
+        if (this.closed)
+        {
+            throw new ProcessException("Process pool is closed");
+        }
+    }
+
+    /**
+     * Close a process that is no longer part of the pool.
+     * <p>Must be called while holding the lock.
+     */
+    private void discard(LexaProcess process)
+    {
+        this.size--;
+        try
+        {
+            process.close();
+        }
+        catch (ProcessException ex)
+        {
+            this.logger.error("Unable to close process " + process.getId(),
+                    null, ex);
+        }
+    }
+
+    /**
+     * Get the factory that creates the processes.
+     *
+     * @return  the factory that creates the processes.
+     */
+    public ProcessFactory getFactory()
+    {
+        return this.factory;
+    }
+
+    /**
+     * Get the maximum number of processes in the pool.
+     *
+     * @return  the maximum number of processes in the pool.
+     */
+    public int getMaxProcesses()
+    {
+        return this.maxProcesses;
+    }
+
+    /**
+     * Get the statistics for the pool.
+     * <p>The statistics are:
+     * <pre>
+     * hits % &lt;processes taken from the idle list&gt;
+     * misses % &lt;processes created or waited for&gt;
+     * waits % &lt;number of calls that waited for a process&gt;
+     * waitTime % &lt;total time waiting in milliseconds&gt;
+     * size % &lt;number of processes in the pool&gt;
+     * idle % &lt;number of processes not in use&gt;
+     * busy % &lt;number of processes in use&gt;
+     * maxProcesses % &lt;maximum number of processes&gt;
+     * metrics {
+     *   &lt;metrics for the processes, if recorded&gt;
+     * }
+     * </pre>
+     *
+     * @return  the statistics for the pool.
+     * @see     lexa.core.process.metrics.MetricsRegistry#getStatistics()
+     */
+    public DataSet getStatistics()
+    {
+        int poolSize;
+        int idleSize;
+        this.lock.lock();
+        try
+        {
+            poolSize = this.size;
+            idleSize = this.idle.size();
+        }
+        finally
+        {
+            this.lock.unlock();
+        }
+        DataSet statistics = new ArrayDataSet()
+                .put(ProcessPool.HITS, this.hits.get())
+                .put(ProcessPool.MISSES, this.misses.get())
+                .put(ProcessPool.WAITS, this.waits.get())
+                .put(ProcessPool.WAIT_TIME,
+                        TimeUnit.NANOSECONDS.toMillis(this.waitTime.get()))
+                .put(ProcessPool.SIZE, poolSize)
+                .put(ProcessPool.IDLE, idleSize)
+                .put(ProcessPool.BUSY, poolSize - idleSize)
+                .put(ProcessPool.MAX_PROCESSES, this.maxProcesses);
+        if (this.factory.getMetrics() != null)
+        {
+            statistics.put(Config.METRICS,
+                    this.factory.getMetrics().getRegistry().getStatistics());
+        }
+        return statistics;
+    }
+
+    /**
+     * Return a process to the pool.
+     * <p>The process is recycled and put back in the pool; if it cannot be
+     * recycled it is closed and a new process is created when next needed.
+     *
+     * @param   process
+     *          a process taken from the pool.
+     */
+    public void release(LexaProcess process)
+    {
+        boolean recycled = false;
+        try
+        {
+            if (!this.closed)
+            {
+                process.recycle();
+                recycled = true;
+            }
+        }
+        catch (ProcessException ex)
+        {
+            this.logger.error("Unable to recycle process " + process.getId(),
+                    null, ex);
+        }
+        this.lock.lock();
+        try
+        {
+            if (this.closed || !recycled)
+            {
+                this.discard(process);
+            }
+            else
+            {
+                this.idle.push(process);
+            }
+            this.available.signal();
+        }
+        finally
+        {
+            this.lock.unlock();
+        }
+    }
+}
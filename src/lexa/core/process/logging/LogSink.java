@@ -0,0 +1,490 @@
+/*==============================================================================
+ * Lexa - Property of William Norman-Walker
+ *------------------------------------------------------------------------------
+ * LogSink.java
+ *------------------------------------------------------------------------------
+ * Author:  William Norman-Walker
+ * Created: October 2026
+ *==============================================================================
+ */
+package lexa.core.process.logging;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import lexa.core.data.DataItem;
+import lexa.core.data.DataSet;
+
+/**
+ * An asynchronous sink for the process log.
+ * <p>Log entries are put in a bounded, lock free ring buffer and written to
+ * the log file in batches by a single daemon thread, so the thread logging
+ * never waits for the file.  The entries are formatted by the writer thread,
+ * so any data logged must not be changed afterwards; {@link ProcessLogger}
+ * formats the data for errors before they are added.
+ * <p>When the buffer is full the entry is dropped and counted; the count is
+ * written to the log with the next batch, as is the count of entries that
+ * could not be formatted.
+ * <p>The writer parks when the buffer is empty and is woken by the next
+ * entry added.
+ * <p>There is one sink for the JVM, opened with {@link #open(File) open};
+ * until it is opened {@link ProcessLogger} writes straight to the
+ * {@link lexa.core.logging.Logger}.
+ *
+ * @author  William
+ * @since   2026-10
+ */
+public final class LogSink
+{
+    /** the default number of entries held in the buffer */
+    public static final int DEFAULT_CAPACITY = 8192;
+    /** the rule for all loggers or all types */
+    private static final String WILDCARD = "*";
+    /** the most entries written before the file is flushed */
+    private static final int BATCH_SIZE = 256;
+
+    /** the open sink; {@code null} until one is opened */
+    private static volatile LogSink sink;
+
+    /** entries in the buffer */
+    private final Entry[] entries;
+    /** the sequence for each slot; see {@link #offer(String, String, String, String, Object, Throwable) offer} */
+    private final AtomicLongArray sequences;
+    private final int mask;
+    /** the next slot to fill */
+    private final AtomicLong tail;
+    /** the next slot to write; only used by the writer */
+    private long head;
+    /** entries dropped since the last batch */
+    private final AtomicLong dropped;
+    /** entries that could not be written since the last batch */
+    private final AtomicLong failed;
+    /** set while the writer is parked waiting for an entry */
+    private volatile boolean sleeping;
+    /** changes each time the levels are changed */
+    private final AtomicInteger version;
+    /** the logging levels, by logger name and then type */
+    private volatile HashMap<String, HashMap<String, Boolean>> levels;
+    private final Writer writer;
+    private final Thread thread;
+    private volatile boolean closed;
+
+    /**
+     * Open a sink on a file.
+     */
+    private LogSink(File file, int capacity)
+            throws IOException
+    {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.entries = new Entry[size];
+        this.sequences = new AtomicLongArray(size);
+        for (int slot = 0; slot < size; slot++)
+        {
+            this.entries[slot] = new Entry();
+            this.sequences.set(slot, slot);
+        }
+        this.mask = size - 1;
+        this.tail = new AtomicLong();
+        this.dropped = new AtomicLong();
+        this.failed = new AtomicLong();
+        this.version = new AtomicInteger();
+        this.levels = new HashMap();
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null)
+        {
+            parent.mkdirs();
+        }
+        this.writer = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(file, true), StandardCharsets.UTF_8));
+        this.thread = new Thread(this::write, "lexa-process-log");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Close the sink.
+     * <p>The entries already in the buffer are written before the file is
+     * closed; entries logged afterwards go to the
+     * {@link lexa.core.logging.Logger}.
+     *
+     * @throws  InterruptedException
+     *          when interrupted waiting for the entries to be written.
+     */
+    public void close()
+            throws InterruptedException
+    {
+        synchronized (LogSink.class)
+        {
+            if (LogSink.sink == this)
+            {
+                LogSink.sink = null;
+            }
+        }
+        this.closed = true;
+        LockSupport.unpark(this.thread);
+        this.thread.join();
+    }
+
+    /**
+     * Get the entries dropped because the buffer was full and not yet
+     * reported in the log.
+     *
+     * @return  the number of entries dropped.
+     */
+    public long getDropped()
+    {
+        return this.dropped.get();
+    }
+
+    /**
+     * Get the entries that could not be written and not yet reported in the
+     * log.
+     *
+     * @return  the number of entries that could not be written.
+     */
+    public long getFailed()
+    {
+        return this.failed.get();
+    }
+
+    /**
+     * Get the open sink.
+     *
+     * @return  the open sink, or {@code null} if there is none.
+     */
+    public static LogSink getSink()
+    {
+        return LogSink.sink;
+    }
+
+    /**
+     * Get the version of the logging levels.
+     * <p>The version changes each time the levels change, so a logger can
+     * keep the answers from {@link #isLogging(String, String) isLogging}
+     * until it does.
+     *
+     * @return  the version of the logging levels.
+     */
+    public int getVersion()
+    {
+        return this.version.get();
+    }
+
+    /**
+     * Indicates if a type of message is logged for a logger.
+     * <p>The rules for the logger's name are checked first and then the rules
+     * for {@code *}; within those the rule for the type is checked and then
+     * the rule for {@code *}.  With no rule the message is logged.
+     *
+     * @param   name
+     *          the name of the logger.
+     * @param   type
+     *          the type of message, such as {@code DEBUG}.
+     * @return  {@code true} if the message is logged, otherwise
+     *          {@code false}.
+     */
+    public boolean isLogging(String name, String type)
+    {
+        HashMap<String, HashMap<String, Boolean>> current = this.levels;
+        Boolean logging = LogSink.rule(current.get(name), type);
+        if (logging == null)
+        {
+            logging = LogSink.rule(current.get(LogSink.WILDCARD), type);
+        }
+        return logging == null || logging;
+    }
+
+    /**
+     * Find the rule for a type.
+     */
+    private static Boolean rule(HashMap<String, Boolean> types, String type)
+    {
+        if (types == null)
+        {
+            return null;
+        }
+        Boolean logging = types.get(type);
+        return logging != null ?
+                logging :
+                types.get(LogSink.WILDCARD);
+    }
+
+    /**
+     * Add an entry to the buffer.
+     * <p>This never blocks; if the buffer is full the entry is dropped.
+     * <p>Each slot has a sequence; the slot is free to fill at position
+     * {@code p} when its sequence is {@code p}, and ready to write when it is
+     * {@code p + 1}.  Once written it is set to {@code p + capacity} for the
+     * next time round.
+     * <p>The writer is only woken if it is parked; the sequence is set before
+     * {@code sleeping} is read, and the writer sets {@code sleeping} before
+     * checking the sequence again, so one of them always sees the other.
+     *
+     * @return  {@code true} if the entry was added, otherwise {@code false}.
+     */
+    boolean offer(String type, String name, String id, String message,
+            Object data, Throwable cause)
+    {
+        long position;
+        int slot;
+        while (true)
+        {
+            position = this.tail.get();
+            slot = (int)position & this.mask;
+            long sequence = this.sequences.get(slot);
+            if (sequence == position)
+            {
+                if (this.tail.compareAndSet(position, position + 1))
+                {
+                    break;
+                }
+            }
+            else if (sequence < position)
+            {
+                this.dropped.incrementAndGet();
+                return false;
+            }
+        }
+        Entry entry = this.entries[slot];
+        entry.time = System.currentTimeMillis();
+        entry.type = type;
+        entry.name = name;
+        entry.id = id;
+        entry.message = message;
+        entry.data = data;
+        entry.cause = cause;
+        this.sequences.set(slot, position + 1);
+        if (this.sleeping)
+        {
+            this.sleeping = false;
+            LockSupport.unpark(this.thread);
+        }
+        return true;
+    }
+
+    /**
+     * Open the sink for the JVM.
+     * <p>This is equivalent to using {@code open(file, DEFAULT_CAPACITY)}.
+     *
+     * @param   file
+     *          the log file; entries are appended to it.
+     * @return  the open sink.
+     * @throws  IOException
+     *          when the file cannot be opened.
+     */
+    public static LogSink open(File file)
+            throws IOException
+    {
+        return LogSink.open(file, LogSink.DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Open the sink for the JVM.
+     * <p>Any sink already open is closed.
+     *
+     * @param   file
+     *          the log file; entries are appended to it.
+     * @param   capacity
+     *          the number of entries the buffer can hold; this is rounded up
+     *          to a power of two.
+     * @return  the open sink.
+     * @throws  IOException
+     *          when the file cannot be opened.
+     */
+    public static LogSink open(File file, int capacity)
+            throws IOException
+    {
+        LogSink previous;
+        LogSink opened = new LogSink(file, capacity);
+        synchronized (LogSink.class)
+        {
+            previous = LogSink.sink;
+            LogSink.sink = opened;
+        }
+        if (previous != null)
+        {
+            try
+            {
+                previous.close();
+            }
+            catch (InterruptedException ex)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return opened;
+    }
+
+    /**
+     * Set the logging levels.
+     * <p>The format is the same as for the {@link lexa.core.logging.Logger}:
+     * <pre>
+     * &lt;logger name&gt; {
+     *   &lt;type&gt; ? &lt;true|false&gt;
+     *   [...]
+     * }
+     * [...]
+     * </pre>
+     * <p>Either name can be {@code *} to match any logger or type.
+     *
+     * @param   logging
+     *          the logging levels.
+     */
+    public void setLogging(DataSet logging)
+    {
+        HashMap<String, HashMap<String, Boolean>> rules = new HashMap();
+        for (DataItem logger : logging)
+        {
+            HashMap<String, Boolean> types = new HashMap();
+            for (DataItem type : logger.getDataSet())
+            {
+                types.put(type.getKey(), type.getBoolean());
+            }
+            rules.put(logger.getKey(), types);
+        }
+        this.levels = rules;
+        this.version.incrementAndGet();
+    }
+
+    /**
+     * Write the entries to the file until the sink is closed.
+     */
+    private void write()
+    {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+        Date date = new Date();
+        PrintWriter out = new PrintWriter(this.writer);
+        while (true)
+        {
+            boolean closing = this.closed;
+            int written = 0;
+            long lost = this.dropped.getAndSet(0);
+            if (lost > 0)
+            {
+                date.setTime(System.currentTimeMillis());
+                out.append(format.format(date))
+                        .append(" WARNING LogSink ")
+                        .append(String.valueOf(lost))
+                        .append(" log entries dropped")
+                        .println();
+                written++;
+            }
+            long unwritten = this.failed.getAndSet(0);
+            if (unwritten > 0)
+            {
+                date.setTime(System.currentTimeMillis());
+                out.append(format.format(date))
+                        .append(" WARNING LogSink ")
+                        .append(String.valueOf(unwritten))
+                        .append(" log entries could not be written")
+                        .println();
+                written++;
+            }
+            while (written < LogSink.BATCH_SIZE)
+            {
+                int slot = (int)this.head & this.mask;
+                if (this.sequences.get(slot) != this.head + 1)
+                {
+                    break;
+                }
+                Entry entry = this.entries[slot];
+                try
+                {
+                    date.setTime(entry.time);
+                    entry.write(out, format.format(date));
+                }
+                catch (RuntimeException ex)
+                {
+                    // a bad entry must not stop the writer
+                    this.failed.incrementAndGet();
+                    out.println();
+                }
+                entry.clear();
+                this.sequences.lazySet(slot, this.head + this.entries.length);
+                this.head++;
+                written++;
+            }
+            if (written > 0)
+            {
+                out.flush();
+            }
+            else if (closing)
+            {
+                break;
+            }
+            else
+            {
+                this.sleeping = true;
+                int slot = (int)this.head & this.mask;
+                if (this.sequences.get(slot) != this.head + 1 && !this.closed)
+                {
+                    LockSupport.park(this);
+                }
+                this.sleeping = false;
+            }
+        }
+        out.close();
+    }
+
+    /**
+     * A slot in the buffer.
+     */
+    private static class Entry
+    {
+        private long time;
+        private String type;
+        private String name;
+        private String id;
+        private String message;
+        private Object data;
+        private Throwable cause;
+
+        /**
+         * Release the references held by the entry.
+         */
+        private void clear()
+        {
+            this.type = null;
+            this.name = null;
+            this.id = null;
+            this.message = null;
+            this.data = null;
+            this.cause = null;
+        }
+
+        /**
+         * Write the entry to the log.
+         */
+        private void write(PrintWriter out, String time)
+        {
+            out.append(time).append(' ')
+                    .append(this.type).append(' ')
+                    .append(this.name);
+            if (this.id != null)
+            {
+                out.append('[').append(this.id).append(']');
+            }
+            out.append(' ').append(this.message).println();
+            if (this.data != null)
+            {
+                out.println(this.data);
+            }
+            if (this.cause != null)
+            {
+                this.cause.printStackTrace(out);
+            }
+        }
+    }
+}
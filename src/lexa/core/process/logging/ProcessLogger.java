@@ -0,0 +1,333 @@
+/*==============================================================================
+ * Lexa - Property of William Norman-Walker
+ *------------------------------------------------------------------------------
+ * ProcessLogger.java
+ *------------------------------------------------------------------------------
+ * Author:  William Norman-Walker
+ * Created: October 2026
+ *==============================================================================
+ */
+package lexa.core.process.logging;
+
+import lexa.core.data.DataSet;
+import lexa.core.logging.Logger;
+
+/**
+ * A logger for the process layer.
+ * <p>While a {@link LogSink} is open the entries are passed to it and written
+ * by its own thread; the caller never waits for the file.  Entries for
+ * types that are not logged are skipped before anything is built, and the
+ * answer is kept until the levels change.
+ * <p>With no sink open the entries are written straight to a
+ * {@link Logger}, as before.  The methods match those of {@link Logger}, so
+ * code written against it still compiles with this in its place.
+ *
+ * @author  William
+ * @since   2026-10
+ */
+public class ProcessLogger
+{
+    /** type for debug messages */
+    public static final String DEBUG = "DEBUG";
+    /** type for error messages */
+    public static final String ERROR = "ERROR";
+    /** type for information messages */
+    public static final String INFO = "INFO";
+
+    private final String name;
+    private final String id;
+    /** the logger used with no sink open; created on first use */
+    private Logger logger;
+    /** the sink the levels below were read from */
+    private LogSink sink;
+    /** the version of the levels below */
+    private int version;
+    private boolean debug;
+    private boolean info;
+    private boolean error;
+
+    /**
+     * Create a logger.
+     *
+     * @param   name
+     *          the name of the logger.
+     * @param   id
+     *          an identifier to include in each entry, or {@code null}.
+     */
+    public ProcessLogger(String name, String id)
+    {
+        this.name = name;
+        this.id = id;
+    }
+
+    /**
+     * Log a debug message.
+     *
+     * @param   message
+     *          the message.
+     */
+    public void debug(String message)
+    {
+        this.debug(message, null);
+    }
+
+    /**
+     * Log a debug message with data.
+     *
+     * @param   message
+     *          the message.
+     * @param   data
+     *          the data for the message; this must not be changed afterwards.
+     */
+    public void debug(String message, Object data)
+    {
+        LogSink current = this.current();
+        if (current == null)
+        {
+            if (data == null || data instanceof DataSet)
+            {
+                this.logger().debug(message, (DataSet)data);
+            }
+            else
+            {
+                this.logger().debug(message, null, data);
+            }
+        }
+        else if (this.debug)
+        {
+            current.offer(ProcessLogger.DEBUG, this.name, this.id, message, data, null);
+        }
+    }
+
+    /**
+     * Log a debug message with data and arguments.
+     * <p>This matches {@link Logger#debug(String, DataSet, Object...)}; the
+     * arguments are added to the end of the message.
+     *
+     * @param   message
+     *          the message.
+     * @param   data
+     *          the data for the message; this must not be changed afterwards.
+     * @param   args
+     *          the arguments for the message.
+     */
+    public void debug(String message, DataSet data, Object ... args)
+    {
+        LogSink current = this.current();
+        if (current == null)
+        {
+            this.logger().debug(message, data, args);
+        }
+        else if (this.debug)
+        {
+            current.offer(ProcessLogger.DEBUG, this.name, this.id,
+                    ProcessLogger.join(message, args), data, null);
+        }
+    }
+
+    /**
+     * Log an error message.
+     *
+     * @param   message
+     *          the message.
+     */
+    public void error(String message)
+    {
+        this.error(message, null, null);
+    }
+
+    /**
+     * Log an error message with data.
+     *
+     * @param   message
+     *          the message.
+     * @param   data
+     *          the data for the message; this is formatted when logged.
+     */
+    public void error(String message, DataSet data)
+    {
+        this.error(message, data, null);
+    }
+
+    /**
+     * Log an error message with data and its cause.
+     *
+     * @param   message
+     *          the message.
+     * @param   data
+     *          the data for the message; this is formatted when logged, as
+     *          errors are often logged from data that is still in use.
+     * @param   cause
+     *          the cause of the error, or {@code null}.
+     */
+    public void error(String message, DataSet data, Throwable cause)
+    {
+        LogSink current = this.current();
+        if (current == null)
+        {
+            this.logger().error(message, data, cause);
+        }
+        else if (this.error)
+        {
+            current.offer(ProcessLogger.ERROR, this.name, this.id, message,
+                    data == null ? null : data.toString(), cause);
+        }
+    }
+
+    /**
+     * Log an error message with data, its cause and arguments.
+     * <p>This matches
+     * {@link Logger#error(String, DataSet, Throwable, Object...)}; the
+     * arguments are added to the end of the message.
+     *
+     * @param   message
+     *          the message.
+     * @param   data
+     *          the data for the message; this is formatted when logged.
+     * @param   cause
+     *          the cause of the error, or {@code null}.
+     * @param   args
+     *          the arguments for the message.
+     */
+    public void error(String message, DataSet data, Throwable cause,
+            Object ... args)
+    {
+        LogSink current = this.current();
+        if (current == null)
+        {
+            this.logger().error(message, data, cause, args);
+        }
+        else if (this.error)
+        {
+            current.offer(ProcessLogger.ERROR, this.name, this.id,
+                    ProcessLogger.join(message, args),
+                    data == null ? null : data.toString(), cause);
+        }
+    }
+
+    /**
+     * Log an information message.
+     *
+     * @param   message
+     *          the message.
+     */
+    public void info(String message)
+    {
+        this.info(message, null);
+    }
+
+    /**
+     * Log an information message with data.
+     *
+     * @param   message
+     *          the message.
+     * @param   data
+     *          the data for the message; this must not be changed afterwards.
+     */
+    public void info(String message, Object data)
+    {
+        LogSink current = this.current();
+        if (current == null)
+        {
+            if (data == null || data instanceof DataSet)
+            {
+                this.logger().info(message, (DataSet)data);
+            }
+            else
+            {
+                this.logger().info(message, null, data);
+            }
+        }
+        else if (this.info)
+        {
+            current.offer(ProcessLogger.INFO, this.name, this.id, message, data, null);
+        }
+    }
+
+    /**
+     * Log an information message with data and arguments.
+     * <p>This matches {@link Logger#info(String, DataSet, Object...)}; the
+     * arguments are added to the end of the message.
+     *
+     * @param   message
+     *          the message.
+     * @param   data
+     *          the data for the message; this must not be changed afterwards.
+     * @param   args
+     *          the arguments for the message.
+     */
+    public void info(String message, DataSet data, Object ... args)
+    {
+        LogSink current = this.current();
+        if (current == null)
+        {
+            this.logger().info(message, data, args);
+        }
+        else if (this.info)
+        {
+            current.offer(ProcessLogger.INFO, this.name, this.id,
+                    ProcessLogger.join(message, args), data, null);
+        }
+    }
+
+    /**
+     * Indicates if debug messages are logged.
+     * <p>Callers can check this before building an expensive message.
+     *
+     * @return  {@code true} if debug messages are logged, otherwise
+     *          {@code false}.
+     */
+    public boolean isDebug()
+    {
+        return this.current() == null || this.debug;
+    }
+
+    /**
+     * Get the open sink, reading the levels again if they have changed.
+     * <p>The levels are not guarded; a logger shared between threads may see
+     * a change a little late, or read the levels twice.
+     */
+    private LogSink current()
+    {
+        LogSink current = LogSink.getSink();
+        if (current != null &&
+                (current != this.sink || current.getVersion() != this.version))
+        {
+            this.version = current.getVersion();
+            this.debug = current.isLogging(this.name, ProcessLogger.DEBUG);
+            this.info = current.isLogging(this.name, ProcessLogger.INFO);
+            this.error = current.isLogging(this.name, ProcessLogger.ERROR);
+            this.sink = current;
+        }
+        return current;
+    }
+
+    /**
+     * Add the arguments to the end of a message.
+     */
+    private static String join(String message, Object[] args)
+    {
+        if (args == null || args.length == 0)
+        {
+            return message;
+        }
+        StringBuilder joined = new StringBuilder(message);
+        for (Object arg : args)
+        {
+            joined.append(' ').append(arg);
+        }
+        return joined.toString();
+    }
+
+    /**
+     * Get the logger used with no sink open.
+     */
+    private Logger logger()
+    {
+        if (this.logger == null)
+        {
+            this.logger = new Logger(this.name, this.id);
+        }
+        return this.logger;
+    }
+}
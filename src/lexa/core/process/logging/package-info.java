@@ -0,0 +1,22 @@
+/*==============================================================================
+ *  Lexa - Property of William Norman-Walker
+ * ------------------------------------------------------------------------------
+ *  package-info.java (lxProcess)
+ * ------------------------------------------------------------------------------
+ *  Author:  William Norman-Walker
+ *  Created: October 2026
+ * ==============================================================================
+ */
+
+/**
+ * Logging for Lexa processes.
+ * <p>
+ * Processes log through a {@link lexa.core.process.logging.ProcessLogger
+ * ProcessLogger}.  Once a {@link lexa.core.process.logging.LogSink LogSink}
+ * is opened on the file named by {@code logFile}, the entries are written in
+ * batches by a background thread and the process never waits on the log.
+ *
+ * @author  william
+ * @since   2026-10
+ */
+package lexa.core.process.logging;
@@ -0,0 +1,69 @@
+/*==============================================================================
+ * Lexa - Property of William Norman-Walker
+ *------------------------------------------------------------------------------
+ * Counter.java
+ *------------------------------------------------------------------------------
+ * Author:  William Norman-Walker
+ * Created: October 2026
+ *==============================================================================
+ */
+package lexa.core.process.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A count of events.
+ * <p>The counter is lock free and does not allocate.
+ *
+ * @author William
+ * @since 2026-10
+ */
+public final class Counter
+{
+    private final AtomicLong count;
+
+    /**
+     * Create a counter at zero.
+     */
+    public Counter()
+    {
+        this.count = new AtomicLong();
+    }
+
+    /**
+     * Add to the count.
+     *
+     * @param   delta
+     *          the amount to add.
+     */
+    public void add(long delta)
+    {
+        this.count.addAndGet(delta);
+    }
+
+    /**
+     * Get the count.
+     *
+     * @return  the count.
+     */
+    public long get()
+    {
+        return this.count.get();
+    }
+
+    /**
+     * Add one to the count.
+     */
+    public void increment()
+    {
+        this.count.incrementAndGet();
+    }
+
+    /**
+     * Set the count back to zero.
+     */
+    public void reset()
+    {
+        this.count.set(0);
+    }
+}
@@ -0,0 +1,204 @@
+/*==============================================================================
+ * Lexa - Property of William Norman-Walker
+ *------------------------------------------------------------------------------
+ * Histogram.java
+ *------------------------------------------------------------------------------
+ * Author:  William Norman-Walker
+ * Created: October 2026
+ *==============================================================================
+ */
+package lexa.core.process.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import lexa.core.data.ArrayDataSet;
+import lexa.core.data.DataSet;
+
+/**
+ * A histogram of latencies.
+ * <p>Values are counted in buckets that are exact up to 16 and then split
+ * each power of two into 16 buckets, so any value read back is within
+ * 1/16th of the value recorded.  The buckets are fixed when the histogram is
+ * created; recording a value is lock free and does not allocate.
+ *
+ * @author William
+ * @since 2026-10
+ */
+public final class Histogram
+{
+    /** Statistic "{@code count}"; the number of values recorded */
+    public static final String COUNT = "count";
+    /** Statistic "{@code mean}" */
+    public static final String MEAN = "mean";
+    /** Statistic "{@code p50}"; the median */
+    public static final String P50 = "p50";
+    /** Statistic "{@code p90}" */
+    public static final String P90 = "p90";
+    /** Statistic "{@code p99}" */
+    public static final String P99 = "p99";
+    /** Statistic "{@code p999}" */
+    public static final String P999 = "p999";
+    /** Statistic "{@code max}" */
+    public static final String MAX = "max";
+
+    /** bits for the buckets within each power of two */
+    private static final int SUB_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << Histogram.SUB_BITS;
+    /** enough buckets for any positive long */
+    private static final int BUCKETS = (64 - Histogram.SUB_BITS + 1) * Histogram.SUB_BUCKETS;
+
+    private final AtomicLongArray buckets;
+    private final AtomicLong count;
+    private final AtomicLong sum;
+    private final AtomicLong max;
+
+    /**
+     * Create an empty histogram.
+     */
+    public Histogram()
+    {
+        this.buckets = new AtomicLongArray(Histogram.BUCKETS);
+        this.count = new AtomicLong();
+        this.sum = new AtomicLong();
+        this.max = new AtomicLong();
+    }
+
+    private static int bucket(long value)
+    {
+        if (value < Histogram.SUB_BUCKETS)
+        {
+            return (int)value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - Histogram.SUB_BITS;
+        int sub = (int)(value >>> shift) & (Histogram.SUB_BUCKETS - 1);
+        return ((shift + 1) << Histogram.SUB_BITS) + sub;
+    }
+
+    /**
+     * Get the number of values recorded.
+     *
+     * @return  the number of values recorded.
+     */
+    public long getCount()
+    {
+        return this.count.get();
+    }
+
+    /**
+     * Get the largest value recorded.
+     *
+     * @return  the largest value recorded.
+     */
+    public long getMax()
+    {
+        return this.max.get();
+    }
+
+    /**
+     * Get the mean of the values recorded.
+     *
+     * @return  the mean of the values recorded.
+     */
+    public double getMean()
+    {
+        long values = this.count.get();
+        return values == 0 ? 0.0 : (double)this.sum.get() / values;
+    }
+
+    /**
+     * Get the value at a percentile.
+     *
+     * @param   percentile
+     *          the percentile, from 0 to 100.
+     * @return  the highest value that could be in the bucket holding the
+     *          percentile, or 0 if nothing has been recorded.
+     */
+    public long getPercentile(double percentile)
+    {
+        long values = this.count.get();
+        if (values == 0)
+        {
+            return 0;
+        }
+        long target = Math.max(1, (long)Math.ceil(values * percentile / 100.0));
+        long seen = 0;
+        for (int b = 0; b < Histogram.BUCKETS; b++)
+        {
+            seen += this.buckets.get(b);
+            if (seen >= target)
+            {
+                return Math.min(Histogram.upper(b), this.max.get());
+            }
+        }
+        return this.max.get();
+    }
+
+    /**
+     * Get the statistics for the histogram.
+     * <p>The statistics are {@code count}, {@code mean}, {@code p50},
+     * {@code p90}, {@code p99}, {@code p999} and {@code max}.
+     *
+     * @return  the statistics for the histogram.
+     */
+    public DataSet getStatistics()
+    {
+        return new ArrayDataSet()
+                .put(Histogram.COUNT, this.getCount())
+                .put(Histogram.MEAN, this.getMean())
+                .put(Histogram.P50, this.getPercentile(50))
+                .put(Histogram.P90, this.getPercentile(90))
+                .put(Histogram.P99, this.getPercentile(99))
+                .put(Histogram.P999, this.getPercentile(99.9))
+                .put(Histogram.MAX, this.getMax());
+    }
+
+    /**
+     * Record a value.
+     *
+     * @param   value
+     *          the value to record; negative values are recorded as 0.
+     */
+    public void record(long value)
+    {
+        long recorded = value < 0 ? 0 : value;
+        this.buckets.incrementAndGet(Histogram.bucket(recorded));
+        this.count.incrementAndGet();
+        this.sum.addAndGet(recorded);
+        long current;
+        while (recorded > (current = this.max.get()) &&
+                !this.max.compareAndSet(current, recorded))
+        {
+            // retry
+        }
+    }
+
+    /**
+     * Clear all the values recorded.
+     * <p>Values recorded while this runs may be partly cleared.
+     */
+    public void reset()
+    {
+        for (int b = 0; b < Histogram.BUCKETS; b++)
+        {
+            this.buckets.set(b, 0);
+        }
+        this.count.set(0);
+        this.sum.set(0);
+        this.max.set(0);
+    }
+
+    /**
+     * Get the highest value held by a bucket.
+     */
+    private static long upper(int bucket)
+    {
+        if (bucket < Histogram.SUB_BUCKETS)
+        {
+            return bucket;
+        }
+        int shift = (bucket >>> Histogram.SUB_BITS) - 1;
+        long sub = bucket & (Histogram.SUB_BUCKETS - 1);
+        long lower = (Histogram.SUB_BUCKETS + sub) << shift;
+        return lower + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,213 @@
+/*==============================================================================
+ * Lexa - Property of William Norman-Walker
+ *------------------------------------------------------------------------------
+ * JmxMetrics.java
+ *------------------------------------------------------------------------------
+ * Author:  William Norman-Walker
+ * Created: October 2026
+ *==============================================================================
+ */
+package lexa.core.process.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+
+/**
+ * Publishes the metrics in a {@link MetricsRegistry} as a JMX MBean.
+ * <p>Each counter is an attribute with its name.  Each histogram has an
+ * attribute for each of its statistics named
+ * {@code <histogram>.<statistic>}, such as {@code buildReply.p99}.
+ * The operation {@code reset} sets all the metrics back to zero.
+ * <p>The attributes are read from the registry each time they are asked
+ * for, so metrics added after the MBean is registered are included.
+ *
+ * @author William
+ * @since 2026-10
+ */
+public class JmxMetrics
+        implements DynamicMBean
+{
+    /** the domain for the MBeans */
+    public static final String DOMAIN = "lexa.core.process";
+    /** the operation to reset the metrics */
+    private static final String RESET = "reset";
+    /** the statistics published for each histogram */
+    private static final String[] STATISTICS = {
+        Histogram.COUNT, Histogram.MEAN, Histogram.P50, Histogram.P90,
+        Histogram.P99, Histogram.P999, Histogram.MAX
+    };
+
+    private final MetricsRegistry registry;
+    private final ObjectName name;
+
+    /**
+     * Create an MBean for a registry.
+     *
+     * @param   registry
+     *          the registry to publish.
+     * @param   type
+     *          the type for the object name.
+     * @param   name
+     *          the name for the object name; this is quoted if needed.
+     * @throws  JMException
+     *          when the object name is not valid.
+     */
+    public JmxMetrics(MetricsRegistry registry, String type, String name)
+            throws JMException
+    {
+        this.registry = registry;
+        this.name = new ObjectName(JmxMetrics.DOMAIN + ":type=" + type +
+                ",name=" + ObjectName.quote(name));
+    }
+
+    @Override
+    public Object getAttribute(String attribute)
+            throws AttributeNotFoundException
+    {
+        Counter counter = this.registry.getCounters().get(attribute);
+        if (counter != null)
+        {
+            return counter.get();
+        }
+        int dot = attribute.lastIndexOf('.');
+        Histogram histogram = dot < 0 ?
+                null :
+                this.registry.getHistograms().get(attribute.substring(0, dot));
+        if (histogram != null)
+        {
+            switch (attribute.substring(dot + 1))
+            {
+                case Histogram.COUNT : return histogram.getCount();
+                case Histogram.MEAN : return histogram.getMean();
+                case Histogram.P50 : return histogram.getPercentile(50);
+                case Histogram.P90 : return histogram.getPercentile(90);
+                case Histogram.P99 : return histogram.getPercentile(99);
+                case Histogram.P999 : return histogram.getPercentile(99.9);
+                case Histogram.MAX : return histogram.getMax();
+                default : break;
+            }
+        }
+        throw new AttributeNotFoundException(attribute);
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes)
+    {
+        AttributeList list = new AttributeList();
+        for (String attribute : attributes)
+        {
+            try
+            {
+                list.add(new Attribute(attribute, this.getAttribute(attribute)));
+            }
+            catch (AttributeNotFoundException ex)
+            {
+                // left out of the list, as the interface requires
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo()
+    {
+        List<MBeanAttributeInfo> attributes = new ArrayList();
+        for (String counter : this.registry.getCounters().keySet())
+        {
+            attributes.add(new MBeanAttributeInfo(counter, "long",
+                    "Counter " + counter, true, false, false));
+        }
+        for (String histogram : this.registry.getHistograms().keySet())
+        {
+            for (String statistic : JmxMetrics.STATISTICS)
+            {
+                attributes.add(new MBeanAttributeInfo(
+                        histogram + "." + statistic,
+                        Histogram.MEAN.equals(statistic) ? "double" : "long",
+                        "Histogram " + histogram + " " + statistic + " (ns)",
+                        true, false, false));
+            }
+        }
+        return new MBeanInfo(JmxMetrics.class.getName(),
+                "Process metrics",
+                attributes.toArray(new MBeanAttributeInfo[attributes.size()]),
+                null,
+                new MBeanOperationInfo[] {
+                    new MBeanOperationInfo(JmxMetrics.RESET,
+                            "Set all the metrics back to zero",
+                            null, "void", MBeanOperationInfo.ACTION)
+                },
+                null);
+    }
+
+    /**
+     * Get the object name the MBean is registered with.
+     *
+     * @return  the object name.
+     */
+    public ObjectName getName()
+    {
+        return this.name;
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature)
+            throws ReflectionException
+    {
+        if (JmxMetrics.RESET.equals(actionName))
+        {
+            this.registry.reset();
+            return null;
+        }
+        throw new ReflectionException(new NoSuchMethodException(actionName));
+    }
+
+    /**
+     * Register the MBean with the platform MBean server.
+     *
+     * @throws  JMException
+     *          when the MBean cannot be registered.
+     */
+    public void register()
+            throws JMException
+    {
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, this.name);
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute)
+            throws AttributeNotFoundException
+    {
+        throw new AttributeNotFoundException(
+                "Metric " + attribute.getName() + " is read only");
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes)
+    {
+        return new AttributeList();
+    }
+
+    /**
+     * Remove the MBean from the platform MBean server.
+     *
+     * @throws  JMException
+     *          when the MBean cannot be removed.
+     */
+    public void unregister()
+            throws JMException
+    {
+        ManagementFactory.getPlatformMBeanServer().unregisterMBean(this.name);
+    }
+}
@@ -0,0 +1,78 @@
+/*==============================================================================
+ * Lexa - Property of William Norman-Walker
+ *------------------------------------------------------------------------------
+ * MetricsRegistry.java
+ *------------------------------------------------------------------------------
+ * Author:  William Norman-Walker
+ * Created: October 2026
+ *==============================================================================
+ */
+package lexa.core.process.metrics;
+
+import java.util.Map;
+import lexa.core.data.DataSet;
+
+/**
+ * Interface for a set of named metrics.
+ * <p>The metrics are created on first use and then kept for the life of the
+ * registry, so callers should look them up once and keep them.
+ *
+ * @author William
+ * @since 2026-10
+ */
+public interface MetricsRegistry
+{
+    /**
+     * Get a counter, creating it if needed.
+     *
+     * @param   name
+     *          the name of the counter.
+     * @return  the counter.
+     */
+    public Counter counter(String name);
+
+    /**
+     * Get all the counters.
+     *
+     * @return  the counters by name; this cannot be changed.
+     */
+    public Map<String, Counter> getCounters();
+
+    /**
+     * Get all the histograms.
+     *
+     * @return  the histograms by name; this cannot be changed.
+     */
+    public Map<String, Histogram> getHistograms();
+
+    /**
+     * Get the statistics for all the metrics.
+     * <p>The format is:
+     * <pre>
+     * &lt;counter name&gt; &lt;count&gt;
+     * [...]
+     * &lt;histogram name&gt; {
+     *   &lt;histogram statistics&gt;
+     * }
+     * [...]
+     * </pre>
+     *
+     * @return  the statistics for all the metrics.
+     * @see     Histogram#getStatistics()
+     */
+    public DataSet getStatistics();
+
+    /**
+     * Get a histogram, creating it if needed.
+     *
+     * @param   name
+     *          the name of the histogram.
+     * @return  the histogram.
+     */
+    public Histogram histogram(String name);
+
+    /**
+     * Set all the metrics back to zero.
+     */
+    public void reset();
+}
@@ -0,0 +1,267 @@
+/*==============================================================================
+ * Lexa - Property of William Norman-Walker
+ *------------------------------------------------------------------------------
+ * ProcessMetrics.java
+ *------------------------------------------------------------------------------
+ * Author:  William Norman-Walker
+ * Created: October 2026
+ *==============================================================================
+ */
+package lexa.core.process.metrics;
+
+import lexa.core.process.Status;
+import lexa.core.process.StatusListener;
+
+/**
+ * The metrics recorded for the processes from a factory.
+ * <p>The metrics are held in a {@link MetricsRegistry} with these names:
+ * <dl>
+ * <dt>{@code requests}, {@code replies}, {@code errors}</dt>
+ *      <dd>counters for the requests received, replies returned and
+ *      exceptions raised.</dd>
+ * <dt>{@code dwell.<status>}</dt>
+ *      <dd>a histogram of the time in nanoseconds each process spent with
+ *      each {@link Status.Type}; see {@link #listener() listener}.</dd>
+ * <dt>{@code onNewRequest}, {@code onProcess}, {@code onReply},
+ *      {@code buildRequests}, {@code buildReply}</dt>
+ *      <dd>a histogram of the time in nanoseconds taken by each
+ *      {@link Callback}.</dd>
+ * </dl>
+ * <p>All the metrics are created up front, so recording does not allocate.
+ *
+ * @author William
+ * @since 2026-10
+ */
+public final class ProcessMetrics
+{
+    /** Counter "{@code requests}" */
+    public static final String REQUESTS = "requests";
+    /** Counter "{@code replies}" */
+    public static final String REPLIES = "replies";
+    /** Counter "{@code errors}" */
+    public static final String ERRORS = "errors";
+    /** prefix for the time spent with each status */
+    public static final String DWELL = "dwell.";
+
+    /**
+     * The steps of a process that are timed.
+     */
+    public enum Callback
+    {
+        /** Handling a new request */
+        ON_NEW_REQUEST("onNewRequest"),
+        /** Processing the data */
+        ON_PROCESS("onProcess"),
+        /** Handling a reply to a forwarded request */
+        ON_REPLY("onReply"),
+        /** Building the requests to forward */
+        BUILD_REQUESTS("buildRequests"),
+        /** Building the reply */
+        BUILD_REPLY("buildReply");
+
+        private final String metricName;
+
+        private Callback(String metricName)
+        {
+            this.metricName = metricName;
+        }
+
+        /**
+         * Get the name of the histogram for the step.
+         *
+         * @return  the name of the histogram.
+         */
+        public String getMetricName()
+        {
+            return this.metricName;
+        }
+    }
+
+    private final MetricsRegistry registry;
+    private final Counter requests;
+    private final Counter replies;
+    private final Counter errors;
+    /** time with each status, by ordinal */
+    private final Histogram[] dwell;
+    /** time for each callback, by ordinal */
+    private final Histogram[] callbacks;
+
+    /**
+     * Create the metrics in a registry.
+     *
+     * @param   registry
+     *          the registry to hold the metrics.
+     */
+    public ProcessMetrics(MetricsRegistry registry)
+    {
+        this.registry = registry;
+        this.requests = registry.counter(ProcessMetrics.REQUESTS);
+        this.replies = registry.counter(ProcessMetrics.REPLIES);
+        this.errors = registry.counter(ProcessMetrics.ERRORS);
+        Status.Type[] types = Status.Type.values();
+        this.dwell = new Histogram[types.length];
+        for (Status.Type type : types)
+        {
+            this.dwell[type.ordinal()] =
+                    registry.histogram(ProcessMetrics.DWELL + type.name());
+        }
+        Callback[] steps = Callback.values();
+        this.callbacks = new Histogram[steps.length];
+        for (Callback step : steps)
+        {
+            this.callbacks[step.ordinal()] = registry.histogram(step.getMetricName());
+        }
+    }
+
+    /**
+     * Count an exception raised by a process.
+     */
+    public void error()
+    {
+        this.errors.increment();
+    }
+
+    /**
+     * Get the registry holding the metrics.
+     *
+     * @return  the registry holding the metrics.
+     */
+    public MetricsRegistry getRegistry()
+    {
+        return this.registry;
+    }
+
+    /**
+     * Create a listener to time how long a process spends with each status.
+     * <p>Each process needs its own listener.
+     *
+     * @return  a listener for the {@link Status} of one process.
+     */
+    public StatusListener listener()
+    {
+        return new DwellListener();
+    }
+
+    /**
+     * Record the time taken by a step.
+     *
+     * @param   callback
+     *          the step that was timed.
+     * @param   start
+     *          the value of {@link System#nanoTime()} when the step started.
+     */
+    public void record(Callback callback, long start)
+    {
+        this.callbacks[callback.ordinal()].record(System.nanoTime() - start);
+    }
+
+    /**
+     * Count a reply returned by a process.
+     */
+    public void reply()
+    {
+        this.replies.increment();
+    }
+
+    /**
+     * Count a request received by a process.
+     */
+    public void request()
+    {
+        this.requests.increment();
+    }
+
+    /**
+     * Count an exception raised by a process.
+     *
+     * @param   metrics
+     *          the metrics to record into, or {@code null} if not recorded.
+     */
+    public static void error(ProcessMetrics metrics)
+    {
+        if (metrics != null)
+        {
+            metrics.error();
+        }
+    }
+
+    /**
+     * Count a reply returned by a process.
+     *
+     * @param   metrics
+     *          the metrics to record into, or {@code null} if not recorded.
+     */
+    public static void reply(ProcessMetrics metrics)
+    {
+        if (metrics != null)
+        {
+            metrics.reply();
+        }
+    }
+
+    /**
+     * Count a request received by a process.
+     *
+     * @param   metrics
+     *          the metrics to record into, or {@code null} if not recorded.
+     */
+    public static void request(ProcessMetrics metrics)
+    {
+        if (metrics != null)
+        {
+            metrics.request();
+        }
+    }
+
+    /**
+     * Get the start time for a step.
+     *
+     * @param   metrics
+     *          the metrics to record into, or {@code null} if not recorded.
+     * @return  the value of {@link System#nanoTime()}, or 0 when the metrics
+     *          are not recorded.
+     */
+    public static long start(ProcessMetrics metrics)
+    {
+        return metrics == null ? 0 : System.nanoTime();
+    }
+
+    /**
+     * Record the time taken by a step.
+     *
+     * @param   metrics
+     *          the metrics to record into, or {@code null} if not recorded.
+     * @param   callback
+     *          the step that was timed.
+     * @param   start
+     *          the time from {@link #start(ProcessMetrics) start}.
+     */
+    public static void stop(ProcessMetrics metrics, Callback callback, long start)
+    {
+        if (metrics != null)
+        {
+            metrics.record(callback, start);
+        }
+    }
+
+    /**
+     * Times each status of one process.
+     */
+    private class DwellListener
+            implements StatusListener
+    {
+        /** time the current status started; 0 before the first change */
+        private long since;
+
+        @Override
+        public void statusChanged(Status status, Status.Type previous, Status.Type current)
+        {
+            long now = System.nanoTime();
+            if (this.since != 0)
+            {
+                ProcessMetrics.this.dwell[previous.ordinal()].record(now - this.since);
+            }
+            this.since = now;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*==============================================================================
+ * Lexa - Property of William Norman-Walker
+ *------------------------------------------------------------------------------
+ * SimpleMetricsRegistry.java
+ *------------------------------------------------------------------------------
+ * Author:  William Norman-Walker
+ * Created: October 2026
+ *==============================================================================
+ */
+package lexa.core.process.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import lexa.core.data.ArrayDataSet;
+import lexa.core.data.DataSet;
+
+/**
+ * A {@link MetricsRegistry} held in memory.
+ *
+ * @author William
+ * @since 2026-10
+ */
+public class SimpleMetricsRegistry
+        implements MetricsRegistry
+{
+    private final ConcurrentHashMap<String, Counter> counters;
+    private final ConcurrentHashMap<String, Histogram> histograms;
+
+    /**
+     * Create an empty registry.
+     */
+    public SimpleMetricsRegistry()
+    {
+        this.counters = new ConcurrentHashMap();
+        this.histograms = new ConcurrentHashMap();
+    }
+
+    @Override
+    public Counter counter(String name)
+    {
+        return this.counters.computeIfAbsent(name, (String key) -> new Counter());
+    }
+
+    @Override
+    public Map<String, Counter> getCounters()
+    {
+        return Collections.unmodifiableMap(new TreeMap(this.counters));
+    }
+
+    @Override
+    public Map<String, Histogram> getHistograms()
+    {
+        return Collections.unmodifiableMap(new TreeMap(this.histograms));
+    }
+
+    @Override
+    public DataSet getStatistics()
+    {
+        DataSet statistics = new ArrayDataSet();
+        for (Map.Entry<String, Counter> counter : this.getCounters().entrySet())
+        {
+            statistics.put(counter.getKey(), counter.getValue().get());
+        }
+        for (Map.Entry<String, Histogram> histogram : this.getHistograms().entrySet())
+        {
+            statistics.put(histogram.getKey(), histogram.getValue().getStatistics());
+        }
+        return statistics;
+    }
+
+    @Override
+    public Histogram histogram(String name)
+    {
+        return this.histograms.computeIfAbsent(name, (String key) -> new Histogram());
+    }
+
+    @Override
+    public void reset()
+    {
+        this.counters.values().forEach(Counter::reset);
+        this.histograms.values().forEach(Histogram::reset);
+    }
+}
@@ -0,0 +1,23 @@
+/*==============================================================================
+ *  Lexa - Property of William Norman-Walker
+ * ------------------------------------------------------------------------------
+ *  package-info.java (lxProcess)
+ * ------------------------------------------------------------------------------
+ *  Author:  William Norman-Walker
+ *  Created: October 2026
+ * ==============================================================================
+ */
+
+/**
+ * Metrics for Lexa processes.
+ * <p>
+ * Each {@link lexa.core.process.factory.ProcessFactory ProcessFactory} keeps a
+ * {@link lexa.core.process.metrics.ProcessMetrics ProcessMetrics} for its
+ * processes, held in a
+ * {@link lexa.core.process.metrics.MetricsRegistry MetricsRegistry} and
+ * published over JMX by {@link lexa.core.process.metrics.JmxMetrics JmxMetrics}.
+ *
+ * @author  william
+ * @since   2026-10
+ */
+package lexa.core.process.metrics;
@@ -0,0 +1,702 @@
+/*==============================================================================
+ * Lexa - Property of William Norman-Walker
+ *------------------------------------------------------------------------------
+ * Spool.java
+ *------------------------------------------------------------------------------
+ * Author:  William Norman-Walker
+ * Created: October 2026
+ *==============================================================================
+ */
+package lexa.core.process.spool;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import lexa.core.data.DataSet;
+import lexa.core.data.exception.DataException;
+import lexa.core.process.codec.EnvelopeCodec;
+
+/**
+ * A store and forward spool of requests on disk.
+ * <p>Requests are appended to memory mapped segment files and read back in
+ * order for each service.  Only a cursor and a count are held on the heap
+ * for each service, so the heap stays flat however many requests are
+ * spooled.  Each segment file starts with a header:
+ * <pre>
+ * magic(int) version(int)
+ * </pre>
+ * and each record is:
+ * <pre>
+ * length(int) state(byte) serviceHash(int) serviceLength(short) service envelope
+ * </pre>
+ * where the length covers everything after itself and the envelope is
+ * written by the {@link EnvelopeCodec}.  The state is changed in place when
+ * the request is acknowledged; a segment is deleted once every request in
+ * it has been acknowledged.
+ * <p>Writes go to the mapped files and are only forced to disk by
+ * {@link #commit() commit}, so a group of requests are made durable
+ * together.  After a restart the requests not acknowledged are read back,
+ * so a request may be sent twice but is never lost once committed.
+ * <p>Each process using the same base name is given its own slot, so the
+ * files for a spool are named {@code <base>.<slot>.<segment>}; a process
+ * opening the spool after a restart picks up the lowest free slot and the
+ * requests left in it.  A slot is held with a lock on the file
+ * {@code <base>.<slot>.lock}, so processes in other JVMs, or on other hosts
+ * sharing the directory, never open the same slot.
+ * <p>Recovery stops at the first record whose length is not positive or
+ * runs past the end of its segment, so a torn write is never read.
+ * <p>A spool is not thread safe; it belongs to a single process.
+ *
+ * @author  William
+ * @since   2026-10
+ */
+public final class Spool
+{
+    /** the default size of each segment, 16MB */
+    public static final int DEFAULT_SEGMENT_SIZE = 16 << 20;
+    /** marks a spool segment; "{@code LXSP}" */
+    private static final int MAGIC = 0x4c585350;
+    /** the version of the format */
+    private static final int VERSION = 1;
+    /** the size of the segment header */
+    private static final int HEADER_SIZE = 8;
+    /** the size of the record header, not counting the length or service */
+    private static final int RECORD_HEADER_SIZE = 7;
+    /** state of a request not yet acknowledged */
+    private static final byte PENDING = 1;
+    /** state of a request acknowledged */
+    private static final byte ACKNOWLEDGED = 2;
+
+    /** the slots in use for each base name */
+    private static final HashMap<String, BitSet> slots = new HashMap();
+
+    private final String base;
+    private final int slot;
+    private final String prefix;
+    private final int segmentSize;
+    /** the open segments, by index */
+    private final TreeMap<Integer, Segment> segments;
+    /** the state for each service with requests in the spool */
+    private final HashMap<String, Service> services;
+    /** requests read and not yet acknowledged or retried */
+    private final HashSet<Long> inFlight;
+    /** the file holding the lock on the slot; closing it releases the lock */
+    private final RandomAccessFile lockFile;
+    /** the segment being written */
+    private Segment current;
+    private boolean closed;
+
+    /**
+     * Open a spool.
+     */
+    private Spool(String base, int slot, RandomAccessFile lockFile,
+            int segmentSize)
+            throws IOException,
+                    DataException
+    {
+        this.base = base;
+        this.slot = slot;
+        this.lockFile = lockFile;
+        this.prefix = base + "." + slot + ".";
+        this.segmentSize = segmentSize;
+        this.segments = new TreeMap();
+        this.services = new HashMap();
+        this.inFlight = new HashSet();
+        this.recover();
+        int next = this.segments.isEmpty() ? 1 : this.segments.lastKey() + 1;
+        this.current = this.createSegment(next);
+    }
+
+    /**
+     * Acknowledge a request, so it is not sent again.
+     *
+     * @param   service
+     *          the service the request was sent to.
+     * @param   position
+     *          the position of the request from {@link #next(String) next}.
+     */
+    public void acknowledge(String service, long position)
+    {
+        if (!this.inFlight.remove(position))
+        {
+            return;
+        }
+        Segment segment = this.segments.get(Spool.segmentIndex(position));
+        segment.buffer.put(Spool.offset(position) + 4, Spool.ACKNOWLEDGED);
+        segment.dirty = true;
+        Service state = this.services.get(service);
+        state.inFlight--;
+        if (state.pending == 0 && state.inFlight == 0)
+        {
+            this.services.remove(service);
+        }
+        if (--segment.live == 0 && segment != this.current)
+        {
+            this.delete(segment);
+        }
+    }
+
+    /**
+     * Add a request to the spool.
+     * <p>The request is not durable until the next {@link #commit() commit}.
+     *
+     * @param   service
+     *          the service to send the request to.
+     * @param   request
+     *          the request.
+     * @throws  IOException
+     *          when a new segment cannot be created.
+     * @throws  DataException
+     *          when the request cannot be encoded or is too large for a
+     *          segment.
+     */
+    public void append(String service, DataSet request)
+            throws IOException,
+                    DataException
+    {
+        if (this.closed)
+        {
+            throw new DataException("Spool is closed");
+        }
+        byte[] name = service.getBytes(StandardCharsets.UTF_8);
+        int length = Spool.RECORD_HEADER_SIZE + name.length +
+                EnvelopeCodec.size(request);
+        if (Spool.HEADER_SIZE + 4 + length + 4 > this.segmentSize)
+        {
+            throw new DataException("Request is too large to spool");
+        }
+        if (this.current.position + 4 + length + 4 > this.segmentSize)
+        {
+            Segment full = this.current;
+            full.buffer.force();
+            full.dirty = false;
+            this.current = this.createSegment(full.index + 1);
+            if (full.live == 0)
+            {
+                this.delete(full);
+            }
+        }
+        Segment segment = this.current;
+        int offset = segment.position;
+        ByteBuffer buffer = segment.buffer.duplicate();
+        buffer.position(offset + 4);
+        buffer.put(Spool.PENDING)
+                .putInt(service.hashCode())
+                .putShort((short)name.length)
+                .put(name);
+        try
+        {
+            EnvelopeCodec.encode(request, buffer);
+        }
+        catch (DataException ex)
+        {
+            // clear the partial record so the end of the segment reads as zero
+            for (int index = offset + 4; index < buffer.position(); index++)
+            {
+                segment.buffer.put(index, (byte)0);
+            }
+            throw ex;
+        }
+        segment.buffer.putInt(offset, length);
+        segment.position = offset + 4 + length;
+        segment.live++;
+        segment.dirty = true;
+        Service state = this.services.get(service);
+        if (state == null)
+        {
+            state = new Service(service, Spool.position(segment.index, offset));
+            this.services.put(service, state);
+        }
+        state.pending++;
+    }
+
+    /**
+     * Close the spool.
+     * <p>The spool is committed and its slot is freed for another process.
+     */
+    public void close()
+    {
+        if (this.closed)
+        {
+            return;
+        }
+        this.commit();
+        this.closed = true;
+        Spool.unlock(this.lockFile);
+        synchronized (Spool.slots)
+        {
+            Spool.slots.get(this.base).clear(this.slot);
+        }
+    }
+
+    /**
+     * Force the changes since the last commit to disk.
+     */
+    public void commit()
+    {
+        for (Segment segment : this.segments.values())
+        {
+            if (segment.dirty)
+            {
+                segment.buffer.force();
+                segment.dirty = false;
+            }
+        }
+    }
+
+    /**
+     * Create and map a new segment.
+     */
+    private Segment createSegment(int index)
+            throws IOException
+    {
+        File file = new File(this.prefix + String.format("%06d", index));
+        MappedByteBuffer buffer;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw"))
+        {
+            raf.setLength(0);
+            raf.setLength(this.segmentSize);
+            buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE,
+                    0, this.segmentSize);
+        }
+        buffer.putInt(0, Spool.MAGIC);
+        buffer.putInt(4, Spool.VERSION);
+        Segment segment = new Segment(index, file, buffer);
+        segment.dirty = true;
+        this.segments.put(index, segment);
+        return segment;
+    }
+
+    /**
+     * Delete a segment with no requests left to send.
+     */
+    private void delete(Segment segment)
+    {
+        this.segments.remove(segment.index);
+        if (!segment.file.delete())
+        {
+            // still mapped on some platforms; try again on the way out
+            segment.file.deleteOnExit();
+        }
+    }
+
+    /**
+     * Get the number of requests for a service not yet acknowledged.
+     *
+     * @param   service
+     *          the service to check.
+     * @return  the number of requests waiting to be sent or acknowledged.
+     */
+    public int getOutstanding(String service)
+    {
+        Service state = this.services.get(service);
+        return state == null ? 0 : state.pending + state.inFlight;
+    }
+
+    /**
+     * Get the number of requests for a service waiting to be sent.
+     *
+     * @param   service
+     *          the service to check.
+     * @return  the number of requests waiting to be sent.
+     */
+    public int getPending(String service)
+    {
+        Service state = this.services.get(service);
+        return state == null ? 0 : state.pending;
+    }
+
+    /**
+     * Get the number of segments in use.
+     * <p>A segment is let go once every request in it has been acknowledged,
+     * so this is at least one, for the segment being written.
+     *
+     * @return  the number of segments in use.
+     */
+    public int getSegments()
+    {
+        return this.segments.size();
+    }
+
+    /**
+     * Get the services with requests in the spool.
+     *
+     * @return  the services with requests waiting to be sent or acknowledged.
+     */
+    public Set<String> getServices()
+    {
+        return this.services.keySet();
+    }
+
+    /**
+     * Read the next request for a service.
+     * <p>The request stays in the spool until it is acknowledged; if it
+     * cannot be sent it should be {@link #retry(String, long) retried}.
+     *
+     * @param   service
+     *          the service to read for.
+     * @return  the position of the request, or -1 if there is none waiting.
+     */
+    public long next(String service)
+    {
+        Service state = this.services.get(service);
+        if (state == null || state.pending == 0)
+        {
+            return -1;
+        }
+        long position = state.cursor;
+        Map.Entry<Integer, Segment> entry =
+                this.segments.ceilingEntry(Spool.segmentIndex(position));
+        int offset = entry == null ||
+                entry.getKey() != Spool.segmentIndex(position) ?
+                Spool.HEADER_SIZE :
+                Spool.offset(position);
+        while (entry != null)
+        {
+            Segment segment = entry.getValue();
+            int length = Spool.length(segment.buffer, offset);
+            if (length == 0)
+            {
+                entry = this.segments.higherEntry(segment.index);
+                offset = Spool.HEADER_SIZE;
+                continue;
+            }
+            long found = Spool.position(segment.index, offset);
+            offset += 4 + length;
+            if (segment.buffer.get(Spool.offset(found) + 4) == Spool.PENDING &&
+                    state.matches(segment.buffer, Spool.offset(found)) &&
+                    !this.inFlight.contains(found))
+            {
+                this.inFlight.add(found);
+                state.pending--;
+                state.inFlight++;
+                state.cursor = Spool.position(segment.index, offset);
+                return found;
+            }
+        }
+        // nothing left to send after all
+        state.pending = 0;
+        if (state.inFlight == 0)
+        {
+            this.services.remove(service);
+        }
+        return -1;
+    }
+
+    /**
+     * Open a spool in the lowest free slot for a base name.
+     *
+     * @param   base
+     *          the base name of the segment files.
+     * @param   segmentSize
+     *          the size of each segment in bytes.
+     * @return  the open spool, holding any requests left from before.
+     * @throws  IOException
+     *          when the segments cannot be opened.
+     * @throws  DataException
+     *          when a segment left from before is not valid.
+     */
+    public static Spool open(String base, int segmentSize)
+            throws IOException,
+                    DataException
+    {
+        File parent = new File(base).getAbsoluteFile().getParentFile();
+        if (parent != null)
+        {
+            parent.mkdirs();
+        }
+        int slot;
+        RandomAccessFile lockFile;
+        FileLock lock;
+        synchronized (Spool.slots)
+        {
+            BitSet used = Spool.slots.computeIfAbsent(base, (String key) -> new BitSet());
+            slot = used.nextClearBit(1);
+            while (true)
+            {
+                lockFile = new RandomAccessFile(base + "." + slot + ".lock", "rw");
+                try
+                {
+                    lock = lockFile.getChannel().tryLock();
+                }
+                catch (IOException | OverlappingFileLockException ex)
+                {
+                    Spool.unlock(lockFile);
+                    throw new IOException("Unable to lock spool slot " + slot, ex);
+                }
+                if (lock != null)
+                {
+                    break;
+                }
+                // held by another process
+                Spool.unlock(lockFile);
+                slot = used.nextClearBit(slot + 1);
+            }
+            used.set(slot);
+        }
+        try
+        {
+            return new Spool(base, slot, lockFile, segmentSize);
+        }
+        catch (IOException | DataException | RuntimeException ex)
+        {
+            Spool.unlock(lockFile);
+            synchronized (Spool.slots)
+            {
+                Spool.slots.get(base).clear(slot);
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * Close a lock file, which releases the lock on it.
+     */
+    private static void unlock(RandomAccessFile lockFile)
+    {
+        try
+        {
+            lockFile.close();
+        }
+        catch (IOException ex)
+        {
+            // the lock goes with the process anyway
+        }
+    }
+
+    /**
+     * Get the length of the record at an offset.
+     *
+     * @return  the length, or 0 if there is no complete record there.
+     */
+    private static int length(ByteBuffer buffer, int offset)
+    {
+        if (offset + 4 > buffer.capacity())
+        {
+            return 0;
+        }
+        int length = buffer.getInt(offset);
+        return length > 0 && offset + 4 + length <= buffer.capacity() ?
+                length :
+                0;
+    }
+
+    /**
+     * Read a request from the spool.
+     *
+     * @param   position
+     *          the position of the request from {@link #next(String) next}.
+     * @return  the request.
+     * @throws  DataException
+     *          when the request cannot be decoded.
+     */
+    public DataSet read(long position)
+            throws DataException
+    {
+        Segment segment = this.segments.get(Spool.segmentIndex(position));
+        int offset = Spool.offset(position);
+        ByteBuffer buffer = segment.buffer.duplicate();
+        buffer.position(offset + 4);
+        buffer.limit(offset + 4 + buffer.getInt(offset));
+        buffer.position(buffer.position() + 5);
+        short name = buffer.getShort();
+        buffer.position(buffer.position() + name);
+        return EnvelopeCodec.decode(buffer);
+    }
+
+    /**
+     * Read the segments left from before and find the requests still to
+     * send; segments with none left are deleted.
+     */
+    private void recover()
+            throws IOException,
+                    DataException
+    {
+        File directory = new File(this.prefix).getAbsoluteFile().getParentFile();
+        String name = new File(this.prefix).getName();
+        File[] files = directory.listFiles();
+        if (files == null)
+        {
+            return;
+        }
+        TreeMap<Integer, File> found = new TreeMap();
+        for (File file : files)
+        {
+            String fileName = file.getName();
+            if (fileName.startsWith(name) &&
+                    fileName.length() == name.length() + 6)
+            {
+                try
+                {
+                    found.put(Integer.parseInt(fileName.substring(name.length())), file);
+                }
+                catch (NumberFormatException ex)
+                {
+                    // not a segment
+                }
+            }
+        }
+        for (Map.Entry<Integer, File> entry : found.entrySet())
+        {
+            MappedByteBuffer buffer;
+            try (RandomAccessFile raf = new RandomAccessFile(entry.getValue(), "rw"))
+            {
+                buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE,
+                        0, raf.length());
+            }
+            if (buffer.capacity() < Spool.HEADER_SIZE + 4 ||
+                    buffer.getInt(0) != Spool.MAGIC ||
+                    buffer.getInt(4) != Spool.VERSION)
+            {
+                throw new DataException("Not a spool segment " + entry.getValue());
+            }
+            Segment segment = new Segment(entry.getKey(), entry.getValue(), buffer);
+            this.segments.put(segment.index, segment);
+            int offset = Spool.HEADER_SIZE;
+            int length;
+            while ((length = Spool.length(buffer, offset)) > 0)
+            {
+                if (buffer.get(offset + 4) == Spool.PENDING)
+                {
+                    ByteBuffer record = buffer.duplicate();
+                    record.position(offset + 9);
+                    byte[] service = new byte[record.getShort()];
+                    record.get(service);
+                    String key = new String(service, StandardCharsets.UTF_8);
+                    Service state = this.services.get(key);
+                    if (state == null)
+                    {
+                        state = new Service(key, Spool.position(segment.index, offset));
+                        this.services.put(key, state);
+                    }
+                    state.pending++;
+                    segment.live++;
+                }
+                offset += 4 + length;
+            }
+            segment.position = offset;
+            if (segment.live == 0)
+            {
+                this.delete(segment);
+            }
+        }
+    }
+
+    /**
+     * Put a request back to be sent again.
+     * <p>The request is sent again before any later requests for its
+     * service.
+     *
+     * @param   service
+     *          the service the request was sent to.
+     * @param   position
+     *          the position of the request from {@link #next(String) next}.
+     */
+    public void retry(String service, long position)
+    {
+        if (!this.inFlight.remove(position))
+        {
+            return;
+        }
+        Service state = this.services.get(service);
+        state.inFlight--;
+        state.pending++;
+        if (position < state.cursor)
+        {
+            state.cursor = position;
+        }
+    }
+
+    private static long position(int segment, int offset)
+    {
+        return ((long)segment << 32) | offset;
+    }
+
+    private static int offset(long position)
+    {
+        return (int)position;
+    }
+
+    private static int segmentIndex(long position)
+    {
+        return (int)(position >>> 32);
+    }
+
+    /**
+     * A mapped segment file.
+     */
+    private static class Segment
+    {
+        private final int index;
+        private final File file;
+        private final MappedByteBuffer buffer;
+        /** the next free offset */
+        private int position;
+        /** requests in the segment not yet acknowledged */
+        private int live;
+        /** changed since the last commit */
+        private boolean dirty;
+
+        private Segment(int index, File file, MappedByteBuffer buffer)
+        {
+            this.index = index;
+            this.file = file;
+            this.buffer = buffer;
+            this.position = Spool.HEADER_SIZE;
+        }
+    }
+
+    /**
+     * The requests in the spool for a service.
+     */
+    private static class Service
+    {
+        private final byte[] name;
+        private final int hash;
+        /** requests waiting to be sent */
+        private int pending;
+        /** requests sent and not yet acknowledged */
+        private int inFlight;
+        /** no request for the service waits before this position */
+        private long cursor;
+
+        private Service(String name, long cursor)
+        {
+            this.name = name.getBytes(StandardCharsets.UTF_8);
+            this.hash = name.hashCode();
+            this.cursor = cursor;
+        }
+
+        /**
+         * Indicates if the record at an offset is for this service.
+         */
+        private boolean matches(ByteBuffer buffer, int offset)
+        {
+            if (buffer.getInt(offset + 5) != this.hash ||
+                    buffer.getShort(offset + 9) != this.name.length)
+            {
+                return false;
+            }
+            for (int index = 0; index < this.name.length; index++)
+            {
+                if (buffer.get(offset + 11 + index) != this.name[index])
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
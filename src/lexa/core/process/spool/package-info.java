@@ -0,0 +1,22 @@
+/*==============================================================================
+ *  Lexa - Property of William Norman-Walker
+ * ------------------------------------------------------------------------------
+ *  package-info.java (lxProcess)
+ * ------------------------------------------------------------------------------
+ *  Author:  William Norman-Walker
+ *  Created: October 2026
+ * ==============================================================================
+ */
+
+/**
+ * Store and forward of requests on disk.
+ * <p>
+ * A {@link lexa.core.process.PassThrough PassThrough} with a {@code spool}
+ * block puts the requests for a service that is down in a
+ * {@link lexa.core.process.spool.Spool Spool}, a set of memory mapped
+ * segment files, and sends them again in order once the service is back.
+ *
+ * @author  william
+ * @since   2026-10
+ */
+package lexa.core.process.spool;
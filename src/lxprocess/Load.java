@@ -0,0 +1,371 @@
+/*==============================================================================
+ * Lexa - Property of William Norman-Walker
+ *------------------------------------------------------------------------------
+ * Load.java
+ *------------------------------------------------------------------------------
+ * Author:  William Norman-Walker
+ * Created: October 2026
+ *==============================================================================
+ */
+package lxprocess;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import lexa.core.data.ArrayDataSet;
+import lexa.core.data.DataItem;
+import lexa.core.data.DataSet;
+import lexa.core.data.exception.DataException;
+import lexa.core.expression.ExpressionException;
+import lexa.core.process.LexaProcess;
+import lexa.core.process.ProcessException;
+import lexa.core.process.Status;
+import lexa.core.process.context.Context;
+import lexa.core.process.factory.ProcessFactory;
+import lexa.core.process.metrics.Histogram;
+
+/**
+ * Drives a process test case under load.
+ * <p>Each worker thread has its own process and sends the test message
+ * through it one request at a time, for a set duration; the process is
+ * recycled after each reply, as a {@link lexa.core.process.factory.ProcessPool
+ * ProcessPool} does when it is released.  As with
+ * {@link TestProcess}, forwarded requests are never sent; the stubbed
+ * {@code replies} are passed back in their place, in order, with their
+ * source refs changed to match the forwarded messages.
+ * <p>With a target rate, each worker is given a fixed schedule and the
+ * latency of a request is measured from when it was due to start, not from
+ * when it did.  A request held up by the one before it still counts the
+ * time it waited, so a stall shows in the latencies rather than just
+ * lowering the rate; without a rate the workers run flat out and the
+ * latency is just the time taken.
+ *
+ * @author william
+ * @since 2026-10
+ */
+public class Load
+{
+    /** Statistic "{@code requests}" */
+    public static final String REQUESTS = "requests";
+    /** Statistic "{@code mismatches}" */
+    public static final String MISMATCHES = "mismatches";
+    /** Statistic "{@code errors}" */
+    public static final String ERRORS = "errors";
+    /** Statistic "{@code elapsed}" */
+    public static final String ELAPSED = "elapsed";
+    /** Statistic "{@code throughput}" */
+    public static final String THROUGHPUT = "throughput";
+    /** Statistic "{@code latency}" */
+    public static final String LATENCY = "latency";
+    /** Statistic "{@code states}" */
+    public static final String STATES = "states";
+
+    private final ProcessFactory factory;
+    private final DataSet testCase;
+    private final int concurrency;
+    private final long duration;
+    private final int rate;
+    private final AtomicInteger requests;
+    private final AtomicInteger mismatches;
+    private final AtomicInteger errors;
+    /** latency of each request, from when it was due */
+    private final Histogram latency;
+    /** time taken by the step for each status */
+    private final Histogram[] states;
+
+    /**
+     * Create a load run.
+     *
+     * @param   factory
+     *          the factory for the processes.
+     * @param   testCase
+     *          the process test case with the {@code message},
+     *          {@code replies} and {@code result} to use.
+     * @param   concurrency
+     *          the number of worker threads, each with its own process.
+     * @param   duration
+     *          how long to run for in milliseconds.
+     * @param   rate
+     *          the target rate in requests per second across all the
+     *          workers, or 0 or less to run flat out.
+     */
+    public Load(ProcessFactory factory, DataSet testCase,
+            int concurrency, long duration, int rate)
+    {
+        this.factory = factory;
+        this.testCase = testCase;
+        this.concurrency = Math.max(1, concurrency);
+        this.duration = duration;
+        this.rate = rate;
+        this.requests = new AtomicInteger();
+        this.mismatches = new AtomicInteger();
+        this.errors = new AtomicInteger();
+        this.latency = new Histogram();
+        Status.Type[] types = Status.Type.values();
+        this.states = new Histogram[types.length];
+        for (int t = 0; t < types.length; t++)
+        {
+            this.states[t] = new Histogram();
+        }
+    }
+
+    /**
+     * Run the load.
+     * <p>The statistics are:
+     * <pre>
+     * requests % &lt;requests completed&gt;
+     * mismatches % &lt;replies that differ from the result&gt;
+     * errors % &lt;exceptions raised by the processes&gt;
+     * elapsed % &lt;time taken in milliseconds&gt;
+     * throughput $ &lt;requests completed per second&gt;
+     * latency {
+     *   &lt;histogram statistics in nanoseconds&gt;
+     * }
+     * states {
+     *   &lt;status&gt; {
+     *     &lt;histogram statistics in nanoseconds&gt;
+     *   }
+     *   [...]
+     * }
+     * </pre>
+     *
+     * @return  the statistics for the run.
+     * @throws  DataException
+     *          when a process cannot be created.
+     * @throws  ExpressionException
+     *          when a process cannot be created.
+     * @throws  ProcessException
+     *          when a process cannot be created or closed.
+     * @throws  InterruptedException
+     *          when interrupted waiting for the workers.
+     */
+    public DataSet run()
+            throws DataException,
+                    ExpressionException,
+                    ProcessException,
+                    InterruptedException
+    {
+        Worker[] workers = new Worker[this.concurrency];
+        for (int w = 0; w < workers.length; w++)
+        {
+            workers[w] = new Worker(w, this.factory.instance());
+        }
+        long start = System.nanoTime();
+        long end = start + TimeUnit.MILLISECONDS.toNanos(this.duration);
+        for (Worker worker : workers)
+        {
+            worker.begin(start, end);
+        }
+        for (Worker worker : workers)
+        {
+            worker.thread.join();
+        }
+        long elapsed = System.nanoTime() - start;
+        for (Worker worker : workers)
+        {
+            worker.process.close();
+        }
+        DataSet states = new ArrayDataSet();
+        for (Status.Type type : Status.Type.values())
+        {
+            Histogram histogram = this.states[type.ordinal()];
+            if (histogram.getCount() > 0)
+            {
+                states.put(type.name(), histogram.getStatistics());
+            }
+        }
+        return new ArrayDataSet()
+                .put(Load.REQUESTS, this.requests.get())
+                .put(Load.MISMATCHES, this.mismatches.get())
+                .put(Load.ERRORS, this.errors.get())
+                .put(Load.ELAPSED, TimeUnit.NANOSECONDS.toMillis(elapsed))
+                .put(Load.THROUGHPUT,
+                        this.requests.get() * 1e9 / Math.max(1, elapsed))
+                .put(Load.LATENCY, this.latency.getStatistics())
+                .put(Load.STATES, states);
+    }
+
+    /**
+     * Sends requests through one process.
+     */
+    private class Worker
+            implements Runnable
+    {
+        private final int index;
+        private final LexaProcess process;
+        private final Status status;
+        private final Thread thread;
+        private long start;
+        private long end;
+
+        private Worker(int index, LexaProcess process)
+        {
+            this.index = index;
+            this.process = process;
+            this.status = process.getStatus();
+            this.thread = new Thread(this, "load-" + index);
+            this.thread.setDaemon(true);
+        }
+
+        /**
+         * Start the worker.
+         */
+        private void begin(long start, long end)
+        {
+            this.start = start;
+            this.end = end;
+            this.thread.start();
+        }
+
+        @Override
+        public void run()
+        {
+            // each worker sends at its share of the rate, offset from the others
+            long interval = Load.this.rate > 0 ?
+                    TimeUnit.SECONDS.toNanos(Load.this.concurrency) / Load.this.rate :
+                    0;
+            long due = this.start + interval * this.index / Load.this.concurrency;
+            while (true)
+            {
+                long now = System.nanoTime();
+                if (interval == 0)
+                {
+                    due = now;
+                }
+                if (now >= this.end || due >= this.end)
+                {
+                    return;
+                }
+                long wait;
+                while ((wait = due - System.nanoTime()) > 0)
+                {
+                    LockSupport.parkNanos(wait);
+                }
+                try
+                {
+                    this.send();
+                    Load.this.requests.incrementAndGet();
+                    Load.this.latency.record(System.nanoTime() - due);
+                }
+                catch (ProcessException | DataException | RuntimeException ex)
+                {
+                    Load.this.errors.incrementAndGet();
+                    if (!this.recover())
+                    {
+                        return;
+                    }
+                }
+                due += interval;
+            }
+        }
+
+        /**
+         * Recycle the process after an error.
+         *
+         * @return  {@code true} if the process can be used again.
+         */
+        private boolean recover()
+        {
+            try
+            {
+                this.process.recycle();
+                return true;
+            }
+            catch (ProcessException | RuntimeException ex)
+            {
+                return false;
+            }
+        }
+
+        /**
+         * Send the test message and wait for its reply, timing each step,
+         * then recycle the process for the next message.
+         */
+        private void send()
+                throws ProcessException,
+                        DataException
+        {
+            this.process.handleRequest(
+                    new ArrayDataSet(Load.this.testCase.getDataSet(Context.MESSAGE)));
+            DataSet forward = null;
+            boolean replied = false;
+            while (true)
+            {
+                Status.Type type = this.status.getCurrent();
+                long begin = System.nanoTime();
+                switch (type)
+                {
+                    case WAITING_PROCESS :
+                    {
+                        this.process.process();
+                        break;
+                    }
+                    case REQUEST_PENDING :
+                    {
+                        forward = this.process.getRequests();
+                        break;
+                    }
+                    case WAITING_REPLY :
+                    {
+                        this.reply(forward);
+                        break;
+                    }
+                    case REPLY_READY :
+                    {
+                        DataSet reply = this.process.getReply();
+                        if (!Objects.equals(
+                                Load.this.testCase.getDataSet("result"),
+                                reply.getDataSet(Context.REPLY)))
+                        {
+                            Load.this.mismatches.incrementAndGet();
+                        }
+                        replied = true;
+                        break;
+                    }
+                    default:
+                    {
+                        if (!replied)
+                        {
+                            throw new ProcessException("Process is idle without a reply");
+                        }
+                        this.process.recycle();
+                        return;
+                    }
+                }
+                Load.this.states[type.ordinal()].record(System.nanoTime() - begin);
+            }
+        }
+
+        /**
+         * Pass back the stubbed replies for the forwarded messages.
+         */
+        private void reply(DataSet forward)
+                throws ProcessException,
+                        DataException
+        {
+            if (forward == null)
+            {
+                throw new DataException("No requests forwarded");
+            }
+            DataSet replies = Load.this.testCase.getDataSet("replies");
+            int index = 0;
+            for (DataItem message : forward.getDataSet(Context.MESSAGE_LIST))
+            {
+                if (replies == null || index == replies.size())
+                {
+                    throw new DataException(
+                            "No reply in replies block for message " + message.getKey());
+                }
+                DataSet stub = replies.get(index++).getDataSet();
+                DataSet source = stub.getDataSet(Context.SOURCE);
+                this.process.handleReply(new ArrayDataSet(stub)
+                        .put(Context.SOURCE, (source == null ?
+                                new ArrayDataSet() :
+                                new ArrayDataSet(source))
+                            .put(Context.SOURCE_REF,
+                                    Integer.valueOf(message.getKey()))));
+            }
+        }
+    }
+}
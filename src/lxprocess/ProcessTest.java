@@ -10,6 +10,7 @@
 
 package lxprocess;
 
+import lexa.core.process.logging.LogSink;
 import lexa.test.TestClass;
 import lexa.test.TestRun;
 
@@ -33,12 +34,26 @@ public class ProcessTest {
         }
 
         TestClass[] tests = new TestClass[]{
-            new TestProcess(fileName)
+            new TestProcess(fileName),
+            new TestCodec(fileName),
+            new TestReplay(fileName),
+            new TestSpool(fileName),
+            new TestPool(fileName),
+            new TestEngine(fileName),
+            new TestLoad(fileName)
         };
         System.out.println(
                 new TestRun(tests)
                         .execute()
                         .getReport(true, true)
         );
+        LogSink sink = LogSink.getSink();
+        if (sink != null) {
+            try {
+                sink.close();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
 	}
 }
@@ -0,0 +1,290 @@
+/*==============================================================================
+ * Lexa - Property of William Norman-Walker
+ *------------------------------------------------------------------------------
+ * Replay.java
+ *------------------------------------------------------------------------------
+ * Author:  William Norman-Walker
+ * Created: October 2026
+ *==============================================================================
+ */
+package lxprocess;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import lexa.core.data.ArrayDataSet;
+import lexa.core.data.DataItem;
+import lexa.core.data.DataSet;
+import lexa.core.data.exception.DataException;
+import lexa.core.expression.ExpressionException;
+import lexa.core.process.LexaProcess;
+import lexa.core.process.ProcessException;
+import lexa.core.process.Status;
+import lexa.core.process.capture.CaptureReader;
+import lexa.core.process.context.Context;
+import lexa.core.process.factory.ProcessFactory;
+
+/**
+ * Replays a capture through new processes.
+ * <p>Each process in the capture is replaced by a new instance from the
+ * factory and is given the same calls in the same order.  As with the
+ * stubbed replies in {@link TestProcess}, the forwarded requests are never
+ * sent; the captured replies are passed back in their place, with their
+ * source refs changed to match the requests the new process forwarded.
+ * Each reply returned is checked against the captured one, and the process
+ * is recycled where the captured one was.
+ * <p>The capture is replayed either at the recorded speed or flat out.
+ *
+ * @author william
+ * @since 2026-10
+ */
+public class Replay
+{
+    /** Statistic "{@code records}" */
+    public static final String RECORDS = "records";
+    /** Statistic "{@code requests}" */
+    public static final String REQUESTS = "requests";
+    /** Statistic "{@code results}" */
+    public static final String RESULTS = "results";
+    /** Statistic "{@code mismatches}" */
+    public static final String MISMATCHES = "mismatches";
+    /** Statistic "{@code errors}" */
+    public static final String ERRORS = "errors";
+    /** Statistic "{@code elapsed}" */
+    public static final String ELAPSED = "elapsed";
+
+    private final ProcessFactory factory;
+    private final boolean recordedSpeed;
+    /** the new process for each captured process, by captured id */
+    private final HashMap<Integer, Player> players;
+    private int records;
+    private int requests;
+    private int results;
+    private int mismatches;
+    private int errors;
+
+    /**
+     * Create a replay.
+     *
+     * @param   factory
+     *          the factory for the new processes.
+     * @param   recordedSpeed
+     *          {@code true} to replay at the recorded speed, or
+     *          {@code false} to replay flat out.
+     */
+    public Replay(ProcessFactory factory, boolean recordedSpeed)
+    {
+        this.factory = factory;
+        this.recordedSpeed = recordedSpeed;
+        this.players = new HashMap();
+    }
+
+    /**
+     * Replay a capture.
+     * <p>The statistics are:
+     * <pre>
+     * records % &lt;records read from the capture&gt;
+     * requests % &lt;requests passed to the processes&gt;
+     * results % &lt;replies returned by the processes&gt;
+     * mismatches % &lt;replies or calls that differ from the capture&gt;
+     * errors % &lt;exceptions raised by the processes&gt;
+     * elapsed % &lt;time taken in milliseconds&gt;
+     * </pre>
+     *
+     * @param   capture
+     *          the base name of the capture segment files.
+     * @return  the statistics for the replay.
+     * @throws  IOException
+     *          when the capture cannot be read.
+     * @throws  DataException
+     *          when the capture is not valid or a process cannot be created.
+     * @throws  ExpressionException
+     *          when a process cannot be created.
+     * @throws  ProcessException
+     *          when a process cannot be created or closed.
+     */
+    public DataSet run(String capture)
+            throws IOException,
+                    DataException,
+                    ExpressionException,
+                    ProcessException
+    {
+        CaptureReader reader = new CaptureReader(capture);
+        long start = System.nanoTime();
+        long first = -1;
+        CaptureReader.Record record;
+        while ((record = reader.next()) != null)
+        {
+            this.records++;
+            if (this.recordedSpeed)
+            {
+                if (first < 0)
+                {
+                    first = record.getTime();
+                }
+                long due = start + record.getTime() - first;
+                long wait;
+                while ((wait = due - System.nanoTime()) > 0)
+                {
+                    LockSupport.parkNanos(wait);
+                }
+            }
+            Player player = this.players.get(record.getProcessId());
+            if (player == null)
+            {
+                player = new Player(this.factory.instance());
+                this.players.put(record.getProcessId(), player);
+            }
+            try
+            {
+                player.play(record);
+            }
+            catch (ProcessException | RuntimeException ex)
+            {
+                this.errors++;
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        for (Player player : this.players.values())
+        {
+            player.process.close();
+        }
+        this.players.clear();
+        return new ArrayDataSet()
+                .put(Replay.RECORDS, this.records)
+                .put(Replay.REQUESTS, this.requests)
+                .put(Replay.RESULTS, this.results)
+                .put(Replay.MISMATCHES, this.mismatches)
+                .put(Replay.ERRORS, this.errors)
+                .put(Replay.ELAPSED, TimeUnit.NANOSECONDS.toMillis(elapsed));
+    }
+
+    /**
+     * Get the source ref from a forwarded request or its reply.
+     */
+    private static Integer sourceRef(DataSet message)
+    {
+        DataSet source = message.getDataSet(Context.SOURCE);
+        return source == null ?
+                null :
+                source.getInteger(Context.SOURCE_REF);
+    }
+
+    /**
+     * Plays the captured calls for one process.
+     */
+    private class Player
+    {
+        private final LexaProcess process;
+        private final Status status;
+        /** the source ref of each forwarded request, by captured ref */
+        private final HashMap<Integer, Integer> sourceRefs;
+
+        private Player(LexaProcess process)
+        {
+            this.process = process;
+            this.status = process.getStatus();
+            this.sourceRefs = new HashMap();
+        }
+
+        /**
+         * Make the call for a captured record.
+         */
+        private void play(CaptureReader.Record record)
+                throws ProcessException
+        {
+            while (this.status.waitingProcess())
+            {
+                this.process.process();
+            }
+            DataSet envelope = record.getEnvelope();
+            switch (record.getKind())
+            {
+                case REQUEST :
+                {
+                    this.process.handleRequest(envelope);
+                    Replay.this.requests++;
+                    break;
+                }
+                case FORWARD :
+                {
+                    if (!this.status.requestPending())
+                    {
+                        Replay.this.mismatches++;
+                        break;
+                    }
+                    this.forward(envelope, this.process.getRequests());
+                    break;
+                }
+                case REPLY :
+                {
+                    Integer captured = Replay.sourceRef(envelope);
+                    Integer sourceRef = this.sourceRefs.remove(captured);
+                    if (sourceRef == null || !this.status.waitingReply())
+                    {
+                        Replay.this.mismatches++;
+                        break;
+                    }
+                    envelope.getDataSet(Context.SOURCE)
+                            .put(Context.SOURCE_REF, sourceRef);
+                    this.process.handleReply(envelope);
+                    break;
+                }
+                case RESULT :
+                {
+                    if (!this.status.replyReady())
+                    {
+                        Replay.this.mismatches++;
+                        break;
+                    }
+                    DataSet reply = this.process.getReply();
+                    Replay.this.results++;
+                    if (!Objects.equals(envelope.getDataSet(Context.REPLY),
+                            reply.getDataSet(Context.REPLY)))
+                    {
+                        Replay.this.mismatches++;
+                    }
+                    break;
+                }
+                case RECYCLE :
+                {
+                    this.process.recycle();
+                    this.sourceRefs.clear();
+                    break;
+                }
+            }
+        }
+
+        /**
+         * Match the requests forwarded by the new process to the captured
+         * ones, in order.
+         */
+        private void forward(DataSet captured, DataSet requests)
+        {
+            if (requests == null)
+            {
+                Replay.this.mismatches++;
+                return;
+            }
+            DataSet capturedList = captured.getDataSet(Context.MESSAGE_LIST);
+            DataSet messageList = requests.getDataSet(Context.MESSAGE_LIST);
+            if (capturedList.size() != messageList.size())
+            {
+                Replay.this.mismatches++;
+            }
+            int index = 0;
+            for (DataItem item : capturedList)
+            {
+                if (index == messageList.size())
+                {
+                    break;
+                }
+                this.sourceRefs.put(
+                        Replay.sourceRef(item.getDataSet()),
+                        Replay.sourceRef(messageList.get(index++).getDataSet()));
+            }
+        }
+    }
+}
@@ -0,0 +1,322 @@
+/*==============================================================================
+ * Lexa - Property of William Norman-Walker
+ *------------------------------------------------------------------------------
+ * TestCodec.java
+ *------------------------------------------------------------------------------
+ * Author:  William Norman-Walker
+ * Created: October 2026
+ *==============================================================================
+ */
+package lxprocess;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.util.Date;
+import lexa.core.data.ArrayDataSet;
+import lexa.core.data.DataSet;
+import lexa.core.data.exception.DataException;
+import lexa.core.data.io.DataReader;
+import lexa.core.data.io.DataWriter;
+import lexa.core.process.codec.EnvelopeCodec;
+import lexa.core.process.context.Context;
+import lexa.test.TestAnnotation;
+import lexa.test.TestClass;
+import lexa.test.TestResult;
+
+/**
+ * Testing class for the envelope codec.
+ * <p>Each test case builds a request and a reply envelope from the message
+ * and result of a process test and checks they come back the same from the
+ * binary form as from the text form.
+ * <p>There are also cases for values the process tests do not hold, built
+ * here rather than read from the test file; see {@link #values(String)
+ * values}.  Every case also checks that truncated input and input with the
+ * wrong version are rejected.
+ *
+ * @author william
+ * @since 2026-10
+ */
+@TestAnnotation(arguments = "caseList", setUp = "setUpCase", tearDown = "tearDownCase")
+public class TestCodec
+        extends TestClass
+{
+    /** the cases with values built here */
+    private static final String[] VALUE_CASES = {
+        "utf8", "integers", "longs", "doubles", "dates", "customKeys"
+    };
+
+    private final String fileName;
+    private DataSet testData;
+
+    // all these need to be cleared by the teardown:
+    private DataSet request;
+    private DataSet reply;
+
+    public TestCodec(String fileName)
+    {
+        this.fileName = fileName;
+    }
+
+    public Object[] caseList()
+            throws IOException
+    {
+        this.testData = new DataReader(new File(fileName)).read();
+        Object[] processes = this.testData.getDataSet("processes").keys();
+        Object[] cases = new Object[processes.length + TestCodec.VALUE_CASES.length];
+        System.arraycopy(processes, 0, cases, 0, processes.length);
+        System.arraycopy(TestCodec.VALUE_CASES, 0,
+                cases, processes.length, TestCodec.VALUE_CASES.length);
+        return cases;
+    }
+
+    public TestResult setUpCase(Object arg)
+    {
+        DataSet values = TestCodec.values((String)arg);
+        if (values != null)
+        {
+            this.request = TestCodec.request("codec", (String)arg, values);
+            this.reply = TestCodec.reply(values);
+            return TestResult.notNull(this.request);
+        }
+        DataSet testCase = this.testData.getDataSet("processes")
+                .getDataSet((String)arg);
+        DataSet message = testCase.getDataSet(Context.MESSAGE);
+        this.request = TestCodec.request(message.getString(Context.SERVICE),
+                message.getString(Context.MESSAGE),
+                message.getDataSet(Context.REQUEST));
+        this.reply = TestCodec.reply(testCase.getDataSet("result"));
+        return TestResult.notNull(this.request);
+    }
+
+    @TestAnnotation(order = 10)
+    public TestResult heapRequest(Object arg) throws DataException
+    {
+        return TestResult.result(this.request,
+                this.roundTrip(this.request, false),
+                "Request does not match after decoding");
+    }
+
+    @TestAnnotation(order = 20)
+    public TestResult directReply(Object arg) throws DataException
+    {
+        return TestResult.result(this.reply,
+                this.roundTrip(this.reply, true),
+                "Reply does not match after decoding");
+    }
+
+    @TestAnnotation(order = 30)
+    public TestResult textForm(Object arg) throws DataException, IOException
+    {
+        return TestResult.result(
+                TestCodec.text(this.request),
+                TestCodec.text(this.roundTrip(this.request, true)),
+                "Text form does not match after decoding");
+    }
+
+    @TestAnnotation(order = 40)
+    public TestResult size(Object arg) throws DataException
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(EnvelopeCodec.size(this.request));
+        EnvelopeCodec.encode(this.request, buffer);
+        return TestResult.result(false, buffer.hasRemaining(),
+                "Size does not match the encoded envelope");
+    }
+
+    @TestAnnotation(order = 50)
+    public TestResult truncated(Object arg) throws DataException
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(EnvelopeCodec.size(this.reply));
+        EnvelopeCodec.encode(this.reply, buffer);
+        buffer.flip();
+        buffer.limit(buffer.limit() - 1);
+        return TestResult.result(true, TestCodec.rejected(buffer),
+                "Truncated envelope was decoded");
+    }
+
+    @TestAnnotation(order = 60)
+    public TestResult wrongVersion(Object arg) throws DataException
+    {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(EnvelopeCodec.size(this.reply));
+        EnvelopeCodec.encode(this.reply, buffer);
+        buffer.flip();
+        buffer.put(0, (byte)(EnvelopeCodec.VERSION + 1));
+        return TestResult.result(true, TestCodec.rejected(buffer),
+                "Envelope with the wrong version was decoded");
+    }
+
+    /**
+     * Build a request envelope with a single message.
+     */
+    private static DataSet request(String service, String message, DataSet request)
+    {
+        return new ArrayDataSet()
+                .put(Context.SOURCE_REF, 1)
+                .put(Context.MESSAGE_LIST, new ArrayDataSet()
+                        .put("1", new ArrayDataSet()
+                                .put(Context.SERVICE, service)
+                                .put(Context.MESSAGE, message)
+                                .put(Context.SOURCE, new ArrayDataSet()
+                                        .put(Context.SOURCE_REF, 1))
+                                .put(Context.REQUEST, request)));
+    }
+
+    /**
+     * Build a reply envelope.
+     */
+    private static DataSet reply(DataSet result)
+    {
+        return new ArrayDataSet()
+                .put(Context.SOURCE, new ArrayDataSet()
+                        .put(Context.SOURCE_REF, 1))
+                .put(Context.REPLY, result)
+                .put(Context.CLOSE, true);
+    }
+
+    /**
+     * Check that an envelope cannot be decoded.
+     */
+    private static boolean rejected(ByteBuffer buffer)
+    {
+        try
+        {
+            EnvelopeCodec.decode(buffer);
+            return false;
+        }
+        catch (DataException ex)
+        {
+            return true;
+        }
+    }
+
+    /**
+     * Get the values for a case built here.
+     * <ul>
+     * <li>{@code utf8} - strings with two, three and four byte characters,
+     *      the last as surrogate pairs.</li>
+     * <li>{@code integers} and {@code longs} - values either side of each
+     *      zig-zag length, negatives and the limits.</li>
+     * <li>{@code doubles} - fractions, signed zeros, the limits, infinity and
+     *      {@code NaN}.</li>
+     * <li>{@code dates} - the epoch, before it and now.</li>
+     * <li>{@code customKeys} - keys that are not in {@link Context}, which are
+     *      written in full, among ones that are.</li>
+     * </ul>
+     *
+     * @return  the values, or {@code null} if the case is a process test.
+     */
+    private static DataSet values(String name)
+    {
+        switch (name)
+        {
+            case "utf8" :
+            {
+                return new ArrayDataSet()
+                        .put("latin", "caf\u00e9 na\u00efve \u00fcber")
+                        .put("greek", "\u03b1\u03b2\u03b3")
+                        .put("cjk", "\u6f22\u5b57")
+                        .put("euro", "\u20ac5")
+                        .put("emoji", "\ud83d\ude00\ud83c\udf89")
+                        .put("mixed", "a\u00e9\u4e2d\ud83d\ude00z")
+                        .put("empty", "");
+            }
+            case "integers" :
+            {
+                return new ArrayDataSet()
+                        .put("zero", 0)
+                        .put("one", 1)
+                        .put("minusOne", -1)
+                        .put("oneByte", 63)
+                        .put("oneByteNegative", -64)
+                        .put("twoBytes", 64)
+                        .put("twoBytesNegative", -65)
+                        .put("large", 1 << 28)
+                        .put("max", Integer.MAX_VALUE)
+                        .put("min", Integer.MIN_VALUE);
+            }
+            case "longs" :
+            {
+                return new ArrayDataSet()
+                        .put("zero", 0L)
+                        .put("minusOne", -1L)
+                        .put("oneByte", 63L)
+                        .put("oneByteNegative", -64L)
+                        .put("beyondInteger", 1L << 35)
+                        .put("beyondIntegerNegative", -(1L << 35))
+                        .put("max", Long.MAX_VALUE)
+                        .put("min", Long.MIN_VALUE);
+            }
+            case "doubles" :
+            {
+                return new ArrayDataSet()
+                        .put("zero", 0.0)
+                        .put("negativeZero", -0.0)
+                        .put("fraction", 3.25)
+                        .put("negative", -1e300)
+                        .put("smallest", Double.MIN_VALUE)
+                        .put("max", Double.MAX_VALUE)
+                        .put("infinity", Double.POSITIVE_INFINITY)
+                        .put("notANumber", Double.NaN);
+            }
+            case "dates" :
+            {
+                return new ArrayDataSet()
+                        .put("epoch", new Date(0))
+                        .put("beforeEpoch", new Date(-86400000L))
+                        .put("now", new Date());
+            }
+            case "customKeys" :
+            {
+                return new ArrayDataSet()
+                        .put(Context.SERVICE, "codec")
+                        .put("custom", "value")
+                        .put("cl\u00e9", "accented key")
+                        .put("nested", new ArrayDataSet()
+                                .put(Context.REPLY, 1)
+                                .put("inner", true)
+                                .put("nothing", null));
+            }
+            default :
+            {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Encode and decode an envelope.
+     */
+    private DataSet roundTrip(DataSet envelope, boolean direct)
+            throws DataException
+    {
+        int size = EnvelopeCodec.size(envelope);
+        ByteBuffer buffer = direct ?
+                ByteBuffer.allocateDirect(size) :
+                ByteBuffer.allocate(size);
+        EnvelopeCodec.encode(envelope, buffer);
+        buffer.flip();
+        return EnvelopeCodec.decode(buffer);
+    }
+
+    /**
+     * Write a data set to the text form and read it back.
+     */
+    private static DataSet text(DataSet data)
+            throws IOException
+    {
+        StringWriter out = new StringWriter();
+        DataWriter writer = new DataWriter(out);
+        writer.write(data);
+        writer.close();
+        return new DataReader(new StringReader(out.toString())).read();
+    }
+
+    public TestResult tearDownCase(Object arg)
+    {
+        this.request = null;
+        this.reply = null;
+        return TestResult.result(true);
+    }
+}
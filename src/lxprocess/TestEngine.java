@@ -0,0 +1,467 @@
+/*==============================================================================
+ * Lexa - Property of William Norman-Walker
+ *------------------------------------------------------------------------------
+ * TestEngine.java
+ *------------------------------------------------------------------------------
+ * Author:  William Norman-Walker
+ * Created: October 2026
+ *==============================================================================
+ */
+package lxprocess;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import lexa.core.data.ArrayDataSet;
+import lexa.core.data.DataItem;
+import lexa.core.data.DataSet;
+import lexa.core.data.config.ConfigDataSet;
+import lexa.core.data.exception.DataException;
+import lexa.core.data.io.DataReader;
+import lexa.core.expression.ExpressionException;
+import lexa.core.expression.function.FunctionLibrary;
+import lexa.core.process.ProcessException;
+import lexa.core.process.context.Context;
+import lexa.core.process.context.Value;
+import lexa.core.process.engine.AsyncProcess;
+import lexa.core.process.engine.Flow;
+import lexa.core.process.engine.ProcessEngine;
+import lexa.core.process.engine.ProcessFlow;
+import lexa.core.process.factory.ProcessFactory;
+import lexa.core.process.factory.ProcessPool;
+import lexa.test.TestAnnotation;
+import lexa.test.TestClass;
+import lexa.test.TestResult;
+
+/**
+ * Testing class to drive process test cases through a {@link ProcessEngine}.
+ * <p>Each entry in the {@code engine} block of the test file runs the process
+ * test case of the same name:
+ * <pre>
+ * engine {
+ *   &lt;process test name&gt; {
+ *     process {
+ *       &lt;process config to use in place of the test case's; optional&gt;
+ *     }
+ *     messages % &lt;messages to submit; default 100&gt;
+ *     threads % &lt;threads submitting at once; default 4&gt;
+ *     failure {
+ *       &lt;a message the process fails on; optional&gt;
+ *     }
+ *     timeout ? &lt;true to leave the forwarded requests unanswered; optional&gt;
+ *   }
+ * }
+ * </pre>
+ * <p>The forwarded requests are answered from the test case's
+ * {@code replies}, as in {@link Load}, and every reply is checked against
+ * its {@code result}.  The same messages are then passed through an
+ * {@link AsyncProcess} and a {@link ProcessFlow}.
+ *
+ * @author william
+ * @since 2026-10
+ */
+@TestAnnotation(arguments = "engineList", setUp = "setUpEngine", tearDown = "tearDownEngine")
+public class TestEngine
+        extends TestClass
+{
+    /** time to wait for the replies in seconds */
+    private static final long WAIT = 10;
+
+    private final String fileName;
+    private DataSet testData;
+
+    // all these need to be cleared by the teardown:
+    private DataSet engineCase;
+    private DataSet testCase;
+    private ProcessFactory factory;
+    private ProcessPool pool;
+    private int messages;
+    private int threads;
+
+    public TestEngine(String fileName)
+    {
+        this.fileName = fileName;
+    }
+
+    public Object[] engineList()
+            throws IOException
+    {
+        this.testData = new DataReader(new File(fileName)).read();
+        DataSet engines = this.testData.getDataSet("engine");
+        return engines == null ?
+                new Object[0] :
+                engines.keys();
+    }
+
+    public TestResult setUpEngine(Object arg)
+    {
+        String testName = (String)arg;
+        this.engineCase = this.testData.getDataSet("engine").getDataSet(testName);
+        this.testCase = this.testData.getDataSet("processes").getDataSet(testName);
+        Integer count = this.engineCase.getInteger("messages");
+        Integer submitters = this.engineCase.getInteger("threads");
+        this.messages = count == null ? 100 : count;
+        this.threads = submitters == null ? 4 : submitters;
+        return TestResult.notNull(this.testCase);
+    }
+
+    @TestAnnotation(order = 10)
+    public TestResult loadPool(Object arg)
+            throws ProcessException, DataException, ExpressionException
+    {
+        DataSet process = this.engineCase.contains("process") ?
+                this.engineCase.getDataSet("process") :
+                this.testCase.getDataSet("process");
+        ConfigDataSet config = new ConfigDataSet(process);
+        this.factory = new ProcessFactory(ClassLoader.getSystemClassLoader(),
+                config, new FunctionLibrary(this.testData.getDataSet("functions")));
+        config.close();
+        this.pool = new ProcessPool(this.factory);
+        return TestResult.notNull(this.pool);
+    }
+
+    @TestAnnotation(order = 20)
+    public TestResult dispatch(Object arg)
+            throws Exception
+    {
+        Collector collector = new Collector(this.messages);
+        ProcessEngine[] engine = new ProcessEngine[1];
+        engine[0] = new ProcessEngine(this.pool, (int processId, DataSet requests) ->
+                this.answer(engine[0], processId, requests));
+        try
+        {
+            // submit from several threads at once
+            List<CompletableFuture<Void>> submitters = new ArrayList();
+            AtomicInteger next = new AtomicInteger();
+            for (int t = 0; t < this.threads; t++)
+            {
+                submitters.add(CompletableFuture.runAsync(() -> {
+                    while (next.getAndIncrement() < this.messages)
+                    {
+                        try
+                        {
+                            engine[0].submit(this.message(), collector);
+                        }
+                        catch (ProcessException ex)
+                        {
+                            collector.error(ex);
+                        }
+                    }
+                }));
+            }
+            for (CompletableFuture<Void> submitter : submitters)
+            {
+                submitter.get(TestEngine.WAIT, TimeUnit.SECONDS);
+            }
+            return collector.result(this.messages, 0);
+        }
+        finally
+        {
+            engine[0].close();
+        }
+    }
+
+    @TestAnnotation(order = 30)
+    public TestResult failure(Object arg)
+            throws Exception
+    {
+        DataSet failure = this.engineCase.getDataSet("failure");
+        if (failure == null)
+        {
+            return TestResult.result(true);
+        }
+        Collector collector = new Collector(2);
+        ProcessEngine[] engine = new ProcessEngine[1];
+        engine[0] = new ProcessEngine(this.pool, (int processId, DataSet requests) ->
+                this.answer(engine[0], processId, requests));
+        try
+        {
+            // the failure is reported and the next message still goes through
+            engine[0].submit(new ArrayDataSet(failure), collector);
+            engine[0].submit(this.message(), collector);
+            return collector.result(1, 1);
+        }
+        finally
+        {
+            engine[0].close();
+        }
+    }
+
+    @TestAnnotation(order = 40)
+    public TestResult timeout(Object arg)
+            throws Exception
+    {
+        Boolean timeout = this.engineCase.getBoolean("timeout");
+        if (timeout == null || !timeout)
+        {
+            return TestResult.result(true);
+        }
+        CompletableFuture<DataSet> reply = new CompletableFuture();
+        // the forwarded requests are never answered
+        ProcessEngine engine = new ProcessEngine(this.pool,
+                (int processId, DataSet requests) -> { });
+        try
+        {
+            engine.submit(this.message(), new ProcessEngine.ReplyHandler()
+            {
+                @Override
+                public void reply(DataSet message)
+                {
+                    reply.complete(message);
+                }
+
+                @Override
+                public void error(ProcessException exception)
+                {
+                    reply.completeExceptionally(exception);
+                }
+            });
+            return TestResult.result(Value.TIMEOUT_MESSAGE,
+                    reply.get(TestEngine.WAIT, TimeUnit.SECONDS)
+                            .getString(Context.RETURN),
+                    "No timeout reply");
+        }
+        finally
+        {
+            engine.close();
+        }
+    }
+
+    @TestAnnotation(order = 50)
+    public TestResult async(Object arg)
+            throws Exception
+    {
+        AsyncProcess async = new AsyncProcess(this.pool, (DataSet request) ->
+                CompletableFuture.completedFuture(this.stub(0,
+                        request.getDataSet(Context.SOURCE)
+                                .getInteger(Context.SOURCE_REF))));
+        try
+        {
+            List<CompletableFuture<DataSet>> replies = new ArrayList();
+            for (int m = 0; m < this.messages; m++)
+            {
+                replies.add(async.submit(this.message()));
+            }
+            int mismatches = 0;
+            for (CompletableFuture<DataSet> reply : replies)
+            {
+                if (!this.matches(reply.get(TestEngine.WAIT, TimeUnit.SECONDS)))
+                {
+                    mismatches++;
+                }
+            }
+            return TestResult.result(0, mismatches,
+                    "Replies through AsyncProcess do not match the result");
+        }
+        finally
+        {
+            async.close();
+        }
+    }
+
+    @TestAnnotation(order = 60)
+    public TestResult flow(Object arg)
+            throws Exception
+    {
+        ProcessFlow[] flow = new ProcessFlow[1];
+        flow[0] = new ProcessFlow(this.pool, (int processId, DataSet requests) ->
+                this.answer(flow[0].getEngine(), processId, requests));
+        AtomicInteger published = new AtomicInteger();
+        Flow.Publisher<DataSet> publisher = (Flow.Subscriber<? super DataSet> subscriber) ->
+                subscriber.onSubscribe(new Flow.Subscription()
+                {
+                    @Override
+                    public void request(long n)
+                    {
+                        for (long i = 0; i < n; i++)
+                        {
+                            int sent = published.getAndIncrement();
+                            if (sent == TestEngine.this.messages)
+                            {
+                                subscriber.onComplete();
+                            }
+                            if (sent >= TestEngine.this.messages)
+                            {
+                                return;
+                            }
+                            subscriber.onNext(TestEngine.this.message());
+                        }
+                    }
+
+                    @Override
+                    public void cancel()
+                    {
+                    }
+                });
+        Collector collector = new Collector(this.messages);
+        CountDownLatch complete = new CountDownLatch(1);
+        flow[0].subscribe(new Flow.Subscriber<DataSet>()
+        {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription)
+            {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(DataSet reply)
+            {
+                collector.reply(reply);
+            }
+
+            @Override
+            public void onError(Throwable throwable)
+            {
+                complete.countDown();
+            }
+
+            @Override
+            public void onComplete()
+            {
+                complete.countDown();
+            }
+        });
+        publisher.subscribe(flow[0]);
+        if (!complete.await(TestEngine.WAIT, TimeUnit.SECONDS))
+        {
+            return TestResult.result(false);
+        }
+        return collector.result(this.messages, 0);
+    }
+
+    public TestResult tearDownEngine(Object arg)
+    {
+        if (this.pool != null)
+        {
+            this.pool.close();
+        }
+        if (this.factory != null)
+        {
+            this.factory.close();
+        }
+        this.pool = null;
+        this.factory = null;
+        this.engineCase = null;
+        this.testCase = null;
+        return TestResult.result(true);
+    }
+
+    /**
+     * Answer the requests forwarded by a process from the stubbed replies.
+     */
+    private void answer(ProcessEngine engine, int processId, DataSet requests)
+    {
+        int index = 0;
+        for (DataItem message : requests.getDataSet(Context.MESSAGE_LIST))
+        {
+            try
+            {
+                engine.handleReply(processId,
+                        this.stub(index++, Integer.valueOf(message.getKey())));
+            }
+            catch (ProcessException ex)
+            {
+                // left for the timeout, which the reply checks pick up
+            }
+        }
+    }
+
+    /**
+     * Check a reply against the expected result.
+     */
+    private boolean matches(DataSet reply)
+    {
+        return Objects.equals(this.testCase.getDataSet("result"),
+                reply.getDataSet(Context.REPLY));
+    }
+
+    /**
+     * Get a copy of the test case's message.
+     */
+    private DataSet message()
+    {
+        return new ArrayDataSet(this.testCase.getDataSet(Context.MESSAGE));
+    }
+
+    /**
+     * Get a stubbed reply.
+     *
+     * @param   index
+     *          the position of the reply in the {@code replies} block.
+     * @param   sourceRef
+     *          the source ref of the forwarded message.
+     */
+    private DataSet stub(int index, Integer sourceRef)
+    {
+        DataSet stub = new ArrayDataSet(
+                this.testCase.getDataSet("replies").get(index).getDataSet());
+        DataSet source = stub.getDataSet(Context.SOURCE);
+        return stub.put(Context.SOURCE, (source == null ?
+                new ArrayDataSet() :
+                new ArrayDataSet(source))
+            .put(Context.SOURCE_REF, sourceRef));
+    }
+
+    /**
+     * Counts the replies and errors for the submitted messages.
+     */
+    private class Collector
+            implements ProcessEngine.ReplyHandler
+    {
+        private final CountDownLatch done;
+        private final AtomicInteger replies;
+        private final AtomicInteger mismatches;
+        private final AtomicInteger errors;
+
+        private Collector(int expected)
+        {
+            this.done = new CountDownLatch(expected);
+            this.replies = new AtomicInteger();
+            this.mismatches = new AtomicInteger();
+            this.errors = new AtomicInteger();
+        }
+
+        @Override
+        public void reply(DataSet reply)
+        {
+            this.replies.incrementAndGet();
+            if (!TestEngine.this.matches(reply))
+            {
+                this.mismatches.incrementAndGet();
+            }
+            this.done.countDown();
+        }
+
+        @Override
+        public void error(ProcessException exception)
+        {
+            this.errors.incrementAndGet();
+            this.done.countDown();
+        }
+
+        /**
+         * Wait for the messages and check the counts.
+         */
+        private TestResult result(int replies, int errors)
+                throws InterruptedException
+        {
+            this.done.await(TestEngine.WAIT, TimeUnit.SECONDS);
+            return TestResult.result(
+                    new ArrayDataSet()
+                            .put("replies", replies)
+                            .put("mismatches", 0)
+                            .put("errors", errors),
+                    new ArrayDataSet()
+                            .put("replies", this.replies.get())
+                            .put("mismatches", this.mismatches.get())
+                            .put("errors", this.errors.get()),
+                    "Replies from the engine do not match the result");
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/*==============================================================================
+ * Lexa - Property of William Norman-Walker
+ *------------------------------------------------------------------------------
+ * TestLoad.java
+ *------------------------------------------------------------------------------
+ * Author:  William Norman-Walker
+ * Created: October 2026
+ *==============================================================================
+ */
+package lxprocess;
+
+import java.io.File;
+import java.io.IOException;
+import lexa.core.data.DataSet;
+import lexa.core.data.config.ConfigDataSet;
+import lexa.core.data.exception.DataException;
+import lexa.core.data.io.DataReader;
+import lexa.core.expression.ExpressionException;
+import lexa.core.expression.function.FunctionLibrary;
+import lexa.core.process.ProcessException;
+import lexa.core.process.factory.ProcessFactory;
+import lexa.core.process.logging.ProcessLogger;
+import lexa.test.TestAnnotation;
+import lexa.test.TestClass;
+import lexa.test.TestResult;
+
+/**
+ * Testing class to run process test cases under load.
+ * <p>Each entry in the {@code load} block of the test file runs the process
+ * test case of the same name with a {@link Load}:
+ * <pre>
+ * load {
+ *   &lt;process test name&gt; {
+ *     process {
+ *       &lt;process config to use in place of the test case's; optional&gt;
+ *     }
+ *     concurrency % &lt;worker threads; default 1&gt;
+ *     duration % &lt;milliseconds; default 1000&gt;
+ *     rate % &lt;requests per second; default 0 for flat out&gt;
+ *   }
+ * }
+ * </pre>
+ * <p>A test case whose process captures its traffic or spools to disk
+ * should be given its own {@code process}, so the load does not fill the
+ * files other tests read.
+ * <p>The throughput and latencies for each case are written to the log.
+ *
+ * @author william
+ * @since 2026-10
+ */
+@TestAnnotation(arguments = "loadList", setUp = "setUpLoad", tearDown = "tearDownLoad")
+public class TestLoad
+        extends TestClass
+{
+    private final String fileName;
+    private DataSet testData;
+    private ProcessLogger logger;
+
+    // all these need to be cleared by the teardown:
+    private String testName;
+    private DataSet loadCase;
+    private DataSet testCase;
+    private ProcessFactory factory;
+
+    public TestLoad(String fileName)
+    {
+        this.fileName = fileName;
+    }
+
+    public Object[] loadList()
+            throws IOException
+    {
+        this.testData = new DataReader(new File(fileName)).read();
+        this.logger = new ProcessLogger("LOAD_TEST", null);
+        DataSet load = this.testData.getDataSet("load");
+        return load == null ?
+                new Object[0] :
+                load.keys();
+    }
+
+    public TestResult setUpLoad(Object arg)
+    {
+        this.testName = (String)arg;
+        this.loadCase = this.testData.getDataSet("load").getDataSet(this.testName);
+        this.testCase = this.testData.getDataSet("processes").getDataSet(this.testName);
+        return TestResult.notNull(this.testCase);
+    }
+
+    @TestAnnotation(order = 10)
+    public TestResult loadFactory(Object arg) throws ExpressionException, DataException
+    {
+        DataSet process = this.loadCase.contains("process") ?
+                this.loadCase.getDataSet("process") :
+                this.testCase.getDataSet("process");
+        ConfigDataSet config = new ConfigDataSet(process);
+        this.factory = new ProcessFactory(ClassLoader.getSystemClassLoader(),
+                config, new FunctionLibrary(this.testData.getDataSet("functions")));
+        config.close();
+        return TestResult.notNull(this.factory);
+    }
+
+    @TestAnnotation(order = 20)
+    public TestResult load(Object arg)
+            throws DataException, ExpressionException, ProcessException, InterruptedException
+    {
+        Integer concurrency = this.loadCase.getInteger("concurrency");
+        Integer duration = this.loadCase.getInteger("duration");
+        Integer rate = this.loadCase.getInteger("rate");
+        DataSet statistics = new Load(this.factory, this.testCase,
+                concurrency == null ? 1 : concurrency,
+                duration == null ? 1000 : duration,
+                rate == null ? 0 : rate)
+                .run();
+        this.logger.info("Load:" + this.testName, statistics);
+        return TestResult.result(0,
+                statistics.getInteger(Load.MISMATCHES) +
+                        statistics.getInteger(Load.ERRORS),
+                "Replies under load do not match the result");
+    }
+
+    public TestResult tearDownLoad(Object arg)
+    {
+        if (this.factory != null)
+        {
+            this.factory.close();
+        }
+        this.factory = null;
+        this.testName = null;
+        this.loadCase = null;
+        this.testCase = null;
+        return TestResult.result(true);
+    }
+}
@@ -0,0 +1,260 @@
+/*==============================================================================
+ * Lexa - Property of William Norman-Walker
+ *------------------------------------------------------------------------------
+ * TestPool.java
+ *------------------------------------------------------------------------------
+ * Author:  William Norman-Walker
+ * Created: October 2026
+ *==============================================================================
+ */
+package lxprocess;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import lexa.core.data.ArrayDataSet;
+import lexa.core.data.DataSet;
+import lexa.core.data.config.ConfigDataSet;
+import lexa.core.data.exception.DataException;
+import lexa.core.data.io.DataReader;
+import lexa.core.expression.ExpressionException;
+import lexa.core.expression.function.FunctionLibrary;
+import lexa.core.process.LexaProcess;
+import lexa.core.process.ProcessException;
+import lexa.core.process.factory.ProcessFactory;
+import lexa.core.process.factory.ProcessPool;
+import lexa.test.TestAnnotation;
+import lexa.test.TestClass;
+import lexa.test.TestResult;
+
+/**
+ * Testing class for the limits of a {@link ProcessPool}.
+ * <p>Each entry in the {@code pool} block of the test file builds a pool for
+ * the process test case of the same name:
+ * <pre>
+ * pool {
+ *   &lt;process test name&gt; {
+ *     minProcesses % &lt;processes built up front; default 1&gt;
+ *     maxProcesses % &lt;most processes in the pool; default 2&gt;
+ *     wait % &lt;milliseconds to wait for a process; default 100&gt;
+ *   }
+ * }
+ * </pre>
+ * <p>The tests take every process, check that no more are given out, that
+ * a caller waits no longer than asked, that a released process goes to a
+ * waiting caller and that a closed pool gives out nothing.
+ *
+ * @author william
+ * @since 2026-10
+ */
+@TestAnnotation(arguments = "poolList", setUp = "setUpPool", tearDown = "tearDownPool")
+public class TestPool
+        extends TestClass
+{
+    private final String fileName;
+    private DataSet testData;
+
+    // all these need to be cleared by the teardown:
+    private DataSet poolCase;
+    private DataSet testCase;
+    private ProcessFactory factory;
+    private ProcessPool pool;
+    private int minProcesses;
+    private int maxProcesses;
+    /** processes taken from the pool */
+    private List<LexaProcess> taken;
+
+    public TestPool(String fileName)
+    {
+        this.fileName = fileName;
+    }
+
+    public Object[] poolList()
+            throws IOException
+    {
+        this.testData = new DataReader(new File(fileName)).read();
+        DataSet pools = this.testData.getDataSet("pool");
+        return pools == null ?
+                new Object[0] :
+                pools.keys();
+    }
+
+    public TestResult setUpPool(Object arg)
+    {
+        String testName = (String)arg;
+        this.poolCase = this.testData.getDataSet("pool").getDataSet(testName);
+        this.testCase = this.testData.getDataSet("processes").getDataSet(testName);
+        Integer min = this.poolCase.getInteger("minProcesses");
+        Integer max = this.poolCase.getInteger("maxProcesses");
+        this.minProcesses = min == null ? 1 : min;
+        this.maxProcesses = max == null ? 2 : max;
+        this.taken = new ArrayList();
+        return TestResult.notNull(this.testCase);
+    }
+
+    @TestAnnotation(order = 10)
+    public TestResult loadPool(Object arg)
+            throws ProcessException, DataException, ExpressionException
+    {
+        ConfigDataSet config = new ConfigDataSet(this.testCase.getDataSet("process"));
+        this.factory = new ProcessFactory(ClassLoader.getSystemClassLoader(),
+                config, new FunctionLibrary(this.testData.getDataSet("functions")));
+        config.close();
+        this.pool = new ProcessPool(this.factory, this.minProcesses, this.maxProcesses);
+        return TestResult.result(
+                this.sizes(this.minProcesses, this.minProcesses, 0),
+                this.sizes(),
+                "New pool does not hold its minimum");
+    }
+
+    @TestAnnotation(order = 20)
+    public TestResult acquire(Object arg)
+            throws ProcessException, DataException, ExpressionException, InterruptedException
+    {
+        for (int p = 0; p < this.maxProcesses; p++)
+        {
+            LexaProcess process = this.pool.acquire(0);
+            if (process == null)
+            {
+                return TestResult.result(this.maxProcesses, p,
+                        "Pool gave out fewer than its maximum");
+            }
+            this.taken.add(process);
+        }
+        return TestResult.result(
+                this.sizes(this.maxProcesses, 0, this.maxProcesses),
+                this.sizes(),
+                "Pool did not grow to its maximum");
+    }
+
+    @TestAnnotation(order = 30)
+    public TestResult exhausted(Object arg)
+            throws ProcessException, DataException, ExpressionException, InterruptedException
+    {
+        return TestResult.result(null, this.pool.acquire(0),
+                "Pool gave out more than its maximum");
+    }
+
+    @TestAnnotation(order = 40)
+    public TestResult waitLimit(Object arg)
+            throws ProcessException, DataException, ExpressionException, InterruptedException
+    {
+        Integer wait = this.poolCase.getInteger("wait");
+        long timeout = wait == null ? 100 : wait;
+        long waits = this.pool.getStatistics().getLong(ProcessPool.WAITS);
+        long start = System.nanoTime();
+        LexaProcess process = this.pool.acquire(timeout);
+        long waited = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        if (process != null)
+        {
+            this.taken.add(process);
+            return TestResult.result(false);
+        }
+        return TestResult.result(
+                new ArrayDataSet()
+                        .put("waited", true)
+                        .put(ProcessPool.WAITS, waits + 1),
+                new ArrayDataSet()
+                        .put("waited", waited >= timeout)
+                        .put(ProcessPool.WAITS,
+                                this.pool.getStatistics().getLong(ProcessPool.WAITS)),
+                "Pool did not wait for the timeout");
+    }
+
+    @TestAnnotation(order = 50)
+    public TestResult release(Object arg)
+            throws Exception
+    {
+        CompletableFuture<LexaProcess> waiting = CompletableFuture.supplyAsync(() -> {
+            try
+            {
+                return this.pool.acquire(-1);
+            }
+            catch (ProcessException | DataException | ExpressionException ex)
+            {
+                throw new IllegalStateException(ex);
+            }
+            catch (InterruptedException ex)
+            {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(ex);
+            }
+        });
+        // let the caller start waiting before the release
+        Thread.sleep(50);
+        LexaProcess released = this.taken.remove(0);
+        this.pool.release(released);
+        LexaProcess process = waiting.get(5, TimeUnit.SECONDS);
+        this.taken.add(process);
+        return TestResult.result(true, process == released,
+                "Released process not given to the waiting caller");
+    }
+
+    @TestAnnotation(order = 60)
+    public TestResult close(Object arg)
+            throws DataException, ExpressionException, InterruptedException
+    {
+        for (LexaProcess process : this.taken)
+        {
+            this.pool.release(process);
+        }
+        this.taken.clear();
+        this.pool.close();
+        try
+        {
+            this.pool.acquire(0);
+        }
+        catch (ProcessException ex)
+        {
+            return TestResult.result(
+                    this.sizes(0, 0, 0),
+                    this.sizes(),
+                    "Closed pool still holds processes");
+        }
+        return TestResult.result(false);
+    }
+
+    public TestResult tearDownPool(Object arg)
+    {
+        if (this.pool != null)
+        {
+            for (LexaProcess process : this.taken)
+            {
+                this.pool.release(process);
+            }
+            this.pool.close();
+        }
+        if (this.factory != null)
+        {
+            this.factory.close();
+        }
+        this.pool = null;
+        this.factory = null;
+        this.taken = null;
+        this.poolCase = null;
+        this.testCase = null;
+        return TestResult.result(true);
+    }
+
+    /**
+     * Get the size, idle and busy counts from the pool.
+     */
+    private DataSet sizes()
+    {
+        DataSet statistics = this.pool.getStatistics();
+        return this.sizes(statistics.getInteger(ProcessPool.SIZE),
+                statistics.getInteger(ProcessPool.IDLE),
+                statistics.getInteger(ProcessPool.BUSY));
+    }
+
+    private DataSet sizes(int size, int idle, int busy)
+    {
+        return new ArrayDataSet()
+                .put(ProcessPool.SIZE, size)
+                .put(ProcessPool.IDLE, idle)
+                .put(ProcessPool.BUSY, busy);
+    }
+}
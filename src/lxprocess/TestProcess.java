@@ -17,13 +17,16 @@ import lexa.core.data.exception.DataException;
 import lexa.core.data.io.DataReader;
 import lexa.core.expression.ExpressionException;
 import lexa.core.expression.function.FunctionLibrary;
-import lexa.core.logging.Logger;
+import lexa.core.process.ConfigProcess;
 import lexa.core.process.LexaProcess;
 import lexa.core.process.ProcessException;
+import lexa.core.process.ReplyCache;
 import lexa.core.process.Status;
 import lexa.core.process.context.Config;
 import lexa.core.process.context.Context;
 import lexa.core.process.factory.ProcessFactory;
+import lexa.core.process.logging.LogSink;
+import lexa.core.process.logging.ProcessLogger;
 import lexa.test.TestAnnotation;
 import lexa.test.TestClass;
 import lexa.test.TestResult;
@@ -41,7 +44,9 @@ public class TestProcess
     private ProcessFactory factory;
     private final String fileName;
     private DataSet testData;
-    private Logger logger;
+    private ProcessLogger logger;
+    /** library for the global functions; shared by tests without their own */
+    private FunctionLibrary functionLibrary;
 
     // all these need to be cleared by the teardown:
     private LexaProcess process;
@@ -61,17 +66,19 @@ public class TestProcess
             throws IOException
     {
         this.testData = new DataReader(new File(fileName)).read();
-        if (this.testData.contains(Config.LOG_FILE))
-        {
-            lexa.core.logging.Logger.setLogWriter(
-                    new File(testData.getString(Config.LOG_FILE)));
-        }
+        LogSink sink = this.testData.contains(Config.LOG_FILE) ?
+                LogSink.open(new File(testData.getString(Config.LOG_FILE))) :
+                null;
         if (testData.contains(Config.LOGGING))
         {
             lexa.core.logging.Logger.logLevels().setLogging(
                     testData.getDataSet(Config.LOGGING));
+            if (sink != null)
+            {
+                sink.setLogging(testData.getDataSet(Config.LOGGING));
+            }
         }
-        this.logger = new Logger("PROCESS_TEST", null);
+        this.logger = new ProcessLogger("PROCESS_TEST", null);
         this.logger.info("Test config", this.testData);
 
         String testList = this.testData.getString("test");
@@ -94,15 +101,22 @@ public class TestProcess
     {
         DataSet functions = this.testData.getDataSet("functions");
         DataSet testFunctions = this.testCase.getDataSet("functions");
-        if (functions != null)
+        FunctionLibrary functionLibrary;
+        if (testFunctions == null)
         {
-            functions.put(testFunctions);
-        } else
+            if (this.functionLibrary == null)
+            {
+                this.functionLibrary = new FunctionLibrary(functions);
+            }
+            functionLibrary = this.functionLibrary;
+        }
+        else
         {
-            functions = testFunctions;
+            // merge into a copy so the global functions are left unchanged
+            functionLibrary = new FunctionLibrary(functions != null ?
+                    new ArrayDataSet(functions).put(testFunctions) :
+                    testFunctions);
         }
-
-        FunctionLibrary functionLibrary = new FunctionLibrary(functions);
         ConfigDataSet config = new ConfigDataSet(testCase.getDataSet("process"));
 
         // if needed we can always get a URLClassLoader to allow
@@ -128,6 +142,14 @@ public class TestProcess
     @TestAnnotation(order = 30)
     public TestResult submitRequest(Object arg) throws ProcessException
     {
+        DataSet messages = testCase.getDataSet("messages");
+        if (messages != null)
+        {
+            // all handed over at once, as a batch
+            int accepted = process.handleRequests(new ArrayDataSet(messages));
+            return TestResult.result(messages.size(), accepted,
+                    "Not all the messages were accepted");
+        }
         process.handleRequest(
                 new ArrayDataSet(testCase.getDataSet(Context.MESSAGE))
         );
@@ -143,7 +165,7 @@ public class TestProcess
         this.logger.debug("process.start");
         while (busy)
         {
-            this.logger.debug("process.status\n",null, this.status);
+            this.logger.debug("process.status", this.status.getCurrent());
             switch (this.status.getCurrent())
             {
                 case WAITING_PROCESS :
@@ -199,8 +221,51 @@ public class TestProcess
                 "Reply does not match expected result");
     }
 
+    /**
+     * Send the message again and check the reply comes from the cache.
+     * <p>Only run for tests with {@code cached ? true}.
+     */
+    @TestAnnotation(order = 60)
+    public TestResult repeatRequest(Object arg) throws ProcessException
+    {
+        Boolean cached = this.testCase.getBoolean("cached");
+        if (cached == null || !cached)
+        {
+            return TestResult.result(true);
+        }
+        if (!(this.process instanceof ConfigProcess))
+        {
+            return TestResult.result(false);
+        }
+        ReplyCache cache = ((ConfigProcess)this.process).getCache();
+        if (cache == null)
+        {
+            return TestResult.result(false);
+        }
+        long hits = cache.getHits();
+        long misses = cache.getMisses();
+        this.process.recycle();
+        this.submitRequest(arg);
+        this.waitResponse(arg);
+        return TestResult.result(
+                new ArrayDataSet()
+                        .put(Context.REPLY, this.testCase.getDataSet("result"))
+                        .put(ReplyCache.HITS, hits + 1)
+                        .put(ReplyCache.MISSES, misses),
+                new ArrayDataSet()
+                        .put(Context.REPLY, this.reply.getDataSet(Context.REPLY))
+                        .put(ReplyCache.HITS, cache.getHits())
+                        .put(ReplyCache.MISSES, cache.getMisses()),
+                "Repeated request not served from the cache");
+    }
+
     public TestResult tearDownProcess(Object arg)
     {
+        if (this.factory != null)
+        {
+            this.factory.close();
+        }
+        this.factory = null;
         this.process = null;
         this.reply = null;
         this.status = null;
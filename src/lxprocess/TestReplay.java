@@ -0,0 +1,169 @@
+/*==============================================================================
+ * Lexa - Property of William Norman-Walker
+ *------------------------------------------------------------------------------
+ * TestReplay.java
+ *------------------------------------------------------------------------------
+ * Author:  William Norman-Walker
+ * Created: October 2026
+ *==============================================================================
+ */
+package lxprocess;
+
+import java.io.File;
+import java.io.IOException;
+import lexa.core.data.DataSet;
+import lexa.core.data.config.ConfigDataSet;
+import lexa.core.data.exception.DataException;
+import lexa.core.data.io.DataReader;
+import lexa.core.expression.ExpressionException;
+import lexa.core.expression.function.FunctionLibrary;
+import lexa.core.process.ProcessException;
+import lexa.core.process.factory.ProcessFactory;
+import lexa.core.process.logging.ProcessLogger;
+import lexa.test.TestAnnotation;
+import lexa.test.TestClass;
+import lexa.test.TestResult;
+
+/**
+ * Testing class to replay captured traffic.
+ * <p>Each entry in the {@code replay} block of the test file replays a
+ * capture through a new process:
+ * <pre>
+ * replay {
+ *   &lt;test name&gt; {
+ *     process {
+ *       &lt;process config, as for a process test&gt;
+ *     }
+ *     capture - &lt;base name of the capture files&gt;
+ *     [speed - recorded|flat]
+ *     [record % &lt;milliseconds; default 200&gt;]
+ *   }
+ * }
+ * </pre>
+ * <p>When there is a process test of the same name, it is first run with a
+ * {@link Load} for {@code record} milliseconds to make the capture, so the
+ * replay does not depend on the other tests having run; the process test
+ * must capture to the same {@code capture} files.
+ *
+ * @author william
+ * @since 2026-10
+ */
+@TestAnnotation(arguments = "replayList", setUp = "setUpReplay", tearDown = "tearDownReplay")
+public class TestReplay
+        extends TestClass
+{
+    private final String fileName;
+    private DataSet testData;
+    private ProcessLogger logger;
+
+    // all these need to be cleared by the teardown:
+    private DataSet testCase;
+    private ProcessFactory factory;
+    private DataSet statistics;
+
+    public TestReplay(String fileName)
+    {
+        this.fileName = fileName;
+    }
+
+    public Object[] replayList()
+            throws IOException
+    {
+        this.testData = new DataReader(new File(fileName)).read();
+        this.logger = new ProcessLogger("REPLAY_TEST", null);
+        DataSet replay = this.testData.getDataSet("replay");
+        return replay == null ?
+                new Object[0] :
+                replay.keys();
+    }
+
+    public TestResult setUpReplay(Object arg)
+    {
+        this.testCase = this.testData.getDataSet("replay").getDataSet((String)arg);
+        return TestResult.notNull(this.testCase);
+    }
+
+    @TestAnnotation(order = 5)
+    public TestResult record(Object arg)
+            throws DataException, ExpressionException, ProcessException, InterruptedException
+    {
+        DataSet processCase = this.testData.getDataSet("processes").getDataSet((String)arg);
+        if (processCase == null)
+        {
+            // replay a capture made elsewhere
+            return TestResult.result(true);
+        }
+        Integer duration = this.testCase.getInteger("record");
+        ConfigDataSet config = new ConfigDataSet(processCase.getDataSet("process"));
+        ProcessFactory recorder = new ProcessFactory(ClassLoader.getSystemClassLoader(),
+                config, new FunctionLibrary(this.testData.getDataSet("functions")));
+        config.close();
+        try
+        {
+            DataSet recorded = new Load(recorder, processCase, 1,
+                    duration == null ? 200 : duration, 0)
+                    .run();
+            return TestResult.result(0,
+                    recorded.getInteger(Load.MISMATCHES) +
+                            recorded.getInteger(Load.ERRORS),
+                    "Recording the capture failed");
+        }
+        finally
+        {
+            // closes the capture
+            recorder.close();
+        }
+    }
+
+    @TestAnnotation(order = 10)
+    public TestResult loadFactory(Object arg) throws ExpressionException, DataException
+    {
+        ConfigDataSet config = new ConfigDataSet(this.testCase.getDataSet("process"));
+        this.factory = new ProcessFactory(ClassLoader.getSystemClassLoader(),
+                config, new FunctionLibrary(this.testData.getDataSet("functions")));
+        config.close();
+        return TestResult.notNull(this.factory);
+    }
+
+    @TestAnnotation(order = 20)
+    public TestResult replay(Object arg)
+            throws IOException, DataException, ExpressionException, ProcessException
+    {
+        boolean recorded = "recorded".equals(this.testCase.getString("speed"));
+        this.statistics = new Replay(this.factory, recorded)
+                .run(this.testCase.getString("capture"));
+        this.logger.info("Replay", this.statistics);
+        return TestResult.result(0,
+                this.statistics.getInteger(Replay.MISMATCHES) +
+                        this.statistics.getInteger(Replay.ERRORS),
+                "Replay does not match the capture");
+    }
+
+    @TestAnnotation(order = 30)
+    public TestResult records(Object arg)
+    {
+        return TestResult.result(true,
+                this.statistics.getInteger(Replay.RECORDS) > 0,
+                "Capture has no records");
+    }
+
+    @TestAnnotation(order = 40)
+    public TestResult results(Object arg)
+    {
+        return TestResult.result(true,
+                this.statistics.getInteger(Replay.RESULTS) > 0,
+                "Replay returned no replies");
+    }
+
+    public TestResult tearDownReplay(Object arg)
+    {
+        if (this.factory != null)
+        {
+            this.factory.close();
+        }
+        this.factory = null;
+        this.testCase = null;
+        this.statistics = null;
+        return TestResult.result(true);
+    }
+}
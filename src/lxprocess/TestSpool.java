@@ -0,0 +1,223 @@
+/*==============================================================================
+ * Lexa - Property of William Norman-Walker
+ *------------------------------------------------------------------------------
+ * TestSpool.java
+ *------------------------------------------------------------------------------
+ * Author:  William Norman-Walker
+ * Created: October 2026
+ *==============================================================================
+ */
+package lxprocess;
+
+import java.io.File;
+import java.io.IOException;
+import lexa.core.data.ArrayDataSet;
+import lexa.core.data.DataSet;
+import lexa.core.data.exception.DataException;
+import lexa.core.data.io.DataReader;
+import lexa.core.process.spool.Spool;
+import lexa.test.TestAnnotation;
+import lexa.test.TestClass;
+import lexa.test.TestResult;
+
+/**
+ * Testing class for the spool.
+ * <p>Each entry in the {@code spool} block of the test file spools its
+ * {@code requests} across two services, reads them back, reopens the spool
+ * and acknowledges them all:
+ * <pre>
+ * spool {
+ *   &lt;test name&gt; {
+ *     file - &lt;base name of the spool files&gt;
+ *     segmentSize % &lt;bytes&gt;
+ *     requests % &lt;requests to spool&gt;
+ *   }
+ * }
+ * </pre>
+ * <p>The segments should be small enough for the requests to fill several,
+ * so the segments are let go as they are acknowledged.
+ *
+ * @author william
+ * @since 2026-10
+ */
+@TestAnnotation(arguments = "spoolList", setUp = "setUpSpool", tearDown = "tearDownSpool")
+public class TestSpool
+        extends TestClass
+{
+    private static final String EVEN = "even";
+    private static final String ODD = "odd";
+    private static final String INDEX = "index";
+
+    private final String fileName;
+    private DataSet testData;
+
+    // all these need to be cleared by the teardown:
+    private String base;
+    private int segmentSize;
+    private int requests;
+    private Spool spool;
+
+    public TestSpool(String fileName)
+    {
+        this.fileName = fileName;
+    }
+
+    public Object[] spoolList()
+            throws IOException
+    {
+        this.testData = new DataReader(new File(fileName)).read();
+        DataSet spools = this.testData.getDataSet("spool");
+        return spools == null ?
+                new Object[0] :
+                spools.keys();
+    }
+
+    public TestResult setUpSpool(Object arg)
+    {
+        DataSet testCase = this.testData.getDataSet("spool").getDataSet((String)arg);
+        this.base = testCase.getString("file");
+        this.segmentSize = testCase.getInteger("segmentSize");
+        this.requests = testCase.getInteger("requests");
+        // start with an empty spool
+        File file = new File(this.base).getAbsoluteFile();
+        File[] files = file.getParentFile().listFiles((File dir, String name) ->
+                name.startsWith(file.getName() + "."));
+        if (files != null)
+        {
+            for (File old : files)
+            {
+                old.delete();
+            }
+        }
+        return TestResult.notNull(this.base);
+    }
+
+    @TestAnnotation(order = 10)
+    public TestResult open(Object arg) throws IOException, DataException
+    {
+        this.spool = Spool.open(this.base, this.segmentSize);
+        return TestResult.result(0, this.spool.getServices().size(),
+                "New spool is not empty");
+    }
+
+    @TestAnnotation(order = 20)
+    public TestResult append(Object arg) throws IOException, DataException
+    {
+        for (int index = 0; index < this.requests; index++)
+        {
+            this.spool.append(TestSpool.service(index),
+                    new ArrayDataSet().put(TestSpool.INDEX, index));
+        }
+        this.spool.commit();
+        return TestResult.result(this.requests,
+                this.spool.getPending(TestSpool.EVEN) +
+                        this.spool.getPending(TestSpool.ODD),
+                "Requests are not all pending");
+    }
+
+    @TestAnnotation(order = 30)
+    public TestResult retryInOrder(Object arg) throws DataException
+    {
+        long first = this.spool.next(TestSpool.EVEN);
+        this.spool.retry(TestSpool.EVEN, first);
+        return TestResult.result(first, this.spool.next(TestSpool.EVEN),
+                "Retried request is not sent again first");
+    }
+
+    @TestAnnotation(order = 40)
+    public TestResult readInOrder(Object arg) throws DataException
+    {
+        // the first was read by the retry test
+        return TestResult.result(true, this.readAll(TestSpool.EVEN, 2, false),
+                "Requests are not read in order");
+    }
+
+    @TestAnnotation(order = 50)
+    public TestResult reopen(Object arg) throws IOException, DataException
+    {
+        // nothing has been acknowledged, so it should all come back
+        this.spool.close();
+        this.spool = Spool.open(this.base, this.segmentSize);
+        return TestResult.result(this.requests,
+                this.spool.getPending(TestSpool.EVEN) +
+                        this.spool.getPending(TestSpool.ODD),
+                "Requests are not recovered after reopening");
+    }
+
+    @TestAnnotation(order = 60)
+    public TestResult slotNotShared(Object arg) throws IOException, DataException
+    {
+        Spool other = Spool.open(this.base, this.segmentSize);
+        try
+        {
+            return TestResult.result(0, other.getServices().size(),
+                    "Open spool shares its slot");
+        }
+        finally
+        {
+            other.close();
+        }
+    }
+
+    @TestAnnotation(order = 70)
+    public TestResult acknowledge(Object arg) throws DataException
+    {
+        boolean ordered = this.readAll(TestSpool.EVEN, 0, true) &
+                this.readAll(TestSpool.ODD, 1, true);
+        return TestResult.result(true,
+                ordered && this.spool.getServices().isEmpty(),
+                "Requests are not all acknowledged in order");
+    }
+
+    @TestAnnotation(order = 80)
+    public TestResult segmentsReleased(Object arg)
+    {
+        return TestResult.result(1, this.spool.getSegments(),
+                "Acknowledged segments are not released");
+    }
+
+    /**
+     * Read the requests waiting for a service and check they are in order.
+     */
+    private boolean readAll(String service, int from, boolean acknowledge)
+            throws DataException
+    {
+        int expected = from;
+        long position;
+        while ((position = this.spool.next(service)) >= 0)
+        {
+            Integer index = this.spool.read(position).getInteger(TestSpool.INDEX);
+            if (index == null || index != expected)
+            {
+                return false;
+            }
+            if (acknowledge)
+            {
+                this.spool.acknowledge(service, position);
+            }
+            expected += 2;
+        }
+        return expected >= this.requests;
+    }
+
+    /**
+     * Get the service for a request.
+     */
+    private static String service(int index)
+    {
+        return index % 2 == 0 ?
+                TestSpool.EVEN :
+                TestSpool.ODD;
+    }
+
+    public TestResult tearDownSpool(Object arg)
+    {
+        if (this.spool != null)
+        {
+            this.spool.close();
+        }
+        this.spool = null;
+        this.base = null;
+        return TestResult.result(true);
+    }
+}